@@ -54,6 +54,10 @@ public class BayesData {
 		private int groups;
 		private HtmlCore generator;
 		private Random rand;
+		private PageRandom pageRand;
+		private Text[] classes;
+		private TextBuffer tb;
+		private Throttle throttle;
 
 		public void configure(JobConf job) {
 			try {
@@ -62,6 +66,14 @@ public class BayesData {
 				groups = job.getInt("groups", 0);
 				
 				generator = new HtmlCore(job);
+				pageRand = new PageRandom(job.getLong(HtmlCore.RANDOM_SEED_PARAM_NAME, 0) * 31 + 101);
+
+				classes = new Text[groups];
+				for (int i=0; i<groups; i++) {
+					classes[i] = new Text("/class" + i);
+				}
+				tb = new TextBuffer(4096);
+				throttle = Throttle.get(job);
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -76,20 +88,41 @@ public class BayesData {
 			int slotId = Integer.parseInt(value.toString().trim());
 			long[] range = HtmlCore.getPageRange(slotId, pages, slotpages);
 			generator.fireRandom(slotId);
-			rand = new Random(slotId * 1000 + 101);
+			if (generator.isPageKeyed()) {
+				rand = pageRand;
+			} else {
+				rand = new Random(slotId * 1000 + 101);
+			}
 			
-			Text k = new Text();
+			long start = System.currentTimeMillis();
+			long bytes = 0;
 			for (long i=range[0]; i<range[1]; i++) {
-				String classname = "/class" + rand.nextInt(groups);
-				k.set(classname);
-				value.set(generator.genBayesWords());
+				generator.firePage(i);
+				if (generator.isPageKeyed()) {
+					pageRand.seek(i);
+				}
+				Text k = classes[rand.nextInt(groups)];
+				generator.genBayesWords(tb);
+				tb.writeTo(value);
 				output.collect(k, value);
-				reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED,
-					k.getLength()+value.getLength());
+				bytes = bytes + k.getLength() + value.getLength();
+				if (null != throttle) {
+					throttle.acquire(1, k.getLength() + value.getLength());
+				}
 				if (0==(i % 10000)) {
 					log.info("still running: " + (i - range[0]) + " of " + slotpages);
 				}
 			}
+			long cost = Math.max(System.currentTimeMillis() - start, 1);
+			long rows = range[1] - range[0];
+
+			reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, bytes);
+			reporter.incrCounter(HiBench.Counters.RECORDS_GENERATED, rows);
+			reporter.incrCounter(HiBench.Counters.MILLIS_GENERATING, cost);
+			String rate = "slot " + slotId + ": " + (rows * 1000 / cost) + " rows/sec, "
+					+ (bytes * 1000 / cost) + " bytes/sec";
+			log.info(rate);
+			reporter.setStatus(rate);
 		}
 	}
 	
@@ -98,7 +131,9 @@ public class BayesData {
 		job.setLong("slotpages", options.getNumSlotPages());
 		job.setInt("groups", cgroups);
 		
+		Utils.shareRandomOptions(options, job);
 		Utils.shareWordZipfCore(options, job);
+		Throttle.share(options, job);
 	}
 	
 	private void createBayesData() throws IOException, URISyntaxException {
@@ -134,7 +169,7 @@ public class BayesData {
 		log.info("Running Job: " +jobname);
 		log.info("Pages file " + dummy.getPath() + " as input");
 		log.info("Rankings file " + fout + " as output");
-		JobClient.runJob(job);
+		Utils.runJob(job, options);
 		log.info("Finished Running Job: " + jobname);
 	}
 	
@@ -145,7 +180,8 @@ public class BayesData {
 
 		dummy = new Dummy(options.getWorkPath(), options.getNumMaps());
 
-		int words = RawData.putDictToHdfs(new Path(options.getWorkPath(), HtmlCore.getDictName()), options.getNumWords());
+		int words = RawData.putDictToHdfs(new Path(options.getWorkPath(), HtmlCore.getDictName()), options.getNumWords(),
+				options.getCachePath());
 		options.setNumWords(words);
 		
 		Utils.serialWordZipf(options);
@@ -0,0 +1,56 @@
+package HiBench;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.Progressable;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/***
+ * Writes the delimited rows of a table as RCFile, one column per field,
+ * the keys are dropped as Hive does not read them. The number of columns
+ * is given by COLUMNS_PARAM_NAME, the field delimiter by "delimiter".
+ */
+public class ColumnarOutputFormat extends FileOutputFormat<Object, Text> {
+
+	public static final String COLUMNS_PARAM_NAME = "hibench.columnar.columns";
+
+	@Override
+	public RecordWriter<Object, Text> getRecordWriter(FileSystem ignored,
+			JobConf job, String name, Progressable progress) throws IOException {
+
+		int columns = job.getInt(COLUMNS_PARAM_NAME, 0);
+		if (columns <= 0) {
+			throw new IOException("number of columns not set by " + COLUMNS_PARAM_NAME);
+		}
+		final byte[] delim = job.get("delimiter", ",").getBytes("UTF-8");
+
+		CompressionCodec codec = null;
+		if (getCompressOutput(job)) {
+			codec = ReflectionUtils.newInstance(getOutputCompressorClass(job, DefaultCodec.class), job);
+		}
+
+		Path file = FileOutputFormat.getTaskOutputPath(job, name);
+		FileSystem fs = file.getFileSystem(job);
+		final RCFileWriter writer = new RCFileWriter(fs.create(file, progress), columns, codec, job);
+
+		return new RecordWriter<Object, Text>() {
+
+			public void write(Object key, Text value) throws IOException {
+				writer.append(value.getBytes(), value.getLength(), delim);
+			}
+
+			public void close(Reporter reporter) throws IOException {
+				writer.close();
+			}
+		};
+	}
+}
@@ -1,5 +1,8 @@
 package HiBench;
 
 public enum Counters {
-	BYTES_DATA_GENERATED
+	BYTES_DATA_GENERATED,
+	EDGES_GENERATED,
+	RECORDS_GENERATED,
+	MILLIS_GENERATING
 }
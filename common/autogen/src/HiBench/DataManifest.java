@@ -0,0 +1,132 @@
+package HiBench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/***
+ * Description of a generated data set: the options it was created with and
+ * how much of it exists, kept as a java properties file named _manifest in
+ * its result directory.
+ *
+ * With -append, a generator reads the manifest of the existing data and,
+ * when the options the data depends on are the same, only creates what is
+ * missing. The manifest is written once all the jobs of a run succeeded and
+ * removed before an append run touches the data, so a result directory
+ * without a manifest is always created again from scratch.
+ */
+public class DataManifest {
+
+	public static final String MANIFEST_NAME = "_manifest";
+
+	public static final String TYPE = "type";
+	public static final String SEED = "seed";
+	public static final String RANDOM_MODE = "rng";
+	public static final String ZIPF_SAMPLER = "zipf";
+	public static final String CODEC = "codec";
+	public static final String FORMAT = "format";
+	public static final String PAGES = "pages";
+	public static final String SLOT_PAGES = "slotpages";
+
+	// options of any generator that the existing data must share
+	private static final String[] COMMON_KEYS = {
+		TYPE, SEED, RANDOM_MODE, ZIPF_SAMPLER, CODEC, FORMAT
+	};
+
+	private Properties props;
+
+	private DataManifest() {
+		props = new Properties();
+	}
+
+	DataManifest(DataOptions options) {
+		this();
+		set(TYPE, options.getType());
+		set(SEED, options.getSeed());
+		set(RANDOM_MODE, options.getRandomMode());
+		set(ZIPF_SAMPLER, options.getZipfSampler());
+		set(CODEC, (null == options.getCodecClass()) ? "none" : options.getCodecClass().getName());
+		set(FORMAT, options.isColumnarOut() ? "rcfile" : (options.isSequenceOut() ? "sequence" : "text"));
+		set(PAGES, options.getNumPages());
+		set(SLOT_PAGES, options.getNumSlotPages());
+	}
+
+	private static Path getPath(Path dir) {
+		return new Path(dir, MANIFEST_NAME);
+	}
+
+	/***
+	 * @return the manifest of the data in dir, null if there is none
+	 */
+	public static DataManifest read(Path dir) throws IOException {
+
+		Path path = getPath(dir);
+		FileSystem fs = path.getFileSystem(new Configuration());
+		if (!fs.exists(path)) {
+			return null;
+		}
+
+		DataManifest manifest = new DataManifest();
+		InputStream in = fs.open(path);
+		try {
+			manifest.props.load(in);
+		} finally {
+			in.close();
+		}
+		return manifest;
+	}
+
+	public void write(Path dir) throws IOException {
+
+		Path path = getPath(dir);
+		FileSystem fs = path.getFileSystem(new Configuration());
+		OutputStream out = fs.create(path, true);
+		try {
+			props.store(out, "HiBench data manifest");
+		} finally {
+			out.close();
+		}
+	}
+
+	public static void delete(Path dir) throws IOException {
+		Path path = getPath(dir);
+		FileSystem fs = path.getFileSystem(new Configuration());
+		fs.delete(path, false);
+	}
+
+	public void set(String key, Object value) {
+		props.setProperty(key, String.valueOf(value));
+	}
+
+	public String get(String key) {
+		return props.getProperty(key);
+	}
+
+	public long getLong(String key, long defaultValue) {
+		String value = props.getProperty(key);
+		return (null == value) ? defaultValue : Long.parseLong(value);
+	}
+
+	/***
+	 * @return the first of the common and the given keys whose values differ
+	 * 		   between this and other, null if all are the same
+	 */
+	public String differs(DataManifest other, String... keys) {
+		for (String key : COMMON_KEYS) {
+			if (!String.valueOf(get(key)).equals(String.valueOf(other.get(key)))) {
+				return key;
+			}
+		}
+		for (String key : keys) {
+			if (!String.valueOf(get(key)).equals(String.valueOf(other.get(key)))) {
+				return key;
+			}
+		}
+		return null;
+	}
+}
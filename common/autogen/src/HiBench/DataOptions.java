@@ -14,6 +14,7 @@ public class DataOptions {
 	public static final double WORD_ZIPF_EXPONENT = 0.9;
 
 	private static final String TEMP_DIR = "temp";
+	private static final String CACHE_DIR = "cache";
 	private static final int NUM_LINUX_DICT_WORD = 479623;
 
 	public static enum DataType {
@@ -21,15 +22,27 @@ public class DataOptions {
 	}
 	private DataType type;
 
+	public static enum Engine {
+		MAPREDUCE, LOCAL
+	}
+	private Engine engine;
+	private int threads;
+
 	private String base, dname;
-	private Path workPath, resultPath;
+	private Path workPath, resultPath, cachePath;
 	
 	private int maps, reds;
 	private long pages, slotpages;
 	private int words;
 	
 	private boolean sequenceOut;
+	private boolean columnarOut;
 	private Class<? extends CompressionCodec> codecClass;
+	private ZipfCore.Sampler zipfSampler;
+	private String randomMode;
+	private long seed;
+	private boolean append;
+	private double rowRate, byteRate;
 	
 	private StringBuffer remainArgs;
 
@@ -42,7 +55,16 @@ public class DataOptions {
 		pages = -1;
 		words = -1;
 		sequenceOut = false;
+		columnarOut = false;
 		codecClass = null;
+		zipfSampler = ZipfCore.Sampler.INDEX;
+		randomMode = HtmlCore.SLOT_RANDOM_MODE;
+		seed = 0;
+		append = false;
+		rowRate = 0;
+		byteRate = 0;
+		engine = Engine.MAPREDUCE;
+		threads = Runtime.getRuntime().availableProcessors();
 		remainArgs = new StringBuffer("");
 
 		if (args.length < 2) {
@@ -81,12 +103,51 @@ public class DataOptions {
 			} else if ("-n".equals(args[i])) {
 				dname = args[++i];
 			} else if ("-o".equals(args[i])) {
-				if ("sequence".equalsIgnoreCase(args[++i])) {
+				String format = args[++i];
+				if ("sequence".equalsIgnoreCase(format)) {
 					sequenceOut = true;
+				} else if ("rcfile".equalsIgnoreCase(format)) {
+					columnarOut = true;
 				}
 			} else if ("-c".equals(args[i])) {
 				codecClass =
 						Class.forName(args[++i]).asSubclass(CompressionCodec.class);
+			} else if ("-engine".equals(args[i])) {
+				String name = args[++i];
+				if ("local".equalsIgnoreCase(name)) {
+					engine = Engine.LOCAL;
+				} else if ("mapreduce".equalsIgnoreCase(name) || "mr".equalsIgnoreCase(name)) {
+					engine = Engine.MAPREDUCE;
+				} else {
+					System.exit(printUsage("Error: unknown engine -- " + name + "!!!"));
+				}
+			} else if ("-threads".equals(args[i])) {
+				threads = Integer.parseInt(args[++i]);
+			} else if ("-rng".equals(args[i])) {
+				randomMode = args[++i].toLowerCase();
+				if (!HtmlCore.SLOT_RANDOM_MODE.equals(randomMode)
+						&& !HtmlCore.PAGE_RANDOM_MODE.equals(randomMode)) {
+					System.exit(printUsage("Error: unknown random mode -- " + randomMode + "!!!"));
+				}
+			} else if ("-seed".equals(args[i])) {
+				seed = Long.parseLong(args[++i]);
+			} else if ("-append".equals(args[i])) {
+				append = true;
+			} else if ("-rate".equals(args[i])) {
+				rowRate = Double.parseDouble(args[++i]);
+			} else if ("-bandwidth".equals(args[i])) {
+				byteRate = Double.parseDouble(args[++i]) * 1024 * 1024;
+			} else if ("-zipf".equals(args[i])) {
+				String sampler = args[++i];
+				if ("index".equalsIgnoreCase(sampler)) {
+					zipfSampler = ZipfCore.Sampler.INDEX;
+				} else if ("search".equalsIgnoreCase(sampler)) {
+					zipfSampler = ZipfCore.Sampler.SEARCH;
+				} else if ("alias".equalsIgnoreCase(sampler)) {
+					zipfSampler = ZipfCore.Sampler.ALIAS;
+				} else {
+					System.exit(printUsage("Error: unknown zipf sampler -- " + sampler + "!!!"));
+				}
 			} else {
 				remainArgs.append(args[i]).append(" ");
 				remainArgs.append(args[++i]).append(" ");
@@ -100,10 +161,15 @@ public class DataOptions {
 		resultPath = new Path(base, dname);
 //		workPath = new Path(resultPath, TEMP_DIR);
 		workPath = new Path(base, TEMP_DIR);
+		cachePath = new Path(base, CACHE_DIR);
 	}
 	
 	private void checkOptions() {
 		
+		if (threads <= 0) {
+			System.exit(printUsage("Error: number of threads should be larger than 0!!!"));
+		}
+
 		switch (type) {
 		case HIVE:
 			if (pages<=0) {
@@ -119,11 +185,17 @@ public class DataOptions {
 			if (pages<=0 || words<=0) {
 				System.exit(printUsage("Error: pages/words of bayes data should be larger than 0!!!"));
 			}
+			if (append) {
+				System.out.println("Warning: bayes data can not be appended, creating all of it");
+			}
 			break;
 		case NUTCH:
 			if (pages<=0 || words<=0) {
 				System.exit(printUsage("Error: pages/words of nutch data should be larger than 0!!!"));
 			}
+			if (append) {
+				System.out.println("Warning: nutch data can not be appended, creating all of it");
+			}
 			break;
 		default:
 			System.exit(printUsage("Error: type of data not defined!!!"));
@@ -137,6 +209,13 @@ public class DataOptions {
 	public Path getResultPath() {
 		return resultPath;
 	}
+
+	/***
+	 * directory of the input files kept across runs, see RawData
+	 */
+	public Path getCachePath() {
+		return cachePath;
+	}
 	
 	public static final int printUsage(String msg) {
 		
@@ -148,23 +227,30 @@ public class DataOptions {
 		System.out.println("generate -t hive -p <pages> -v <visits> "
 				+ "[-b <base path>] [-n <data name>] "
 				+ "[-m <num maps>] [-r <num reduces>] "
-				+ "[-o sequence] [-c <codec>] [-d <delimiter>]");
+				+ "[-o sequence|rcfile] [-c <codec>] [-d <delimiter>] "
+				+ "[-vmode join|stream] [-append] [-vroll <visits per roll>]");
 		
 		System.out.println("generate -t pagerank -p <pages> "
 				+ "[-b <base path>] [-n <data name>] "
 				+ "[-m <num maps>] [-r <num reduces>] "
-				+ "[-o sequence] [-c <codec>]");
+				+ "[-o sequence] [-c <codec>] [-pencode string|bytes|binary] [-append]");
 		
 		System.out.println("generate -t nutch -p <pages> [-w <words>] "
 				+ "[-b <base path>] [-n <data name>] "
 				+ "[-m <num maps>] [-r <num reduces>] "
-				+ "[-o sequence] [-c <codec>]");
+				+ "[-o sequence] [-c <codec>] [-umode table|page]");
 		
 		System.out.println("generate -t bayes -p <pages> [-w <words>] -g <num classes>"
 				+ "[-b <base path>] [-n <data name>] "
 				+ "[-m <num maps>] [-r <num reduces>] "
 				+ "[-o sequence] [-c <codec>]");
 		
+		System.out.println();
+		System.out.println("common options: [-zipf index|search|alias] "
+				+ "[-engine mapreduce|local] [-threads <num threads>] "
+				+ "[-rng slot|page] [-seed <seed>] "
+				+ "[-rate <rows/sec per task>] [-bandwidth <MB/sec per task>]");
+		
 		return -1;
 	}
 	
@@ -191,6 +277,14 @@ public class DataOptions {
 	public long getNumSlotPages() {
 		return slotpages;
 	}
+
+	/***
+	 * keep the slot size of existing data, the slots being as many as needed
+	 */
+	public void setNumSlotPages(long slotpages) {
+		this.slotpages = slotpages;
+		maps = (int) ((pages + slotpages - 1) / slotpages);
+	}
 	
 	public int getNumWords() {
 		return words;
@@ -204,7 +298,49 @@ public class DataOptions {
 		return sequenceOut;
 	}
 	
+	public boolean isColumnarOut() {
+		return columnarOut;
+	}
+	
 	public Class<? extends CompressionCodec> getCodecClass() {
 		return codecClass;
 	}
+	
+	public Engine getEngine() {
+		return engine;
+	}
+	
+	public int getNumThreads() {
+		return threads;
+	}
+	
+	public String getRandomMode() {
+		return randomMode;
+	}
+	
+	public long getSeed() {
+		return seed;
+	}
+
+	public boolean isAppend() {
+		return append;
+	}
+
+	/***
+	 * rows per second of each task, 0 for no limit, see Throttle
+	 */
+	public double getRowRate() {
+		return rowRate;
+	}
+
+	/***
+	 * bytes per second of each task, 0 for no limit, see Throttle
+	 */
+	public double getByteRate() {
+		return byteRate;
+	}
+	
+	public ZipfCore.Sampler getZipfSampler() {
+		return zipfSampler;
+	}
 }
@@ -1,11 +1,13 @@
 package HiBench;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 
@@ -16,29 +18,40 @@ public class Dummy {
 	private static final String NAME = "dummy";
 	
 	private Path path;
+	private int first;
 	private int slots;
 	
 	Dummy(Path path, int slots) throws IOException {
+		this(path, 1, slots);
+	}
+
+	/***
+	 * dummy file of the slots first to slots, one slot id per line, all
+	 * zero-padded to the same width: the job client sorts the splits by
+	 * length, which then keeps the line order, so part i of a job is the
+	 * output of slot first + i
+	 */
+	Dummy(Path path, int first, int slots) throws IOException {
 		this.path = new Path(path, NAME);
+		this.first = first;
 		this.slots = slots;
 		this.create();
 	}
 	
 	public void create() throws IOException {
 		
-		log.info("Creating dummy file " + path + " with " + slots + " slots...");
+		log.info("Creating dummy file " + path + " with slots " + first + " to " + slots + "...");
 
 		Utils.checkHdfsPath(path);
 		
 		FileSystem fs = path.getFileSystem(new Configuration());
-		FSDataOutputStream out = fs.create(path);
+		Writer out = new BufferedWriter(new OutputStreamWriter(fs.create(path), "UTF-8"));
 
-		String contents = "";
-		for (int i=1; i<=slots; i++) {
-			contents = contents.concat(Integer.toString(i) + "\n");
+		String format = "%0" + Integer.toString(slots).length() + "d";
+		for (int i=first; i<=slots; i++) {
+			out.write(String.format(format, i));
+			out.write('\n');
 		}
-
-		out.write(contents.getBytes("UTF-8"));
 		out.close();
 	}
 
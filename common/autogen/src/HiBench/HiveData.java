@@ -2,7 +2,6 @@ package HiBench;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Random;
 
@@ -35,16 +34,51 @@ public class HiveData {
 	
 	private static final String RANKINGS = "rankings";
 	private static final String USERVISITS = "uservisits";
+	private static final int RANKINGS_COLUMNS = 3;
+	private static final int USERVISITS_COLUMNS = 9;
 	public static final String uagentf = "user_agents";
 	public static final String countryf = "country_codes";
 	public static final String searchkeyf = "search_keys";
 	
 	private DataOptions options;
 	private long visits;
+
+	/***
+	 * How user visits get the urls of visited pages:
+	 * 		join:   join the visits with the urls of table rankings (original)
+	 * 		stream: re-create the url of each visited page from its page id,
+	 * 				by a map-only job (no re-read of rankings, no shuffle)
+	 */
+	private static final String PAGE_URL_PARAM_NAME = "hive.page.urls";
+	private static final String JOIN_VISITS_MODE = "join";
+	private static final String STREAM_VISITS_MODE = "stream";
+	private String vmode = JOIN_VISITS_MODE;
+
+	/***
+	 * With -append, visits are added to existing data of the same pages:
+	 * each run draws its visits from seeds of its own, base + slot id
+	 */
+	private static final String VISIT_SEED_BASE_PARAM_NAME = "hive.visits.seed.base";
+	private static final int VISIT_SEED_STRIDE = 1 << 20;
+	private static final String VISITS_KEY = "visits";
+	private static final String VISIT_RUNS_KEY = "visits.runs";
+	private long existingVisits = 0;
+	private int visitRuns = 0;
+
+	/***
+	 * With -vroll, the visits are created in rolls of that many, each one
+	 * moved into the table as new part files and committed to the manifest
+	 * before the next one starts, so that queries can run on a table growing
+	 * like one fed by a live ingest (see -rate and run-ingest.sh)
+	 */
+	private long vroll = 0;
+	// visits of the table once the running roll is done
+	private long rollVisits = 0;
 	
 	// client side delim
 	private String cdelim = ",";
-	private int chashsize = 150 * 1024 * 1024;
+	// slots of the in-link count table of each rankings mapper, ~96MB
+	private int chashsize = 8 * 1024 * 1024;
 	
 	private Dummy dummy;
 
@@ -60,13 +94,28 @@ public class HiveData {
 				visits = Long.parseLong(args[++i]);
 			} else if ("-d".equals(args[i])) {
 				cdelim = args[++i];
+			} else if ("-vmode".equals(args[i])) {
+				vmode = args[++i].toLowerCase();
+				if (!JOIN_VISITS_MODE.equals(vmode) && !STREAM_VISITS_MODE.equals(vmode)) {
+					DataOptions.printUsage("Unknown hive visits mode -- " + vmode + "!!!");
+					System.exit(-1);
+				}
+			} else if ("-vroll".equals(args[i])) {
+				vroll = Long.parseLong(args[++i]);
 			} else {
 				DataOptions.printUsage("Unknown hive data arguments -- " + args[i] + "!!!");
 			}
 		}
 		
-		if (chashsize > options.getNumPages()) {
-			chashsize = (int) options.getNumPages();
+		// rankings in rcfile are not read back, visits take the urls from page ids
+		if (options.isColumnarOut() && JOIN_VISITS_MODE.equals(vmode)) {
+			log.info("rcfile output: creating user visits in stream mode");
+			vmode = STREAM_VISITS_MODE;
+		}
+
+		// leave room for all the pages below the max load of the table
+		if (chashsize > 2 * options.getNumPages()) {
+			chashsize = (int) (2 * options.getNumPages());
 		}
 
 	}
@@ -76,14 +125,20 @@ public class HiveData {
 		job.setLong("slotpages", options.getNumSlotPages());
 		job.set("delimiter", cdelim);
 		job.setInt("hashsize", chashsize);
+		job.setBoolean(PAGE_URL_PARAM_NAME, STREAM_VISITS_MODE.equals(vmode));
+		Utils.shareRandomOptions(options, job);
 		Utils.shareLinkZipfCore(options, job);
+		Throttle.share(options, job);
 	}
 	
 	private void setVisitsOptions(JobConf job) {
 		job.setInt("slots", options.getNumMaps());
 		job.setLong("pages", options.getNumPages());
-		job.setLong("visits", visits);
+		job.setLong("slotpages", options.getNumSlotPages());
+		job.setLong("visits", rollVisits - existingVisits);
+		job.setInt(VISIT_SEED_BASE_PARAM_NAME, visitRuns * VISIT_SEED_STRIDE);
 		job.set("delimiter", cdelim);
+		Throttle.share(options, job);
 	}
 
 	public static class DummyToRankingsMapper extends MapReduceBase implements
@@ -96,14 +151,15 @@ public class HiveData {
 		private boolean outset;
 		private OutputCollector<LongWritable, JoinBytesInt> myout;
 		private JoinBytesInt uitem, ritem;
-		private short[] hash;
-		private HashMap<Integer, Integer> hm;
+		private LinkCountTable hash;
 		private int hashsize;
+		private boolean pageUrls;
 		
 		private void getOptions(JobConf job) {
 			pages = job.getLong("pages", 0);
 			slotpages = job.getLong("slotpages", 0);
 			hashsize = job.getInt("hashsize", 0);
+			pageUrls = job.getBoolean(PAGE_URL_PARAM_NAME, false);
 		}
 
 		public void configure(JobConf job) {
@@ -124,8 +180,15 @@ public class HiveData {
 			ritem = new JoinBytesInt();
 			ritem.refs = 1;
 			
-			hash = new short[hashsize];
-			hm = new HashMap<Integer, Integer>();
+			hash = new LinkCountTable(hashsize, new LinkCountTable.Sink() {
+				private LongWritable k = new LongWritable();
+				public void emit(long id, int count) throws IOException {
+					k.set(id);
+					ritem.refs = count;
+					myout.collect(k, ritem);
+				}
+			});
+			log.info("in-link count table: " + LinkCountTable.getBytes(hashsize) + " bytes");
 		}
 	
 		public void map(LongWritable key, Text value, OutputCollector<LongWritable, JoinBytesInt> output,
@@ -146,29 +209,18 @@ public class HiveData {
 			 */
 			for (long i=range[0]; i<range[1]; i++) {
 				key.set(i);
+				generator.firePage(i);
 
-				generator.nextUrlJoinBytesInt(uitem);
+				if (pageUrls) {
+					generator.pageUrlJoinBytesInt(i, uitem);
+				} else {
+					generator.nextUrlJoinBytesInt(uitem);
+				}
 				output.collect(key, uitem);
 				
 				long[] linkids = generator.genPureLinkIds();
 				for (int j=0; j<linkids.length; j++) {
-					long uid = linkids[j];
-					if (uid < hashsize) {
-						int iid = (int) uid;
-						if (hash[iid]>=0) {
-							if (hash[iid]==HtmlCore.MAX_SHORT) {
-								hm.put(iid, (int) (hash[iid]) + 1);
-								hash[iid] = -1;
-							} else {
-								hash[iid]++;
-							}
-						} else {
-							hm.put(iid, hm.get(iid) + 1);
-						}
-					} else {
-						key.set(uid); 
-						output.collect(key, ritem);
-					}
+					hash.add(linkids[j]);
 				}
 				
 				if (0==(i % 10000)) {
@@ -181,18 +233,9 @@ public class HiveData {
 		public void close ()
 		{
 			try {
-				LongWritable k = new LongWritable();
-				for (int i=0; i<hash.length; i++) {
-					if (hash[i] > 0) {
-						k.set(i);
-						ritem.refs = hash[i];
-						myout.collect(k, ritem);
-					} else if (hash[i] < 0) {
-						k.set(i);
-						ritem.refs = hm.get(i);
-						myout.collect(k, ritem);
-					}
-				}
+				hash.flush();
+				log.info("in-link counts: " + hash.getEmitted() + " emitted in "
+						+ hash.getFlushes() + " partial flushes and the final one");
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -237,6 +280,7 @@ public class HiveData {
 		private int errors, missed;
 		private JoinBytesInt v;
 		private int pid;
+		private Throttle throttle;
 		
 		// job side delimiter
 		private String delim;
@@ -247,6 +291,7 @@ public class HiveData {
 			delim = job.get("delimiter");
 			pid = job.getInt("mapred.task.partition", 0);
 			rand = new Random(pid + 1);
+			throttle = Throttle.get(job);
 
 			v = new JoinBytesInt();
 
@@ -282,6 +327,9 @@ public class HiveData {
 							key, value);
 							
 					reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, 8+value.getLength());
+					if (null != throttle) {
+						throttle.acquire(1, 8 + value.getLength());
+					}
 				} else {
 					missed++;
 				}
@@ -291,6 +339,20 @@ public class HiveData {
 		}
 	}
 
+	/***
+	 * table files as sequence file, text or rcfile with the given columns
+	 */
+	private void setTableOutputFormat(JobConf job, int columns) {
+		if (options.isColumnarOut()) {
+			job.setOutputFormat(ColumnarOutputFormat.class);
+			job.setInt(ColumnarOutputFormat.COLUMNS_PARAM_NAME, columns);
+		} else if (options.isSequenceOut()) {
+			job.setOutputFormat(SequenceFileOutputFormat.class);
+		} else {
+			job.setOutputFormat(TextOutputFormat.class);
+		}
+	}
+
 	private void createRankingsTableDirectly() throws IOException, URISyntaxException {
 
 		log.info("Creating table rankings...");
@@ -335,11 +397,7 @@ public class HiveData {
 //		MapFileOutputFormat.setOutputCompressorClass(job, org.apache.hadoop.io.compress.LzoCodec.class);
 		MapFileOutputFormat.setOutputCompressorClass(job, org.apache.hadoop.io.compress.DefaultCodec.class);
 
-		if (options.isSequenceOut()) {
-			job.setOutputFormat(SequenceFileOutputFormat.class);
-		} else {
-			job.setOutputFormat(TextOutputFormat.class);
-		}
+		setTableOutputFormat(job, RANKINGS_COLUMNS);
 		
 		if (null != options.getCodecClass()) {
 			job.set("mapred.output.compression.type","BLOCK");
@@ -353,7 +411,7 @@ public class HiveData {
 		log.info("Running Job: " +jobname);
 		log.info("Pages file " + dummy.getPath() + " as input");
 		log.info("Rankings file " + fout + " as output");
-		JobClient.runJob(job);
+		Utils.runJob(job, options);
 		log.info("Finished Running Job: " + jobname);
 	}
 
@@ -371,6 +429,7 @@ public class HiveData {
 		private long pages;
 		private long slots;
 		private long visits;
+		private int seedBase;
 		
 		// job side delimiter
 		private String delim;
@@ -382,6 +441,7 @@ public class HiveData {
 				pages = job.getLong("pages", 0);
 				slots = job.getLong("slots", 0);
 				visits = job.getLong("visits", 0);
+				seedBase = job.getInt(VISIT_SEED_BASE_PARAM_NAME, 0);
 				delim = job.get("delimiter");
 	
 				visit = new Visit(DistributedCache.getLocalCacheFiles(job),
@@ -401,7 +461,7 @@ public class HiveData {
 						throws IOException {
 	
 			int slotId = Integer.parseInt(value.toString().trim());
-			visit.fireRandom(slotId);
+			visit.fireRandom(seedBase + slotId);
 
 			for (long i=slotId; i<=visits;) {
 				// simply setting url id is fine in map step
@@ -412,6 +472,69 @@ public class HiveData {
 		}
 	}
 
+	/***
+	 * Mapper to create user visits without joining with table rankings: the
+	 * url of the visited page is re-created from its page id, the same way
+	 * DummyToRankingsMapper creates it in stream mode.
+	 */
+	public static class DummyToUserVisitsMapper extends MapReduceBase implements
+	Mapper<LongWritable, Text, LongWritable, Text> {
+
+		private HtmlCore generator;
+		private JoinBytesInt uitem;
+		private long slots;
+		private long visits;
+		private int seedBase;
+		private Visit visit;
+		private Text v;
+		private Throttle throttle;
+
+		public void configure (JobConf job)
+		{
+			try {
+				slots = job.getLong("slots", 0);
+				visits = job.getLong("visits", 0);
+				seedBase = job.getInt(VISIT_SEED_BASE_PARAM_NAME, 0);
+				throttle = Throttle.get(job);
+
+				generator = new HtmlCore(job);
+				visit = new Visit(DistributedCache.getLocalCacheFiles(job),
+						job.get("delimiter"), job.getLong("pages", 0));
+
+				uitem = new JoinBytesInt();
+				uitem.url = new byte[HtmlCore.getMaxUrlLength()];
+				v = new Text();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+
+		@Override
+		public void map(LongWritable key, Text value,
+				OutputCollector<LongWritable, Text> output, Reporter reporter)
+						throws IOException {
+
+			int slotId = Integer.parseInt(value.toString().trim());
+			visit.fireRandom(seedBase + slotId);
+
+			long bytes = 0;
+			for (long i=slotId; i<=visits;) {
+				long uid = visit.nextUrlId();
+				generator.pageUrlJoinBytesInt(uid, uitem);
+
+				key.set(uid);
+				visit.nextAccess(uitem.url, 0, uitem.ulen, v);
+				output.collect(key, v);
+				bytes = bytes + 8 + v.getLength();
+				if (null != throttle) {
+					throttle.acquire(1, 8 + v.getLength());
+				}
+				i = i + slots;
+			}
+			reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, bytes);
+		}
+	}
+
 	public static class SequenceRankingsToUrlsMapper extends MapReduceBase implements
 	Mapper<LongWritable, Text, LongWritable, JoinBytesInt> {
 		public JoinBytesInt uitem;
@@ -464,10 +587,12 @@ public class HiveData {
 
 		private int errors, missed;
 		private JoinBytesInt vitem;
+		private Text value;
 		
 		// job side delimiter
 		private String delim;
 		private int pid;
+		private Throttle throttle;
 	
 		public void configure (JobConf job)
 		{
@@ -478,9 +603,11 @@ public class HiveData {
 	
 				visit = new Visit(DistributedCache.getLocalCacheFiles(job),
 						delim, pages);
-				visit.fireRandom(pid + 1);
+				visit.fireRandom(job.getInt(VISIT_SEED_BASE_PARAM_NAME, 0) + pid + 1);
+				throttle = Throttle.get(job);
 				
 				vitem = new JoinBytesInt();
+				value = new Text();
 				
 				errors = 0;
 				missed = 0;
@@ -515,9 +642,12 @@ public class HiveData {
 			if (0!=vitem.ulen) {
 				if (vitem.refs > 0) {
 					for (int i=0; i<vitem.refs; i++) {
-						Text value = new Text(visit.nextAccess(new String(vitem.url)));
+						visit.nextAccess(vitem.url, 0, vitem.ulen, value);
 						output.collect(key, value);
 						reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, 8+value.getLength());
+						if (null != throttle) {
+							throttle.acquire(1, 8 + value.getLength());
+						}
 					}
 				} else {
 					missed++;
@@ -533,7 +663,7 @@ public class HiveData {
 		log.info("Creating user visits...");
 
 		Path rankings = new Path(options.getResultPath(), RANKINGS);
-		Path fout = new Path(options.getResultPath(), USERVISITS);
+		Path fout = getVisitsOutputPath();
 
 		JobConf job = new JobConf(HiveData.class);
 		String jobname = "Create uservisits";
@@ -585,11 +715,7 @@ public class HiveData {
 
 //		job.setNumReduceTasks(options.slots/2);
 
-		if (options.isSequenceOut()) {
-			job.setOutputFormat(SequenceFileOutputFormat.class);
-		} else {
-			job.setOutputFormat(TextOutputFormat.class);
-		}
+		setTableOutputFormat(job, USERVISITS_COLUMNS);
 		
 		if (null != options.getCodecClass()) {
 			job.set("mapred.output.compression.type","BLOCK");
@@ -603,37 +729,169 @@ public class HiveData {
 		log.info("Dummy file " + dummy.getPath() + " as input");
 		log.info("Rankings file " + rankings + " as input");
 		log.info("Ouput file " + fout);
-		JobClient.runJob(job);
+		Utils.runJob(job, options);
+		moveVisitsOutput();
+		log.info("Finished Running Job: " + jobname);
+	}
+
+	private void createUserVisitsTableStreamed() throws IOException, URISyntaxException {
+
+		log.info("Creating user visits (stream)...");
+
+		Path fout = getVisitsOutputPath();
+
+		JobConf job = new JobConf(HiveData.class);
+		String jobname = "Create uservisits";
+		job.setJobName(jobname);
+		setVisitsOptions(job);
+
+		DistributedCache.addCacheFile(new Path(options.getWorkPath(), uagentf).toUri(), job);
+		DistributedCache.addCacheFile(new Path(options.getWorkPath(), countryf).toUri(), job);
+		DistributedCache.addCacheFile(new Path(options.getWorkPath(), searchkeyf).toUri(), job);
+
+		job.setOutputKeyClass(LongWritable.class);
+		job.setOutputValueClass(Text.class);
+
+		FileInputFormat.setInputPaths(job, dummy.getPath());
+		job.setInputFormat(NLineInputFormat.class);
+
+		job.setMapperClass(DummyToUserVisitsMapper.class);
+		job.setNumReduceTasks(0);
+
+		setTableOutputFormat(job, USERVISITS_COLUMNS);
+
+		if (null != options.getCodecClass()) {
+			job.set("mapred.output.compression.type","BLOCK");
+			FileOutputFormat.setCompressOutput(job, true);
+			FileOutputFormat.setOutputCompressorClass(job, options.getCodecClass());
+		}
+
+		FileOutputFormat.setOutputPath(job, fout);
+
+		log.info("Running Job: " +jobname);
+		log.info("Dummy file " + dummy.getPath() + " as input");
+		log.info("Ouput file " + fout);
+		Utils.runJob(job, options);
+		moveVisitsOutput();
 		log.info("Finished Running Job: " + jobname);
 	}
 
+	/***
+	 * output directory of the visits job, aside when appending visits
+	 */
+	private Path getVisitsOutputPath() {
+		return new Path((existingVisits > 0) ? options.getWorkPath() : options.getResultPath(), USERVISITS);
+	}
+
+	private void moveVisitsOutput() throws IOException {
+		if (existingVisits > 0) {
+			Path visitsPath = new Path(options.getResultPath(), USERVISITS);
+			Utils.moveParts(getVisitsOutputPath(), visitsPath, Utils.getNextPartNumber(visitsPath));
+		}
+	}
+
+	private DataManifest createManifest() {
+		DataManifest manifest = new DataManifest(options);
+		manifest.set("vmode", vmode);
+		manifest.set("delimiter", cdelim);
+		manifest.set(VISITS_KEY, rollVisits);
+		manifest.set(VISIT_RUNS_KEY, visitRuns + 1);
+		return manifest;
+	}
+
+	/***
+	 * With -append, keep the rankings and visits of existing data created
+	 * with the same options and pages, and only create the visits above
+	 * them. Any other change creates the whole data again, as the rankings
+	 * count the in-links of all the pages.
+	 *
+	 * @return false if all the visits exist already
+	 */
+	private boolean checkAppend() throws IOException {
+
+		if (!options.isAppend()) {
+			return true;
+		}
+
+		DataManifest existing = DataManifest.read(options.getResultPath());
+		if (null == existing) {
+			log.info("No manifest of existing data, creating all the tables");
+			return true;
+		}
+
+		String key = existing.differs(createManifest(), DataManifest.PAGES, "vmode", "delimiter");
+		long evisits = existing.getLong(VISITS_KEY, 0);
+		if (null != key) {
+			log.info("Option " + key + " of existing data differs, creating all the tables");
+		} else if (evisits > visits) {
+			log.info("Existing data has more visits, creating all the tables");
+		} else if (evisits == visits) {
+			log.info("All the " + visits + " visits exist already");
+			return false;
+		} else {
+			existingVisits = evisits;
+			visitRuns = (int) existing.getLong(VISIT_RUNS_KEY, 1);
+			log.info("Appending visits " + existingVisits + " to " + visits);
+		}
+		return true;
+	}
+
 	public void generate() throws Exception {
 		
 		log.info("Generating hive data files...");
+		if (!checkAppend()) {
+			return;
+		}
 		init();
 		
-		createRankingsTableDirectly();
-		createUserVisitsTableDirectly();
-		
+		if (0 == existingVisits) {
+			createRankingsTableDirectly();
+		}
+
+		do {
+			rollVisits = (vroll > 0) ? Math.min(visits, existingVisits + vroll) : visits;
+			if (existingVisits > 0) {
+				DataManifest.delete(options.getResultPath());
+			}
+
+			if (STREAM_VISITS_MODE.equals(vmode)) {
+				createUserVisitsTableStreamed();
+			} else {
+				createUserVisitsTableDirectly();
+			}
+
+			createManifest().write(options.getResultPath());
+			log.info("Committed visits " + existingVisits + " to " + rollVisits);
+			existingVisits = rollVisits;
+			visitRuns++;
+		} while (existingVisits < visits);
+
 		close();
 	}
 
 	public void loadFiles() throws IOException {
-		RawData.createSearchKeys(new Path(options.getWorkPath(), searchkeyf));
-		RawData.createUserAgents(new Path(options.getWorkPath(), uagentf));
-		RawData.createCCodes(new Path(options.getWorkPath(), countryf));
+		RawData.createSeedLists(new Path(options.getWorkPath(), uagentf),
+				new Path(options.getWorkPath(), countryf),
+				new Path(options.getWorkPath(), searchkeyf),
+				options.getCachePath());
 	}
 
 	private void init() throws IOException {
 
 		log.info("Initializing hive date generator...");
 
-		Utils.checkHdfsPath(options.getResultPath(), true);
+		if (existingVisits > 0) {
+			DataManifest.delete(options.getResultPath());
+		} else {
+			Utils.checkHdfsPath(options.getResultPath(), true);
+		}
 		Utils.checkHdfsPath(options.getWorkPath(), true);
 
 		loadFiles();
 		
-		Utils.serialLinkZipf(options);
+		if (0 == existingVisits) {
+			Utils.serialLinkZipf(options);
+		}
 		
 		dummy = new Dummy(options.getWorkPath(), options.getNumMaps());
 	}
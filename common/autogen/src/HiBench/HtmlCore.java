@@ -44,23 +44,43 @@ public class HtmlCore {
 	public static final String WORD_ZIPF_FILE_NAME = "wordzipf";
 	public static final String WORD_DICT_DIR_NAME = "worddict";
 	
-	private static Random randRandSeed;		// special rand to create random seeds
-	private static Random randUrl, randPageGo, randElinks;
+	private static final long PAGE_URL_SEED = 0x48694265L;
+	private static final byte[] HTTP_PREFIX = { 'h', 't', 't', 'p', ':', '/', '/' };
+
+	/***
+	 * Random mode of the generator:
+	 * 		slot: random generators are seeded per slot, page N of a slot
+	 * 			  depends on pages before it (original)
+	 * 		page: each page draws from its own random sub-streams, keyed by
+	 * 			  the global seed and the page id, see firePage()
+	 */
+	public static final String RANDOM_MODE_PARAM_NAME = "hibench.random.mode";
+	public static final String RANDOM_SEED_PARAM_NAME = "hibench.random.seed";
+	public static final String SLOT_RANDOM_MODE = "slot";
+	public static final String PAGE_RANDOM_MODE = "page";
+	
+	private Random randRandSeed;		// special rand to create random seeds
+	private Random randUrl, randPageGo, randElinks;
+	private PageRandom randPageUrl;		// seekable rand to create url of any page
+
+	private boolean pageKeyed;
+	private PageRandom[] pageRands;		// url, elinks, page go, link zipf, word zipf
 	
 	public int slots;
 	public long pages, slotpages, totalpages, outpages;
 	private ZipfCore lzipf, wzipf;
 	
-	private String[] dict;
+	private PackedStrings dict;
 	
 	private int llen;
 	private long[] wordids, linkids;
+	private byte[] purl;
 
 	private void printDict() {
 		if (null != dict) {
-			log.info("[dict] slots: " + slots + " length: " + dict.length);
-			for (int i=0; i<dict.length; i = i + slots) {
-				log.info(i + ": " + dict[i]);
+			log.info("[dict] slots: " + slots + " length: " + dict.size());
+			for (int i=0; i<dict.size(); i = i + slots) {
+				log.info(i + ": " + dict.get(i));
 			}
 		} else {
 			log.info("WARNING: dict empty!!!");
@@ -79,6 +99,17 @@ public class HtmlCore {
 			printDict();
 		}
 		
+		randPageUrl = new PageRandom(PAGE_URL_SEED);
+
+		pageKeyed = PAGE_RANDOM_MODE.equals(job.get(RANDOM_MODE_PARAM_NAME, SLOT_RANDOM_MODE));
+		if (pageKeyed) {
+			long seed = job.getLong(RANDOM_SEED_PARAM_NAME, 0);
+			pageRands = new PageRandom[5];
+			for (int i=0; i<pageRands.length; i++) {
+				pageRands[i] = new PageRandom(seed * 31 + i);
+			}
+		}
+
 		wordids = new long[getMeanContentLength() * 2];
 		linkids = new long[wordids.length];
 
@@ -122,6 +153,20 @@ public class HtmlCore {
 	}
 
 	public void fireRandom(int rseed) {
+
+		if (pageKeyed) {
+			randUrl = pageRands[0];
+			randElinks = pageRands[1];
+			randPageGo = pageRands[2];
+			if (null != lzipf) {
+				lzipf.setRand(pageRands[3]);
+			}
+			if (null != wzipf) {
+				wzipf.setRand(pageRands[4]);
+			}
+			return;
+		}
+
 		randRandSeed = new Random(rseed);
 
 		randUrl = new Random(randRandSeed.nextLong());
@@ -135,6 +180,23 @@ public class HtmlCore {
 		randPageGo = new Random(randRandSeed.nextLong());
 	}
 	
+	/***
+	 * Position all random generators at the sub-streams of page pageId, so
+	 * that the url, links and words of the page only depend on the global
+	 * seed and pageId. Nothing is done in slot random mode.
+	 */
+	public void firePage(long pageId) {
+		if (pageKeyed) {
+			for (int i=0; i<pageRands.length; i++) {
+				pageRands[i].seek(pageId);
+			}
+		}
+	}
+
+	public boolean isPageKeyed() {
+		return pageKeyed;
+	}
+
 	public int nextUrlLength()
 	{
 		return (int) Math.round(
@@ -156,6 +218,44 @@ public class HtmlCore {
 		}
 	}
 	
+	/***
+	 * Create the url of page pageId out of its own random stream, so that
+	 * the url of any page can be re-created without creating the pages
+	 * before it. Unlike nextUrlJoinBytesInt(), it is independent of slots.
+	 */
+	public void pageUrlJoinBytesInt(long pageId, JoinBytesInt item) {
+		item.ulen = (byte) pageUrlBytes(pageId, item.url);
+	}
+
+	public int pageUrlBytes(long pageId, byte[] url) {
+		int ulen = randPageUrlLength(pageId);
+		for (int i=0; i<ulen; i++) {
+			url[i] = (byte) (randPageUrl.nextInt(26) + 'a');
+		}
+		return ulen;
+	}
+	
+	/***
+	 * Create the http url of page pageId out of its own random stream,
+	 * see pageUrlBytes()
+	 */
+	public void pageUrlText(long pageId, Text text) {
+		if (null == purl) {
+			purl = new byte[HTTP_PREFIX.length + maxUrlLength];
+			System.arraycopy(HTTP_PREFIX, 0, purl, 0, HTTP_PREFIX.length);
+		}
+		int ulen = randPageUrlLength(pageId);
+		for (int i=0; i<ulen; i++) {
+			purl[HTTP_PREFIX.length + i] = (byte) (randPageUrl.nextInt(26) + 'a');
+		}
+		text.set(purl, 0, HTTP_PREFIX.length + ulen);
+	}
+
+	private int randPageUrlLength(long pageId) {
+		randPageUrl.seek(pageId);
+		return randPageUrl.nextInt(maxUrlLength-minUrlLength+1)+minUrlLength;
+	}
+
 	public byte[] nextUrlBytes() {
 		int ulen = nextUrlLength();
 		byte[] url = new byte[ulen];
@@ -220,6 +320,26 @@ public class HtmlCore {
 		return links;
 	}
 	
+	/***
+	 * Same as genPureLinkIds(), except that the link ids are put into a
+	 * buffer reused from page to page, see getLinkIds()
+	 * @return number of links of the page
+	 */
+	public int nextPureLinkIds() {
+		int len = (int) Math.floor(linkratio * nextContentLength());
+		if (linkids.length < len) {
+			linkids = new long[len];
+		}
+		for (int i=0; i<len; i++) {
+			linkids[i] = lzipf.next();
+		}
+		return len;
+	}
+	
+	public long[] getLinkIds() {
+		return linkids;
+	}
+	
 	public long[] genPureWordIds() {
 		long[] words = new long[(int) Math.floor((1 - linkratio) * nextContentLength())];
 		for (int i=0; i<words.length; i++) {
@@ -267,12 +387,26 @@ public class HtmlCore {
 		int len = (int) Math.ceil(this.nextContentLength() * 1.0 * meanBayesLen / meanContentLen);
 		StringBuffer words = new StringBuffer("");
 		for (int i=0; i<len; i++) {
-			words.append(dict[(int) wzipf.next()]).append(" ");
+			dict.appendTo((int) wzipf.next(), words).append(" ");
 		}
 		
 		return words.toString().trim();
 	}
 	
+	/***
+	 * the words of genBayesWords(), written as utf-8 bytes into tb
+	 */
+	public void genBayesWords(TextBuffer tb) {
+
+		int len = (int) Math.ceil(this.nextContentLength() * 1.0 * meanBayesLen / meanContentLen);
+		tb.reset();
+		for (int i=0; i<len; i++) {
+			dict.appendTo((int) wzipf.next(), tb);
+			tb.append((byte) ' ');
+		}
+		tb.trim();
+	}
+
 	public String genPageWords() {
 
 		int pageLength = this.nextContentLength();
@@ -280,7 +414,7 @@ public class HtmlCore {
 		for (int i=0; i<pageLength; i++) {
 			double fact = randPageGo.nextDouble();
 			if (fact >= linkratio) {
-				words.append(dict[(int) wzipf.next()]).append(" ");
+				dict.appendTo((int) wzipf.next(), words).append(" ");
 				if (fact - linkratio < wordsymbolratio) {
 					words.append("- ");
 				}
@@ -301,14 +435,16 @@ public class HtmlCore {
 
 				if (null != dict) {
 					if (null != wzipf) {
-						String w = dict[(int) wzipf.next()];
-						words.append(w).append(" ");
+						int wstart = words.length();
+						dict.appendTo((int) wzipf.next(), words);
+						int wend = words.length();
+						words.append(" ");
 						fact = fact - linkratio;
 						if (fact < wordsymbolratio) {
 							words.append("- ");
 						}
 						if (fact < wordtitleratio) {
-							title.append(w).append(" ");
+							title.append(words, wstart, wend).append(" ");
 						}
 					} else {
 						log.info("wzipf NULL!!!");
@@ -331,7 +467,7 @@ public class HtmlCore {
 		
 		int tlen = (int) Math.floor((1 - linkratio) * nextContentLength());
 		for (int i=0; i<tlen; i++) { 
-			text.append(dict[(int) wzipf.next()]).append(" ");
+			dict.appendTo((int) wzipf.next(), text).append(" ");
 		}
 		return text.toString().trim();
 	}
@@ -340,7 +476,7 @@ public class HtmlCore {
 		return WORD_DICT_DIR_NAME;
 	}
 	
-	public void setDict(String[] dict) {
+	public void setDict(PackedStrings dict) {
 		this.dict = dict;
 	}
 }
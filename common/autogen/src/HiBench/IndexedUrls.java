@@ -0,0 +1,39 @@
+package HiBench;
+
+import java.io.IOException;
+
+import org.apache.hadoop.io.Text;
+
+/***
+ * Url of any page id, looked up in the memory mapped url files of all the
+ * slots: page id belongs to slot (id % slots) and is entry (id / slots) of it.
+ */
+public class IndexedUrls {
+
+	private int slots;
+	private PackedStrings[] urls;
+	private Text value;
+
+	IndexedUrls(int slots, PackedStrings[] urls) {
+		this.slots = slots;
+		this.urls = urls;
+		value = new Text();
+	}
+
+	/***
+	 * the returned Text is reused, it is only valid until the next call
+	 */
+	public Text get(long id) throws IOException {
+		PackedStrings slot = urls[(int) (id % slots)];
+		long entry = (id - slot.getBase()) / slots;
+		if (entry < 0 || entry >= slot.size()) {
+			throw new IOException("no url of page " + id);
+		}
+		slot.get((int) entry, value);
+		return value;
+	}
+
+	public void close() throws IOException {
+		urls = null;
+	}
+}
@@ -0,0 +1,172 @@
+package HiBench;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/***
+ * Map side aggregation of link counts: an open-addressing (linear probing)
+ * table from link id to its count, kept in two primitive arrays of fixed
+ * capacity.
+ *
+ * When the table is full the coldest entries, those with the lowest counts
+ * making up at least half of the table, are handed to the sink and removed,
+ * so the memory stays bounded whatever the range of link ids is, while hot
+ * ids of a Zipf distribution keep being aggregated in the table.
+ */
+public class LinkCountTable {
+
+	public static interface Sink {
+		public void emit(long id, int count) throws IOException;
+	}
+
+	private static final long EMPTY = -1;
+	private static final double MAX_LOAD = 0.75;
+	private static final int MAX_HISTO = 256;
+
+	private long[] keys;
+	private int[] counts;
+	private int mask;
+	private int size, limit;
+	private Sink sink;
+
+	private long flushes, emitted;
+
+	/***
+	 * @param capacity max number of slots, rounded down to a power of 2
+	 */
+	public LinkCountTable(int capacity, Sink sink) {
+		int cap = Integer.highestOneBit(Math.max(capacity, 16));
+		keys = new long[cap];
+		counts = new int[cap];
+		Arrays.fill(keys, EMPTY);
+		mask = cap - 1;
+		size = 0;
+		limit = (int) (cap * MAX_LOAD);
+		this.sink = sink;
+	}
+
+	/***
+	 * bytes taken by a table of the given capacity
+	 */
+	public static long getBytes(int capacity) {
+		return (long) Integer.highestOneBit(Math.max(capacity, 16))
+				* (HtmlCore.LONG_BYTE + HtmlCore.INT_BYTE);
+	}
+
+	private int slot(long id) {
+		long h = id * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	public void add(long id) throws IOException {
+		add(id, 1);
+	}
+
+	public void add(long id, int count) throws IOException {
+
+		int i = slot(id);
+		while (EMPTY != keys[i]) {
+			if (id == keys[i]) {
+				counts[i] = counts[i] + count;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+
+		if (size >= limit) {
+			flushColdest();
+			add(id, count);
+			return;
+		}
+
+		keys[i] = id;
+		counts[i] = count;
+		size++;
+	}
+
+	/***
+	 * remove slot i and shift back the following entries of its cluster
+	 */
+	private void remove(int i) {
+		int hole = i;
+		int j = (i + 1) & mask;
+		while (EMPTY != keys[j]) {
+			int home = slot(keys[j]);
+			// move j into the hole unless its home lies cyclically in (hole, j]
+			boolean stay = (hole <= j) ? (hole < home && home <= j) : (hole < home || home <= j);
+			if (!stay) {
+				keys[hole] = keys[j];
+				counts[hole] = counts[j];
+				hole = j;
+			}
+			j = (j + 1) & mask;
+		}
+		keys[hole] = EMPTY;
+		counts[hole] = 0;
+		size--;
+	}
+
+	/***
+	 * emit and remove the entries whose count is not above a threshold
+	 * chosen so that at least half of the entries go
+	 */
+	private void flushColdest() throws IOException {
+
+		long[] histo = new long[MAX_HISTO + 1];
+		for (int i=0; i<=mask; i++) {
+			if (EMPTY != keys[i]) {
+				histo[Math.min(counts[i], MAX_HISTO)]++;
+			}
+		}
+
+		int threshold = 0;
+		long cold = histo[0];
+		while (cold < (size + 1) / 2 && threshold < MAX_HISTO) {
+			threshold++;
+			cold = cold + histo[threshold];
+		}
+		if (MAX_HISTO == threshold) {
+			threshold = Integer.MAX_VALUE;
+		}
+
+		int i = 0;
+		while (i <= mask) {
+			if (EMPTY != keys[i] && counts[i] <= threshold) {
+				sink.emit(keys[i], counts[i]);
+				emitted++;
+				// an entry shifted back into i is checked again
+				remove(i);
+			} else {
+				i++;
+			}
+		}
+		flushes++;
+	}
+
+	/***
+	 * emit and remove all the entries
+	 */
+	public void flush() throws IOException {
+		for (int i=0; i<=mask; i++) {
+			if (EMPTY != keys[i]) {
+				sink.emit(keys[i], counts[i]);
+				emitted++;
+				keys[i] = EMPTY;
+				counts[i] = 0;
+			}
+		}
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getFlushes() {
+		return flushes;
+	}
+
+	public long getEmitted() {
+		return emitted;
+	}
+}
@@ -0,0 +1,242 @@
+package HiBench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.filecache.DistributedCache;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.Counters;
+import org.apache.hadoop.mapred.FileInputFormat;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.InputSplit;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Mapper;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.mapred.TaskAttemptID;
+import org.apache.hadoop.util.ReflectionUtils;
+
+/***
+ * Runs a map-only generator job inside the client JVM, by a pool of threads.
+ *
+ * Each line of the job input (the dummy slot file) is handled as one map task
+ * as NLineInputFormat does: the configured mapper is fed with that line, and
+ * its output goes through the configured OutputFormat into part-NNNNN, where
+ * NNNNN is the line number. Each slot gets its own mapper, configured with
+ * its task id and partition and closed when the slot is done as MapRunner
+ * does, and the distributed cache files are copied to a local directory which
+ * is published to the mappers by Utils.LOCAL_CACHE_DIR.
+ *
+ * For a given seed the output records are the same as the mapreduce ones.
+ */
+public class LocalEngine {
+
+	private static final Log log = LogFactory.getLog(LocalEngine.class.getName());
+
+	private static final String LOCAL_JOB_ID = "local";
+
+	private int threads;
+
+	LocalEngine(int threads) {
+		this.threads = threads;
+	}
+
+	private static class LocalReporter implements Reporter {
+
+		private Counters counters = new Counters();
+
+		public void progress() {}
+
+		public void setStatus(String status) {}
+
+		public Counters.Counter getCounter(Enum<?> name) {
+			return counters.findCounter(name);
+		}
+
+		public Counters.Counter getCounter(String group, String name) {
+			return counters.findCounter(group, name);
+		}
+
+		public void incrCounter(Enum<?> key, long amount) {
+			counters.incrCounter(key, amount);
+		}
+
+		public void incrCounter(String group, String counter, long amount) {
+			counters.incrCounter(group, counter, amount);
+		}
+
+		public InputSplit getInputSplit() throws UnsupportedOperationException {
+			throw new UnsupportedOperationException("no input split in local engine");
+		}
+	}
+
+	private static class SlotTask implements Callable<Counters> {
+
+		private JobConf job;
+		private int partition;
+		private long offset;
+		private String line;
+
+		SlotTask(JobConf job, int partition, long offset, String line) {
+			this.job = job;
+			this.partition = partition;
+			this.offset = offset;
+			this.line = line;
+		}
+
+		@SuppressWarnings("unchecked")
+		public Counters call() throws Exception {
+
+			JobConf tjob = new JobConf(job);
+			TaskAttemptID attempt =
+					new TaskAttemptID(LOCAL_JOB_ID, 1, true, partition, 0);
+			tjob.set("mapred.task.id", attempt.toString());
+			tjob.setInt("mapred.task.partition", partition);
+
+			LocalReporter reporter = new LocalReporter();
+			Path out = FileOutputFormat.getOutputPath(tjob);
+			FileSystem fs = out.getFileSystem(tjob);
+
+			final RecordWriter<Object, Object> writer =
+					tjob.getOutputFormat().getRecordWriter(fs, tjob, getPartName(partition), reporter);
+			OutputCollector<Object, Object> collector = new OutputCollector<Object, Object>() {
+				public void collect(Object key, Object value) throws IOException {
+					writer.write(key, value);
+				}
+			};
+
+			Mapper<LongWritable, Text, Object, Object> mapper =
+					ReflectionUtils.newInstance(tjob.getMapperClass(), tjob);
+			try {
+				mapper.map(new LongWritable(offset), new Text(line), collector, reporter);
+			} finally {
+				mapper.close();
+			}
+			writer.close(reporter);
+
+			// commit the task output as FileOutputCommitter does
+			Path taskdir = new Path(new Path(out, "_temporary"), "_" + attempt.toString());
+			if (fs.exists(taskdir)) {
+				for (FileStatus status : fs.listStatus(taskdir)) {
+					fs.rename(status.getPath(), new Path(out, status.getPath().getName()));
+				}
+				fs.delete(taskdir, true);
+			}
+			return reporter.counters;
+		}
+	}
+
+	private static String getPartName(int partition) {
+		return "part-" + String.format("%05d", partition);
+	}
+
+	/***
+	 * copy the shared files into a local directory named after their symlinks
+	 */
+	private File localizeCacheFiles(JobConf job) throws IOException {
+
+		File dir = File.createTempFile("hibench-", "-cache");
+		dir.delete();
+		dir.mkdirs();
+
+		URI[] uris = DistributedCache.getCacheFiles(job);
+		if (null != uris) {
+			StringBuffer locals = new StringBuffer();
+			for (URI uri : uris) {
+				Path src = new Path(uri.getScheme(), uri.getAuthority(), uri.getPath());
+				String name = (null != uri.getFragment()) ? uri.getFragment() : src.getName();
+				File dst = new File(dir, name);
+
+				FileSystem fs = src.getFileSystem(job);
+				fs.copyToLocalFile(src, new Path(dst.getAbsolutePath()));
+
+				if (locals.length() > 0) {
+					locals.append(",");
+				}
+				locals.append(dst.getAbsolutePath());
+			}
+			DistributedCache.setLocalFiles(job, locals.toString());
+		}
+		job.set(Utils.LOCAL_CACHE_DIR, dir.getAbsolutePath());
+
+		return dir;
+	}
+
+	private List<String> readSlots(JobConf job) throws IOException {
+
+		List<String> lines = new ArrayList<String>();
+		for (Path input : FileInputFormat.getInputPaths(job)) {
+			FileSystem fs = input.getFileSystem(job);
+			BufferedReader br = new BufferedReader(new InputStreamReader(fs.open(input), "UTF-8"));
+			String line = null;
+			while ((line = br.readLine()) != null) {
+				lines.add(line);
+			}
+			br.close();
+		}
+		return lines;
+	}
+
+	public Counters runJob(JobConf job) throws IOException {
+
+		log.info("Running Job locally: " + job.getJobName() + " with " + threads + " threads");
+		long start = System.currentTimeMillis();
+
+		File cachedir = localizeCacheFiles(job);
+
+		Path out = FileOutputFormat.getOutputPath(job);
+		FileSystem fs = out.getFileSystem(job);
+		fs.mkdirs(new Path(out, "_temporary"));
+
+		List<String> slots = readSlots(job);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<Counters>> results = new ArrayList<Future<Counters>>();
+		long offset = 0;
+		for (int i=0; i<slots.size(); i++) {
+			results.add(pool.submit(new SlotTask(job, i, offset, slots.get(i))));
+			offset = offset + slots.get(i).length() + 1;
+		}
+		pool.shutdown();
+
+		Counters counters = new Counters();
+		try {
+			for (Future<Counters> result : results) {
+				counters.incrAllCounters(result.get());
+			}
+		} catch (InterruptedException e) {
+			throw new IOException("Local job " + job.getJobName() + " interrupted", e);
+		} catch (ExecutionException e) {
+			pool.shutdownNow();
+			throw new IOException("Local job " + job.getJobName() + " failed", e.getCause());
+		} finally {
+			FileUtil.fullyDelete(cachedir);
+		}
+
+		fs.delete(new Path(out, "_temporary"), true);
+		fs.create(new Path(out, "_SUCCESS")).close();
+
+		log.info("Finished local job " + job.getJobName() + " in "
+				+ (System.currentTimeMillis() - start) + " ms, "
+				+ counters.getCounter(HiBench.Counters.BYTES_DATA_GENERATED) + " bytes generated");
+		log.info("Counters: " + counters.makeCompactString());
+		return counters;
+	}
+}
@@ -4,10 +4,9 @@ import java.io.IOException;
 import java.net.URISyntaxException;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Map.Entry;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -22,13 +21,13 @@ import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileOutputFormat;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
-import org.apache.hadoop.mapred.MapFileOutputFormat;
 import org.apache.hadoop.mapred.MapReduceBase;
 import org.apache.hadoop.mapred.Mapper;
 import org.apache.hadoop.mapred.OutputCollector;
 import org.apache.hadoop.mapred.Reducer;
 import org.apache.hadoop.mapred.Reporter;
 import org.apache.hadoop.mapred.lib.NLineInputFormat;
+import org.apache.hadoop.mapred.lib.NullOutputFormat;
 import org.apache.nutch.crawl.CrawlDatum;
 import org.apache.nutch.crawl.Inlink;
 import org.apache.nutch.crawl.Inlinks;
@@ -44,8 +43,8 @@ public class NutchData {
 
 	private static final Log log = LogFactory.getLog(NutchData.class.getName());
 
-	public static final int CACHE_REF_ITEM_LENGTH = 10;
-	public static final int CACHE_REF_SET_SIZE = 200 * 12500;
+	public static final int CACHE_REF_ITEM_LENGTH = 64;
+	public static final long CACHE_REF_BUFFER_BYTES = 64L * 1024 * 1024;
 	public static final int CACHE_REF_THRESHOLD = 4;
 
 	private static final String LINKDB_DIR_NAME = "linkdb";
@@ -59,12 +58,42 @@ public class NutchData {
 	private static final String URLS_DIR_NAME = "urls";
 	private Path segment = null;
 
+	/***
+	 * How links get the urls of the pages they point to:
+	 * 		table: look the urls up in the url files written by the urls job,
+	 * 			   shared with all the tasks (original)
+	 * 		page:  re-create the url of each page from its page id, see
+	 * 			   HtmlCore.pageUrlText(), no url files are written nor read
+	 */
+	private static final String PAGE_URL_PARAM_NAME = "nutch.page.urls";
+	private static final String REF_BUFFER_PARAM_NAME = "nutch.refs.buffer.bytes";
+	private static final String TABLE_URLS_MODE = "table";
+	private static final String PAGE_URLS_MODE = "page";
+	private String umode = TABLE_URLS_MODE;
+
 	NutchData(DataOptions options) {
 		this.options = options;
 		parseArgs(options.getRemainArgs());
 	}
 	
-	private void parseArgs(String[] args) {}
+	private void parseArgs(String[] args) {
+
+		for (int i=0; i<args.length; i++) {
+			if ("-umode".equals(args[i])) {
+				umode = args[++i].toLowerCase();
+				if (!TABLE_URLS_MODE.equals(umode) && !PAGE_URLS_MODE.equals(umode)) {
+					DataOptions.printUsage("Unknown nutch urls mode -- " + umode + "!!!");
+					System.exit(-1);
+				}
+			} else {
+				DataOptions.printUsage("Unknown nutch data arguments -- " + args[i] + "!!!");
+			}
+		}
+	}
+
+	private boolean isPageUrls() {
+		return PAGE_URLS_MODE.equals(umode);
+	}
 	
 	private static class CreateUrlHash extends MapReduceBase implements
 	Mapper<LongWritable, Text, LongWritable, Text> {
@@ -74,12 +103,14 @@ public class NutchData {
 		private Path workdir;
 		private HtmlCore generator;
 		private JobConf job;
+		private boolean pageUrls;
 
 		public void configure(JobConf job) {
 
 			try {
 				workdir = new Path(job.get(NUTCH_WORK_DIR_PARAM_NAME));
 				generator = new HtmlCore(job);
+				pageUrls = job.getBoolean(PAGE_URL_PARAM_NAME, false);
 				this.job = job;
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
@@ -116,11 +147,17 @@ public class NutchData {
 						new SequenceFile.Writer(fs, job, generate, Text.class, CrawlDatum.class);
 				
 				CrawlDatum datum = new CrawlDatum();
+				Text textUrl = new Text();
 				
 				long i = slotId - 1;
 				while (i < generator.totalpages) {
 					key.set(i);
-					Text textUrl = generator.nextUrlText();
+					generator.firePage(i);
+					if (pageUrls) {
+						generator.pageUrlText(i, textUrl);
+					} else {
+						textUrl = generator.nextUrlText();
+					}
 					
 					if (i < generator.pages) {
 						datum.setStatus(CrawlDatum.STATUS_FETCH_SUCCESS);
@@ -156,28 +193,28 @@ public class NutchData {
 	private static class CombineReferences extends MapReduceBase implements
 	Reducer<Text, References, Text, References> {
 
+		private References sum = new References();
+
 		@Override
 		public void reduce(Text key, Iterator<References> values,
 				OutputCollector<Text, References> output, Reporter reporter)
 				throws IOException {
-			
-			References sum = null;
+
+			// values are deserialized into one reused instance, copy the ids
+			sum.len = 0;
 			while (values.hasNext()) {
 				References links = values.next();
 				if (links.len > 0) {
-					if (null == sum) {
-						sum = links;
-					} else {
-						long[] ids = new long[links.len + sum.len];
-						int j = 0;
-						for (int i=0; i<sum.len; i++) ids[j++] = sum.refs[i];
-						for (int i=0; i<links.len; i++) ids[j++] = links.refs[i];
-						sum = new References(ids.length, ids);
-					}
+					sum.append(links);
 				} else {
 					output.collect(key, links);
 				}
 			}
+			if (sum.len > 0) {
+				// sorted ids take less space once delta encoded
+				Arrays.sort(sum.refs, 0, sum.len);
+				output.collect(key, sum);
+			}
 		}
 	}
 	
@@ -187,28 +224,45 @@ public class NutchData {
 //		private static final Log log = LogFactory.getLog(CreateLinks.class.getName());
 		
 		private HtmlCore generator;
-		private IndexedMapFile indexedUrls;
+		private IndexedUrls indexedUrls;
+		private Text purl;
 		private String segName;
 		private long[] cost;
+		private References olinks = new References();
+		private References ilinks = new References();
+		private Throttle throttle;
 
 		public void configure(JobConf job) {
 
 			try {
 				generator = new HtmlCore(job);
 				
-				indexedUrls = Utils.getSharedMapFile(URLS_DIR_NAME, job);
+				if (job.getBoolean(PAGE_URL_PARAM_NAME, false)) {
+					purl = new Text();
+				} else {
+					indexedUrls = Utils.getSharedUrls(URLS_DIR_NAME, job);
+				}
 
 				int pid = job.getInt("mapred.task.partition", 0);
 				generator.fireRandom(pid * 1000 + 1);
 				segName = job.get(Nutch.SEGMENT_NAME_KEY);
 				
 				cost = new long[6];
+				throttle = Throttle.get(job);
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
 		}
 
+		private Text url(long id) throws IOException {
+			if (null == indexedUrls) {
+				generator.pageUrlText(id, purl);
+				return purl;
+			}
+			return indexedUrls.get(id);
+		}
+
 		@Override
 		public void reduce(Text key, Iterator<References> values,
 				OutputCollector<Text, NutchParse> output, Reporter reporter)
@@ -219,24 +273,22 @@ public class NutchData {
 			long[] start = new long[7];
 			
 			start[0] = d.getTime();
-			References olinks = null;
-			References ilinks = null;
+			boolean crawled = false;
+			olinks.len = 0;
+			ilinks.len = 0;
 			while (values.hasNext()) {
 				References links = values.next();
 				if (links.len > 0) {
-					if (null == ilinks) {
-						ilinks = links;
-					} else {
-						long[] ids = new long[links.len + ilinks.len];
-						int j = 0;
-						for (int i=0; i<ilinks.len; i++) ids[j++] = ilinks.refs[i];
-						for (int i=0; i<links.len; i++) ids[j++] = links.refs[i];
-						ilinks = new References(ids.length, ids);
-					}
+					ilinks.append(links);
 				} else {
-					olinks = links;
+					olinks.copy(links);
+					crawled = true;
 				}
 			}
+			if (!crawled) {
+				// an external page, only linked to, is not in the segment
+				return;
+			}
 //			log.info("1> olinks & ilinks ready ...");
 			d = new Date();
 			start[1] = d.getTime();
@@ -249,7 +301,7 @@ public class NutchData {
 			
 			Outlink[] outlinks = new Outlink[-olinks.len];
 			for (int i=0; i<-olinks.len; i++) {
-				outlinks[i] = new Outlink(indexedUrls.get(olinks.refs[i]).toString());
+				outlinks[i] = new Outlink(url(olinks.refs[i]).toString());
 			}
 			d = new Date();
 			start[3] = d.getTime();
@@ -265,17 +317,18 @@ public class NutchData {
 			start[4] = d.getTime();
 			
 			Inlinks inlinks = new Inlinks();
-			if (null != ilinks) {
-				for (int i=0; i<ilinks.len; i++) {
-					inlinks.add(new Inlink(indexedUrls.get(ilinks.refs[i]).toString()));
-				}
-			}			
+			for (int i=0; i<ilinks.len; i++) {
+				inlinks.add(new Inlink(url(ilinks.refs[i]).toString()));
+			}
 //			log.info("4> inlinks ready ...");
 			d = new Date();
 			start[5] = d.getTime();
 			
 			NutchParse parse = new NutchParse(inlinks, text, data);
 			output.collect(key, parse);
+			if (null != throttle) {
+				throttle.acquire(1, txtContent[0].length() + txtContent[1].length());
+			}
 
 //			log.info("5> output finished ...");
 			d = new Date();
@@ -299,16 +352,42 @@ public class NutchData {
 		private static final Log log = LogFactory.getLog(CreateNutchPages.class.getName());
 		
 		private HtmlCore generator;
-		IndexedMapFile indexedUrls;
+		IndexedUrls indexedUrls;
+		private Text purl;
+		private OutputCollector<Text, References> myout;
+		private References froms;
+		private ReferenceTable hash;
 
 		public void configure(JobConf job) {
 			try {
 				generator = new HtmlCore(job);
-				indexedUrls = Utils.getSharedMapFile(URLS_DIR_NAME, job);
+				if (job.getBoolean(PAGE_URL_PARAM_NAME, false)) {
+					purl = new Text();
+				} else {
+					indexedUrls = Utils.getSharedUrls(URLS_DIR_NAME, job);
+				}
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
 			}
+
+			froms = new References();
+			long bytes = job.getLong(REF_BUFFER_PARAM_NAME, CACHE_REF_BUFFER_BYTES);
+			hash = new ReferenceTable(bytes, CACHE_REF_ITEM_LENGTH, new ReferenceTable.Sink() {
+				public void emit(long id, long[] refs, int len) throws IOException {
+					froms.set(len, refs);
+					myout.collect(url(id), froms);
+				}
+			});
+			log.info("reference table: " + ReferenceTable.getBytes(bytes) + " bytes");
+		}
+
+		private Text url(long id) throws IOException {
+			if (null == indexedUrls) {
+				generator.pageUrlText(id, purl);
+				return purl;
+			}
+			return indexedUrls.get(id);
 		}
 
 		@Override
@@ -316,37 +395,21 @@ public class NutchData {
 				OutputCollector<Text, References> output, Reporter reporter)
 				throws IOException {
 			
+			myout = output;
 			int slotId = Integer.parseInt(value.toString().trim());
 			generator.fireRandom(slotId);
 			
-			HashMap<Long, References> hash = new HashMap<Long, References>();
 			try {
 				long i = slotId - 1;
 				while (i < generator.pages) {
 					
+					generator.firePage(i);
 					References olinks = generator.genPageLinks();
 					
 					for (int j=0; j<-olinks.len; j++) {
-						long to = olinks.refs[j];
-						References froms = hash.get(to);
-						if (null != froms) {
-							if (froms.len == froms.refs.length) {
-								output.collect(indexedUrls.get(to), froms);
-								froms.len = 0;
-							}
-						} else {
-							if (hash.size() > CACHE_REF_SET_SIZE) {
-								for (Entry<Long, References> entry : hash.entrySet()) {
-									output.collect(indexedUrls.get(entry.getKey()), entry.getValue());
-								}
-								hash.clear();
-							}
-							froms = new References(0, new long[CACHE_REF_ITEM_LENGTH]);
-							hash.put(to, froms);
-						}
-						froms.refs[froms.len++] = i;
+						hash.add(olinks.refs[j], i);
 					}
-					output.collect(indexedUrls.get(i), olinks);
+					output.collect(url(i), olinks);
 					
 					if (0==((i / generator.slots) % 10000)) {
 						log.info("still running: " + i + " of " + generator.pages);
@@ -355,11 +418,12 @@ public class NutchData {
 					i = i + generator.slots;
 				}
 				
-				for (Entry<Long, References> entry : hash.entrySet()) {
-					output.collect(indexedUrls.get(entry.getKey()), entry.getValue());
+				hash.flush();
+				log.info("reference lists: " + hash.getEmitted() + " emitted, "
+						+ hash.getFlushes() + " partial flushes");
+				if (null != indexedUrls) {
+					indexedUrls.close();
 				}
-				hash.clear();
-				indexedUrls.close();
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -373,10 +437,13 @@ public class NutchData {
 		job.setLong("pages", options.getNumPages() );
 		job.setLong("slotpages", options.getNumSlotPages());
 
+		Utils.shareRandomOptions(options, job);
 		Utils.shareLinkZipfCore(options, job);
 		Utils.shareWordZipfCore(options, job);
+		Throttle.share(options, job);
 		
 		job.set(NUTCH_WORK_DIR_PARAM_NAME , options.getResultPath().toString());
+		job.setBoolean(PAGE_URL_PARAM_NAME, isPageUrls());
 		
 //		job.set(DataOptions.URL_MAP_NAME, paths.getPath(DataPaths.URLS).toString());
 	}
@@ -407,10 +474,15 @@ public class NutchData {
 
 		job.setMapOutputKeyClass(LongWritable.class);
 		job.setMapOutputValueClass(Text.class);
-		job.setOutputFormat(MapFileOutputFormat.class);
+		// the crawl datums are always written, the urls only in table mode
+		if (isPageUrls()) {
+			job.setOutputFormat(NullOutputFormat.class);
+		} else {
+			job.setOutputFormat(PackedUrlOutputFormat.class);
+		}
 		job.setOutputKeyClass(LongWritable.class);
 		job.setOutputValueClass(Text.class);
-		MapFileOutputFormat.setOutputPath(job, urls);
+		FileOutputFormat.setOutputPath(job, urls);
 		
 //		SequenceFileOutputFormat.setOutputPath(job, fout);
 /*		
@@ -422,7 +494,7 @@ public class NutchData {
 		log.info("Running Job: " +jobname);
 		log.info("Pages file " + dummy.getPath() + " as input");
 		log.info("Rankings file " + urls + " as output");
-		JobClient.runJob(job);
+		Utils.runJob(job, options);
 		log.info("Finished Running Job: " + jobname);
 
 		log.info("Cleaning temp files...");
@@ -435,7 +507,9 @@ public class NutchData {
 
 		JobConf job = new JobConf(NutchData.class);
 		
-		Utils.shareUrls(URLS_DIR_NAME, options, job);
+		if (!isPageUrls()) {
+			Utils.shareUrls(URLS_DIR_NAME, options, job);
+		}
 		Utils.shareDict(options, job);
 		
 		setNutchOptions(job);
@@ -474,7 +548,7 @@ public class NutchData {
 		log.info("Running Job: " + jobname);
 		log.info("Pages file " + dummy.getPath() + " as input");
 		log.info("Rankings file " + segment + " as output");
-		JobClient.runJob(job);
+		Utils.runJob(job, options);
 		log.info("Finished Running Job: " + jobname);
 
 		log.info("Cleaning temp files...");
@@ -488,7 +562,8 @@ public class NutchData {
 		Utils.checkHdfsPath(options.getResultPath(), true);
 		Utils.checkHdfsPath(options.getWorkPath(), true);
 		
-		int words = RawData.putDictToHdfs(new Path(options.getWorkPath(), HtmlCore.getDictName()), options.getNumWords());
+		int words = RawData.putDictToHdfs(new Path(options.getWorkPath(), HtmlCore.getDictName()), options.getNumWords(),
+				options.getCachePath());
 		options.setNumWords(words);
 		
 		Utils.serialLinkZipf(options);
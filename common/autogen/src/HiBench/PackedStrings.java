@@ -0,0 +1,219 @@
+package HiBench;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+
+/***
+ * Read-only list of strings, packed in one file and memory mapped, used to
+ * share the word dictionary and the page urls with the generator tasks.
+ *
+ * File layout:
+ * 		[utf-8 bytes of all the entries]
+ * 		[int offsets of the entries, count + 1 of them]
+ * 		[long base][int count]
+ *
+ * Entry i is the one of key (base + i * stride), where stride is known by
+ * the user of the file: 1 for the dictionary, the slots number for the urls.
+ * The entries are never copied to the heap unless asked for, and the file
+ * pages are shared by all the task JVMs mapping it on a node.
+ *
+ * A reader is not thread safe, each thread should open its own.
+ */
+public class PackedStrings {
+
+	private static final int TRAILER_BYTES =
+			HtmlCore.LONG_BYTE + HtmlCore.INT_BYTE;
+
+	private ByteBuffer buffer;
+	private ByteBuffer view;		// for bulk reads, its position is moved
+	private int offsets;
+	private int count;
+	private long base;
+	private byte[] scratch = new byte[256];
+
+	public PackedStrings(File file) throws IOException {
+
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			long size = raf.length();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("packed file " + file + " too large to map: " + size);
+			}
+			if (size < TRAILER_BYTES) {
+				throw new IOException("packed file " + file + " truncated: " + size);
+			}
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size);
+			view = buffer.duplicate();
+
+			count = buffer.getInt((int) size - HtmlCore.INT_BYTE);
+			base = buffer.getLong((int) size - TRAILER_BYTES);
+			offsets = (int) size - TRAILER_BYTES - (count + 1) * HtmlCore.INT_BYTE;
+		} finally {
+			// the mapping stays valid after the channel is closed
+			raf.close();
+		}
+	}
+
+	public int size() {
+		return count;
+	}
+
+	public long getBase() {
+		return base;
+	}
+
+	private int offset(int i) {
+		return buffer.getInt(offsets + i * HtmlCore.INT_BYTE);
+	}
+
+	public int length(int i) {
+		return offset(i + 1) - offset(i);
+	}
+
+	/***
+	 * copy the utf-8 bytes of entry i into the internal scratch array
+	 */
+	private int load(int i) {
+		int start = offset(i);
+		int len = offset(i + 1) - start;
+		if (len > scratch.length) {
+			scratch = new byte[Math.max(len, scratch.length * 2)];
+		}
+		for (int j=0; j<len; j++) {
+			scratch[j] = buffer.get(start + j);
+		}
+		return len;
+	}
+
+	public String get(int i) {
+		int len = load(i);
+		try {
+			return new String(scratch, 0, len, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	public void get(int i, Text text) {
+		text.set(scratch, 0, load(i));
+	}
+
+	public void appendTo(int i, TextBuffer tb) {
+		int start = offset(i);
+		view.position(start);
+		tb.append(view, offset(i + 1) - start);
+	}
+
+	/***
+	 * append entry i to sb, ascii entries are appended without any
+	 * intermediate String
+	 */
+	public StringBuffer appendTo(int i, StringBuffer sb) {
+		int start = offset(i);
+		int end = offset(i + 1);
+		for (int j=start; j<end; j++) {
+			if (buffer.get(j) < 0) {
+				return sb.append(get(i));
+			}
+		}
+		for (int j=start; j<end; j++) {
+			sb.append((char) buffer.get(j));
+		}
+		return sb;
+	}
+
+	/***
+	 * read the base key of a packed file without mapping it
+	 */
+	public static long readBase(FileSystem fs, Path path) throws IOException {
+		long size = fs.getFileStatus(path).getLen();
+		FSDataInputStream in = fs.open(path);
+		try {
+			in.seek(size - TRAILER_BYTES);
+			return in.readLong();
+		} finally {
+			in.close();
+		}
+	}
+
+	/***
+	 * read the number of entries of a packed file without mapping it
+	 */
+	public static int readCount(FileSystem fs, Path path) throws IOException {
+		long size = fs.getFileStatus(path).getLen();
+		FSDataInputStream in = fs.open(path);
+		try {
+			in.seek(size - HtmlCore.INT_BYTE);
+			return in.readInt();
+		} finally {
+			in.close();
+		}
+	}
+
+	/***
+	 * Streaming writer of a packed file, entries are appended in key order
+	 */
+	public static class Writer {
+
+		private DataOutputStream out;
+		private int[] offsets;
+		private int count;
+		private long pos;
+		private long base;
+
+		public Writer(OutputStream out) {
+			this.out = new DataOutputStream(out);
+			offsets = new int[1024];
+			count = 0;
+			pos = 0;
+			base = -1;
+		}
+
+		public void setBase(long base) {
+			this.base = base;
+		}
+
+		public void append(byte[] b, int off, int len) throws IOException {
+			if (pos + len > Integer.MAX_VALUE) {
+				throw new IOException("packed file too large, use more slots");
+			}
+			if (count + 1 == offsets.length) {
+				int[] noffsets = new int[offsets.length * 2];
+				System.arraycopy(offsets, 0, noffsets, 0, offsets.length);
+				offsets = noffsets;
+			}
+			out.write(b, off, len);
+			pos = pos + len;
+			offsets[++count] = (int) pos;
+		}
+
+		public void append(Text text) throws IOException {
+			append(text.getBytes(), 0, text.getLength());
+		}
+
+		public void append(String s) throws IOException {
+			byte[] b = s.getBytes("UTF-8");
+			append(b, 0, b.length);
+		}
+
+		public void close() throws IOException {
+			for (int i=0; i<=count; i++) {
+				out.writeInt(offsets[i]);
+			}
+			out.writeLong(base);
+			out.writeInt(count);
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,47 @@
+package HiBench;
+
+import java.io.IOException;
+
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileOutputFormat;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.RecordWriter;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.Progressable;
+
+/***
+ * Writes the <page id, url> records of a slot into a PackedStrings file.
+ * The ids of a slot must come in increasing order with the slots number
+ * as stride, the first id is kept as the base of the file.
+ */
+public class PackedUrlOutputFormat extends FileOutputFormat<LongWritable, Text> {
+
+	@Override
+	public RecordWriter<LongWritable, Text> getRecordWriter(FileSystem ignored,
+			JobConf job, String name, Progressable progress) throws IOException {
+
+		Path file = FileOutputFormat.getTaskOutputPath(job, name);
+		FileSystem fs = file.getFileSystem(job);
+		final PackedStrings.Writer writer = new PackedStrings.Writer(fs.create(file, progress));
+
+		return new RecordWriter<LongWritable, Text>() {
+
+			private boolean first = true;
+
+			public void write(LongWritable key, Text value) throws IOException {
+				if (first) {
+					writer.setBase(key.get());
+					first = false;
+				}
+				writer.append(value);
+			}
+
+			public void close(Reporter reporter) throws IOException {
+				writer.close();
+			}
+		};
+	}
+}
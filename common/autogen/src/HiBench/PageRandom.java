@@ -0,0 +1,63 @@
+package HiBench;
+
+import java.util.Random;
+
+/***
+ * Seekable random stream based on SplitMix64. seek(id) positions the stream
+ * at the start of the sub-stream of id, which only depends on the key given
+ * at construction and on id. So the random values of any page can be drawn
+ * directly, without drawing those of the pages before it.
+ *
+ * All the derived methods of Random (nextInt(n), nextGaussian, ...) work on
+ * top of next(bits).
+ */
+public class PageRandom extends Random {
+
+	private static final long serialVersionUID = -3587261042771296518L;
+
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+	private long key;
+	private long state;
+
+	public PageRandom(long key) {
+		super(key);
+		this.key = key;
+	}
+
+	private static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+
+	@Override
+	public synchronized void setSeed(long seed) {
+		// also resets the cached gaussian of Random
+		super.setSeed(seed);
+		state = seed;
+	}
+
+	/***
+	 * move to the start of the sub-stream of id
+	 */
+	public void seek(long id) {
+		setSeed(mix64(key + mix64(id * GOLDEN_GAMMA + GOLDEN_GAMMA)));
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public long nextLong() {
+		state = state + GOLDEN_GAMMA;
+		return mix64(state);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+}
@@ -10,6 +10,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileOutputFormat;
 import org.apache.hadoop.mapred.JobClient;
@@ -33,10 +34,28 @@ public class PagerankData {
 	private static final String EDGES_DIR_NAME = "edges";	
 	private boolean balance = false;  //	original PAGERANK_NODE_BALANCE
 
+	/***
+	 * Encoding of the generated vertices and edges:
+	 * 		string: Text built through String concatenation (original)
+	 * 		bytes:  same Text, with digits written into a reused byte buffer
+	 * 		binary: edges as <LongWritable, LongWritable> sequence file
+	 */
+	private static final String ENCODING_PARAM_NAME = "pagerank.encoding";
+	private static final String STRING_ENCODING = "string";
+	private static final String BYTES_ENCODING = "bytes";
+	private static final String BINARY_ENCODING = "binary";
+	private String encoding = STRING_ENCODING;
+
 	private String cdelim = "\t";
 
 	private Dummy dummy;
 
+	// first slot to create, above 1 when appending pages to existing data
+	private int first = 1;
+
+	// counters of the jobs run by generate()
+	private Counters counters = new Counters();
+
 	PagerankData(DataOptions options) {
 		this.options = options;
 		parseArgs(options.getRemainArgs());
@@ -50,35 +69,116 @@ public class PagerankData {
 				cdelim = args[++i];
 			} else if ("-pbalance".equals(args[i])) {
 				balance = true;
+			} else if ("-pencode".equals(args[i])) {
+				encoding = args[++i].toLowerCase();
+				if (!STRING_ENCODING.equals(encoding)
+						&& !BYTES_ENCODING.equals(encoding)
+						&& !BINARY_ENCODING.equals(encoding)) {
+					DataOptions.printUsage("Unknown pagerank encoding -- " + encoding + "!!!");
+					System.exit(-1);
+				}
 			} else {
 				DataOptions.printUsage("Unknown pagerank data arguments -- " + args[i] + "!!!");
 			}
 		}
 	}
 	
+	private DataManifest createManifest() {
+		DataManifest manifest = new DataManifest(options);
+		manifest.set("encoding", encoding);
+		manifest.set("delimiter", cdelim);
+		manifest.set("balance", balance);
+		return manifest;
+	}
+
+	/***
+	 * With -append, keep the complete slots of existing data created with
+	 * the same options and the same slot size: only the pages above them are
+	 * created, as the slots following them, the last one partly filled
+	 * being created again. Pages of the kept slots only link to the pages
+	 * existing when they were created.
+	 *
+	 * @return false if all the pages exist already
+	 */
+	private boolean checkAppend() throws IOException {
+
+		if (!options.isAppend()) {
+			return true;
+		}
+
+		DataManifest existing = DataManifest.read(options.getResultPath());
+		if (null == existing) {
+			log.info("No manifest of existing data, creating all the pages");
+			return true;
+		}
+
+		String key = existing.differs(createManifest(), "encoding", "delimiter", "balance");
+		long pages = existing.getLong(DataManifest.PAGES, 0);
+		if (null != key) {
+			log.info("Option " + key + " of existing data differs, creating all the pages");
+		} else if (balance) {
+			log.info("Balanced nodes can not be appended, creating all the pages");
+		} else if (pages > options.getNumPages()) {
+			log.info("Existing data has more pages, creating all the pages");
+		} else if (pages == options.getNumPages()) {
+			log.info("All the " + pages + " pages exist already");
+			return false;
+		} else {
+			long slotpages = existing.getLong(DataManifest.SLOT_PAGES, 0);
+			options.setNumSlotPages(slotpages);
+			first = (int) (pages / slotpages) + 1;
+			log.info("Appending pages " + ((first - 1) * slotpages) + " to " + options.getNumPages()
+					+ " as slots " + first + " to " + options.getNumMaps());
+		}
+		return true;
+	}
+
 	public void init() throws IOException {
 		
 		log.info("Initializing PageRank data generator...");
 		
-		Utils.checkHdfsPath(options.getResultPath(), true);
+		if (first > 1) {
+			DataManifest.delete(options.getResultPath());
+		} else {
+			Utils.checkHdfsPath(options.getResultPath(), true);
+		}
 		Utils.checkHdfsPath(options.getWorkPath(), true);
 
 		Utils.serialLinkZipf(options);
 
-		dummy = new Dummy(options.getWorkPath(), options.getNumMaps());
+		dummy = new Dummy(options.getWorkPath(), first, options.getNumMaps());
+	}
+
+	/***
+	 * output directory of a job, aside when appending, see moveOutput()
+	 */
+	private Path getOutputPath(String name) {
+		return new Path((first > 1) ? options.getWorkPath() : options.getResultPath(), name);
+	}
+
+	private void moveOutput(String name) throws IOException {
+		if (first > 1) {
+			// part i of the job is the one of slot first + i
+			Utils.moveParts(getOutputPath(name), new Path(options.getResultPath(), name), first - 1);
+		}
 	}
 
 	private void setPageRankNodesOptions(JobConf job) {
 		job.setLong("pages", options.getNumPages());
 		job.setLong("slotpages", options.getNumSlotPages());
+		job.set(ENCODING_PARAM_NAME, encoding);
+		Throttle.share(options, job);
 	}
 	
 	private void setPageRankLinksOptions(JobConf job) throws URISyntaxException {
 		job.setLong("pages", options.getNumPages());
 		job.setLong("slotpages", options.getNumSlotPages());
 		job.set("delimiter", cdelim);
+		job.set(ENCODING_PARAM_NAME, encoding);
 		
+		Utils.shareRandomOptions(options, job);
 		Utils.shareLinkZipfCore(options, job);
+		Throttle.share(options, job);
 	}
 	
 	public static class BalancedLinkNodesMapper extends MapReduceBase implements
@@ -114,15 +214,23 @@ public class PagerankData {
 	Mapper<LongWritable, Text, LongWritable, Text> {
 		
 		private long pages, slotpages;
+		private boolean stringEncoding;
+		private TextBuffer buffer;
+		private Text v;
+		private Throttle throttle;
 
 		private void getOptions(JobConf job) {
 			pages = job.getLong("pages", 0);
 			slotpages = job.getLong("slotpages", 0);
+			stringEncoding = STRING_ENCODING.equals(job.get(ENCODING_PARAM_NAME, STRING_ENCODING));
 		}
 
 		@Override
 		public void configure(JobConf job) {
 			getOptions(job);
+			buffer = new TextBuffer();
+			v = new Text();
+			throttle = Throttle.get(job);
 		}
 
 		@Override
@@ -132,12 +240,21 @@ public class PagerankData {
 			int slotId = Integer.parseInt(value.toString().trim());
 			long[] range = HtmlCore.getPageRange(slotId, pages, slotpages);
 			
+			long bytes = 0;
 			for (long i=range[0]; i<range[1]; i++) {
 				key.set(i);
-				Text v = new Text(Long.toString(i));
+				if (stringEncoding) {
+					v = new Text(Long.toString(i));
+				} else {
+					buffer.reset().append(i).writeTo(v);
+				}
 				output.collect(key, v);
-				reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, 8+v.getLength());
+				bytes = bytes + 8 + v.getLength();
+				if (null != throttle) {
+					throttle.acquire(1, 8 + v.getLength());
+				}
 			}
+			reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, bytes);
 		}
 	}
 
@@ -145,7 +262,7 @@ public class PagerankData {
 
 		log.info("Creating PageRank nodes...", null);
 
-		Path fout = new Path(options.getResultPath(), VERTICALS_DIR_NAME);
+		Path fout = getOutputPath(VERTICALS_DIR_NAME);
 		
 		JobConf job = new JobConf(PagerankData.class);
 		String jobname = "Create pagerank nodes";
@@ -199,7 +316,8 @@ public class PagerankData {
 		log.info("Running Job: " +jobname);
 		log.info("Dummy file " + dummy.getPath() + " as input");
 		log.info("Vertices file " + fout + " as output");
-		JobClient.runJob(job);
+		counters.incrAllCounters(Utils.runJob(job, options));
+		moveOutput(VERTICALS_DIR_NAME);
 		log.info("Finished Running Job: " + jobname);
 	}
 
@@ -210,11 +328,17 @@ public class PagerankData {
 		private HtmlCore html;
 		private long pages, slotpages;
 		private String delim;
+		private boolean stringEncoding;
+		private TextBuffer buffer;
+		private byte[] bdelim;
+		private Text v;
+		private Throttle throttle;
 
 		private void getOptions(JobConf job) {
 			pages = job.getLong("pages", 0);
 			slotpages = job.getLong("slotpages", 0);
 			delim = job.get("delimiter");
+			stringEncoding = STRING_ENCODING.equals(job.get(ENCODING_PARAM_NAME, STRING_ENCODING));
 		}
 
 		public void configure(JobConf job) {
@@ -223,6 +347,10 @@ public class PagerankData {
 				html = new HtmlCore(job);
 				
 				getOptions(job);
+				buffer = new TextBuffer();
+				bdelim = delim.getBytes("UTF-8");
+				v = new Text();
+				throttle = Throttle.get(job);
 			} catch (IOException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -242,16 +370,98 @@ public class PagerankData {
 			 */
 			for (long i=range[0]; i<range[1]; i++) {
 				key.set(i);
-				String from = key.toString(), to;
+				html.firePage(i);
+
+				if (stringEncoding) {
+					String from = key.toString(), to;
+					
+					long[] linkids = html.genPureLinkIds();
+					for (int j=0; j<linkids.length; j++) {
+						to = Long.toString(linkids[j]);
+						Text v = new Text(from + delim + to);
+						output.collect(key, v);
+						reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, 8+v.getLength());
+						if (null != throttle) {
+							throttle.acquire(1, 8 + v.getLength());
+						}
+					}
+					reporter.incrCounter(HiBench.Counters.EDGES_GENERATED, linkids.length);
+				} else {
+					buffer.reset().append(i).append(bdelim);
+					int prefix = buffer.length();
+
+					int links = html.nextPureLinkIds();
+					long[] linkids = html.getLinkIds();
+					long bytes = 0;
+					for (int j=0; j<links; j++) {
+						buffer.truncate(prefix).append(linkids[j]).writeTo(v);
+						output.collect(key, v);
+						bytes = bytes + 8 + v.getLength();
+					}
+					reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, bytes);
+					reporter.incrCounter(HiBench.Counters.EDGES_GENERATED, links);
+					if (null != throttle) {
+						throttle.acquire(links, bytes);
+					}
+				}
 				
-				long[] linkids = html.genPureLinkIds();
-				for (int j=0; j<linkids.length; j++) {
-					to = Long.toString(linkids[j]);
-					Text v = new Text(from + delim + to);
+				if (0==(i % 10000)) {
+					log.info("still running: " + (i - range[0]) + " of " + slotpages);
+				}
+			}
+		}
+	}
+
+	/***
+	 * Mapper to create edges as binary <from, to> pairs
+	 */
+	public static class DummyToBinaryLinksMapper extends MapReduceBase implements
+	Mapper<LongWritable, Text, LongWritable, LongWritable> {
+
+		private static final Log log = LogFactory.getLog(DummyToBinaryLinksMapper.class.getName());
+		private HtmlCore html;
+		private long pages, slotpages;
+		private LongWritable v;
+		private Throttle throttle;
+
+		public void configure(JobConf job) {
+
+			try {
+				html = new HtmlCore(job);
+				pages = job.getLong("pages", 0);
+				slotpages = job.getLong("slotpages", 0);
+				v = new LongWritable();
+				throttle = Throttle.get(job);
+			} catch (IOException e) {
+				// TODO Auto-generated catch block
+				e.printStackTrace();
+			}
+		}
+
+		public void map(LongWritable key, Text value, OutputCollector<LongWritable, LongWritable> output,
+				Reporter reporter) throws IOException {
+
+			int slotId = Integer.parseInt(value.toString().trim());
+			html.fireRandom(slotId);
+
+			long[] range = HtmlCore.getPageRange(slotId, pages, slotpages);
+
+			for (long i=range[0]; i<range[1]; i++) {
+				key.set(i);
+				html.firePage(i);
+
+				int links = html.nextPureLinkIds();
+				long[] linkids = html.getLinkIds();
+				for (int j=0; j<links; j++) {
+					v.set(linkids[j]);
 					output.collect(key, v);
-					reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, 8+v.getLength());
 				}
-				
+				reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED, 16 * links);
+				reporter.incrCounter(HiBench.Counters.EDGES_GENERATED, links);
+				if (null != throttle) {
+					throttle.acquire(links, 16 * links);
+				}
+
 				if (0==(i % 10000)) {
 					log.info("still running: " + (i - range[0]) + " of " + slotpages);
 				}
@@ -266,7 +476,7 @@ public class PagerankData {
 		JobConf job = new JobConf(PagerankData.class);
 		String jobname = "Create pagerank links";
 
-		Path fout = new Path(options.getResultPath(), EDGES_DIR_NAME);
+		Path fout = getOutputPath(EDGES_DIR_NAME);
 
 		job.setJobName(jobname);
 		setPageRankLinksOptions(job);
@@ -281,9 +491,14 @@ public class PagerankData {
 		FileInputFormat.setInputPaths(job, dummy.getPath());
 		job.setInputFormat(NLineInputFormat.class);
 
-		job.setMapperClass(DummyToPageRankLinksMapper.class);
+		if (BINARY_ENCODING.equals(encoding)) {
+			job.setOutputValueClass(LongWritable.class);
+			job.setMapperClass(DummyToBinaryLinksMapper.class);
+		} else {
+			job.setMapperClass(DummyToPageRankLinksMapper.class);
+		}
 
-		if (options.isSequenceOut()) {
+		if (options.isSequenceOut() || BINARY_ENCODING.equals(encoding)) {
 			job.setOutputFormat(SequenceFileOutputFormat.class);
 		} else {
 			job.setOutputFormat(TextOutputFormat.class);
@@ -300,19 +515,28 @@ public class PagerankData {
 		log.info("Running Job: " +jobname);
 		log.info("Dummy file " + dummy.getPath() + " as input");
 		log.info("Edges file " + fout + " as output");
-		JobClient.runJob(job);
+		counters.incrAllCounters(Utils.runJob(job, options));
+		moveOutput(EDGES_DIR_NAME);
 		log.info("Finished Running Job: " + jobname);
 	}
 
 	public void generate() throws IOException, URISyntaxException {
 		
 		log.info("Generating pageRank data files...");
+		if (!checkAppend()) {
+			return;
+		}
 		init();
 		createPageRankNodesDirectly();
 		createPageRankLinksDirectly();
+		createManifest().write(options.getResultPath());
 		closeGenerator();
 	}
 
+	Counters getCounters() {
+		return counters;
+	}
+
 	private void closeGenerator() throws IOException {
 
 		log.info("Closing pagerank data generator...");
@@ -0,0 +1,231 @@
+package HiBench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.mapred.Counters;
+
+/***
+ * Equivalence check of the pagerank encodings. It generates the same graph
+ * with -pencode string, bytes and binary by the local engine, decodes the
+ * binary edges back to the lines TextOutputFormat writes, and checks that
+ * the vertices and edges of each encoding are those of string, and that its
+ * counters agree with the records written: EDGES_GENERATED, the same for
+ * all the encodings, and BYTES_DATA_GENERATED, 8 bytes of key and the value
+ * of a text record, the same for string and bytes, or 16 bytes of a binary
+ * edge. It exits with -1 if any check fails.
+ *
+ * usage: PagerankEncodingCheck [-p <pages>] [-m <slots>] [-t <threads>]
+ */
+public class PagerankEncodingCheck {
+
+	private static final String[] ENCODINGS = { "string", "bytes", "binary" };
+	private static final int STRING = 0;
+	private static final int BINARY = 2;
+
+	private long pages = 20000;
+	private int slots = 12;
+	private int threads = 4;
+
+	private void parseArgs(String[] args) {
+		for (int i=0; i<args.length; i++) {
+			if ("-p".equals(args[i])) {
+				pages = Long.parseLong(args[++i]);
+			} else if ("-m".equals(args[i])) {
+				slots = Integer.parseInt(args[++i]);
+			} else if ("-t".equals(args[i])) {
+				threads = Integer.parseInt(args[++i]);
+			} else {
+				System.out.println("Unknown argument -- " + args[i] + "!!!");
+				System.exit(-1);
+			}
+		}
+	}
+
+	/***
+	 * lines of the part files of a job output, in part order, the records of
+	 * a binary edges file being written as TextOutputFormat would
+	 */
+	private static class Lines {
+
+		private FileSystem fs;
+		private Path[] parts;
+		private boolean binary;
+		private int next = 0;
+		private BufferedReader text;
+		private SequenceFile.Reader seq;
+		private LongWritable from = new LongWritable();
+		private LongWritable to = new LongWritable();
+
+		Lines(Path dir, boolean binary) throws IOException {
+			this.fs = dir.getFileSystem(new Configuration());
+			this.binary = binary;
+
+			List<Path> list = new ArrayList<Path>();
+			for (FileStatus status : fs.listStatus(dir)) {
+				if (status.getPath().getName().startsWith("part-")) {
+					list.add(status.getPath());
+				}
+			}
+			parts = list.toArray(new Path[list.size()]);
+			Arrays.sort(parts);
+		}
+
+		/***
+		 * @return the next line, null after the last one
+		 */
+		String next() throws IOException {
+			while (true) {
+				if (null != text) {
+					String line = text.readLine();
+					if (null != line) {
+						return line;
+					}
+					text.close();
+					text = null;
+				} else if (null != seq) {
+					if (seq.next(from, to)) {
+						return from + "\t" + from + "\t" + to;
+					}
+					seq.close();
+					seq = null;
+				} else if (next < parts.length) {
+					if (binary) {
+						seq = new SequenceFile.Reader(fs, parts[next++], fs.getConf());
+					} else {
+						text = new BufferedReader(new InputStreamReader(fs.open(parts[next++]), "UTF-8"));
+					}
+				} else {
+					return null;
+				}
+			}
+		}
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (null != files) {
+			for (File f : files) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+
+	/***
+	 * Compare the lines of dir with those of reference, and count the
+	 * records of dir and their bytes as the generator counts them
+	 *
+	 * @return records, bytes, and lines differing from those of reference
+	 */
+	private static long[] check(Path dir, Path reference, boolean binary, String name) throws IOException {
+
+		Lines lines = new Lines(dir, binary);
+		Lines expected = new Lines(reference, false);
+		long records = 0, bytes = 0, diffs = 0;
+		while (true) {
+			String line = lines.next();
+			String exp = expected.next();
+			if (null == line && null == exp) {
+				break;
+			}
+			if (null != line) {
+				records++;
+				bytes = bytes + (binary ? 16 : 8 + line.length() - line.indexOf('\t') - 1);
+			}
+			if (null == line || !line.equals(exp)) {
+				if (0 == diffs) {
+					System.out.println("  " + name + ": " + line + "\n  string: " + exp);
+				}
+				diffs++;
+			}
+		}
+		return new long[] { records, bytes, diffs };
+	}
+
+	private boolean run(File dir) throws Exception {
+
+		Path[] results = new Path[ENCODINGS.length];
+		Counters[] counters = new Counters[ENCODINGS.length];
+		long[] costs = new long[ENCODINGS.length];
+		for (int e=0; e<ENCODINGS.length; e++) {
+			DataOptions options = new DataOptions(new String[] {
+					"-t", "pagerank", "-p", Long.toString(pages), "-m", Integer.toString(slots),
+					"-b", new File(dir, ENCODINGS[e]).toURI().toString(),
+					"-engine", "local", "-threads", Integer.toString(threads),
+					"-pencode", ENCODINGS[e] });
+			PagerankData data = new PagerankData(options);
+			long start = System.nanoTime();
+			data.generate();
+			costs[e] = System.nanoTime() - start;
+			results[e] = options.getResultPath();
+			counters[e] = data.getCounters();
+		}
+
+		boolean ok = true;
+		for (int e=0; e<ENCODINGS.length; e++) {
+			long[] vertices = check(new Path(results[e], "vertices"),
+					new Path(results[STRING], "vertices"), false, ENCODINGS[e]);
+			long[] edges = check(new Path(results[e], "edges"),
+					new Path(results[STRING], "edges"), BINARY == e, ENCODINGS[e]);
+			long cedges = counters[e].getCounter(HiBench.Counters.EDGES_GENERATED);
+			long cbytes = counters[e].getCounter(HiBench.Counters.BYTES_DATA_GENERATED);
+
+			System.out.println(ENCODINGS[e] + ": " + vertices[0] + " vertices, " + edges[0] + " edges"
+					+ ", " + vertices[2] + " different vertices, " + edges[2] + " different edges"
+					+ ", EDGES_GENERATED " + cedges + ", BYTES_DATA_GENERATED " + cbytes
+					+ ", " + (costs[e] / 1000000) + " ms");
+
+			List<String> failures = new ArrayList<String>();
+			if (0 != vertices[2] || 0 != edges[2]) {
+				failures.add("records differ from string");
+			}
+			if (cedges != edges[0]) {
+				failures.add("EDGES_GENERATED is not the " + edges[0] + " edges written");
+			}
+			if (cedges != counters[STRING].getCounter(HiBench.Counters.EDGES_GENERATED)) {
+				failures.add("EDGES_GENERATED differs from string");
+			}
+			if (cbytes != vertices[1] + edges[1]) {
+				failures.add("BYTES_DATA_GENERATED is not the " + (vertices[1] + edges[1]) + " bytes written");
+			}
+			if (BINARY != e && cbytes != counters[STRING].getCounter(HiBench.Counters.BYTES_DATA_GENERATED)) {
+				failures.add("BYTES_DATA_GENERATED differs from string");
+			}
+			for (String failure : failures) {
+				System.out.println("  FAILED: " + failure);
+			}
+			ok = ok && failures.isEmpty();
+		}
+		System.out.println(ok ? "OK" : "FAILED");
+		return ok;
+	}
+
+	public static void main(String[] args) throws Exception {
+
+		PagerankEncodingCheck check = new PagerankEncodingCheck();
+		check.parseArgs(args);
+
+		File dir = File.createTempFile("pagerank", "");
+		dir.delete();
+		dir.mkdirs();
+		boolean ok = false;
+		try {
+			ok = check.run(dir);
+		} finally {
+			delete(dir);
+		}
+		System.exit(ok ? 0 : -1);
+	}
+}
@@ -0,0 +1,262 @@
+package HiBench;
+
+import java.io.IOException;
+import java.rmi.server.UID;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CodecPool;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+
+/***
+ * Writer of Hive RCFile (columnar) files, without depending on Hive.
+ *
+ * Rows are buffered column by column into row groups of about
+ * hive.io.rcfile.record.buffer.size bytes. Each row group is written as:
+ * 		[record length][key length][stored key length][key]
+ * 		[column 0 bytes][column 1 bytes]...
+ * where the key holds the number of rows and, for each column, its stored
+ * and plain lengths plus the run-length encoded lengths of its cells. Each
+ * column is compressed on its own, so a reader skips the columns it does
+ * not project without decompressing them.
+ *
+ * Cells are stored as given, which for text fields is the encoding of
+ * ColumnarSerDe, the default SerDe of tables STORED AS RCFILE.
+ */
+public class RCFileWriter {
+
+	private static final byte[] MAGIC = new byte[] { 'S', 'E', 'Q', 6 };
+	private static final String KEY_CLASS = "org.apache.hadoop.hive.ql.io.RCFile$KeyBuffer";
+	private static final String VALUE_CLASS = "org.apache.hadoop.hive.ql.io.RCFile$ValueBuffer";
+	public static final String COLUMN_NUMBER_METADATA = "hive.io.rcfile.column.number";
+	public static final String BUFFER_SIZE_PARAM_NAME = "hive.io.rcfile.record.buffer.size";
+
+	private static final int SYNC_ESCAPE = -1;
+	private static final int SYNC_HASH_SIZE = 16;
+	private static final int SYNC_INTERVAL = 100 * (4 + SYNC_HASH_SIZE);
+
+	private FSDataOutputStream out;
+	private CompressionCodec codec;
+	private Compressor compressor;
+	private byte[] sync;
+	private long lastSyncPos;
+
+	private int columns;
+	private int bufferSize;
+	private int rows;
+	private int bufferedBytes;
+
+	private DataOutputBuffer[] values;		// cell bytes of each column
+	private DataOutputBuffer[] lengths;		// run-length encoded cell lengths
+	private int[] prevLength, runLength;
+
+	private DataOutputBuffer stored;		// compressed columns of a row group
+	private DataOutputBuffer keyBuffer, keyStored;
+	private int[] storedLength;
+
+	public RCFileWriter(FSDataOutputStream out, int columns, CompressionCodec codec,
+			Configuration conf) throws IOException {
+
+		this.out = out;
+		this.columns = columns;
+		this.codec = codec;
+		bufferSize = conf.getInt(BUFFER_SIZE_PARAM_NAME, 4 * 1024 * 1024);
+
+		values = new DataOutputBuffer[columns];
+		lengths = new DataOutputBuffer[columns];
+		prevLength = new int[columns];
+		runLength = new int[columns];
+		for (int i=0; i<columns; i++) {
+			values[i] = new DataOutputBuffer();
+			lengths[i] = new DataOutputBuffer();
+			prevLength[i] = -1;
+		}
+		stored = new DataOutputBuffer();
+		keyBuffer = new DataOutputBuffer();
+		keyStored = new DataOutputBuffer();
+		storedLength = new int[columns];
+
+		if (null != codec) {
+			compressor = CodecPool.getCompressor(codec);
+		}
+
+		sync = createSync();
+		writeHeader();
+	}
+
+	private static byte[] createSync() {
+		try {
+			MessageDigest digester = MessageDigest.getInstance("MD5");
+			digester.update((new UID() + "@" + System.currentTimeMillis()).getBytes());
+			return digester.digest();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private void writeHeader() throws IOException {
+		out.write(MAGIC);
+		Text.writeString(out, KEY_CLASS);
+		Text.writeString(out, VALUE_CLASS);
+		out.writeBoolean(null != codec);
+		out.writeBoolean(false);		// no block compression
+		if (null != codec) {
+			Text.writeString(out, codec.getClass().getName());
+		}
+
+		SequenceFile.Metadata metadata = new SequenceFile.Metadata();
+		metadata.set(new Text(COLUMN_NUMBER_METADATA), new Text(Integer.toString(columns)));
+		metadata.write(out);
+
+		out.write(sync);
+	}
+
+	private void appendCell(int column, byte[] b, int off, int len) throws IOException {
+		values[column].write(b, off, len);
+		if (prevLength[column] < 0) {
+			prevLength[column] = len;
+			runLength[column] = 0;
+		} else if (prevLength[column] == len) {
+			runLength[column]++;
+		} else {
+			flushRun(column);
+			prevLength[column] = len;
+			runLength[column] = 0;
+		}
+		bufferedBytes = bufferedBytes + len;
+	}
+
+	private void flushRun(int column) throws IOException {
+		if (prevLength[column] >= 0) {
+			WritableUtils.writeVLong(lengths[column], prevLength[column]);
+			if (runLength[column] > 0) {
+				WritableUtils.writeVLong(lengths[column], ~runLength[column]);
+			}
+			prevLength[column] = -1;
+		}
+	}
+
+	/***
+	 * Append one row given as delimited bytes. The last column takes the
+	 * rest of the row, missing columns are left empty.
+	 */
+	public void append(byte[] row, int len, byte[] delim) throws IOException {
+
+		int start = 0, column = 0;
+		for (int i=0; column<columns-1 && i<=len-delim.length; i++) {
+			boolean match = true;
+			for (int j=0; j<delim.length; j++) {
+				if (row[i+j] != delim[j]) {
+					match = false;
+					break;
+				}
+			}
+			if (match) {
+				appendCell(column++, row, start, i - start);
+				i = i + delim.length - 1;
+				start = i + 1;
+			}
+		}
+		appendCell(column++, row, start, len - start);
+		while (column < columns) {
+			appendCell(column++, row, 0, 0);
+		}
+
+		rows++;
+		if (bufferedBytes > bufferSize) {
+			flushRowGroup();
+		}
+	}
+
+	private int compress(DataOutputBuffer src, DataOutputBuffer dst) throws IOException {
+		int before = dst.getLength();
+		CompressionOutputStream cout = null;
+		if (null != compressor) {
+			compressor.reset();
+			cout = codec.createOutputStream(dst, compressor);
+		} else {
+			cout = codec.createOutputStream(dst);
+		}
+		cout.write(src.getData(), 0, src.getLength());
+		cout.finish();
+		return dst.getLength() - before;
+	}
+
+	private void flushRowGroup() throws IOException {
+
+		if (0 == rows) {
+			return;
+		}
+
+		stored.reset();
+		int valueLength = 0;
+		for (int i=0; i<columns; i++) {
+			flushRun(i);
+			if (null != codec) {
+				storedLength[i] = compress(values[i], stored);
+			} else {
+				storedLength[i] = values[i].getLength();
+			}
+			valueLength = valueLength + storedLength[i];
+		}
+
+		keyBuffer.reset();
+		WritableUtils.writeVLong(keyBuffer, rows);
+		for (int i=0; i<columns; i++) {
+			WritableUtils.writeVLong(keyBuffer, storedLength[i]);
+			WritableUtils.writeVLong(keyBuffer, values[i].getLength());
+			WritableUtils.writeVLong(keyBuffer, lengths[i].getLength());
+			keyBuffer.write(lengths[i].getData(), 0, lengths[i].getLength());
+		}
+		int keyLength = keyBuffer.getLength();
+
+		if (out.getPos() >= lastSyncPos + SYNC_INTERVAL) {
+			out.writeInt(SYNC_ESCAPE);
+			out.write(sync);
+			lastSyncPos = out.getPos();
+		}
+
+		out.writeInt(keyLength + valueLength);
+		out.writeInt(keyLength);
+		if (null != codec) {
+			keyStored.reset();
+			out.writeInt(compress(keyBuffer, keyStored));
+			out.write(keyStored.getData(), 0, keyStored.getLength());
+		} else {
+			out.writeInt(keyLength);
+			out.write(keyBuffer.getData(), 0, keyLength);
+		}
+
+		if (null != codec) {
+			out.write(stored.getData(), 0, stored.getLength());
+		} else {
+			for (int i=0; i<columns; i++) {
+				out.write(values[i].getData(), 0, values[i].getLength());
+			}
+		}
+
+		for (int i=0; i<columns; i++) {
+			values[i].reset();
+			lengths[i].reset();
+		}
+		rows = 0;
+		bufferedBytes = 0;
+	}
+
+	public void close() throws IOException {
+		flushRowGroup();
+		if (null != compressor) {
+			CodecPool.returnCompressor(compressor);
+			compressor = null;
+		}
+		out.close();
+	}
+}
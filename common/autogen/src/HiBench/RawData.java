@@ -1,21 +1,51 @@
 package HiBench;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.MD5Hash;
 
+/***
+ * Client side input files of the generators: the user agents, country codes
+ * and search keys of the hive visits, and the packed word dictionary.
+ *
+ * Each seed list draws from its own Random, so the lists are created in
+ * parallel, and the same for the same seed, counts and dictionary. When a
+ * cache directory is given, the files are created there once, named after
+ * a digest of those inputs, and copied into the work directory by the
+ * following runs.
+ */
 public class RawData {
 
-	private static Random rand = new Random(11);
+	private static final Log log = LogFactory.getLog(RawData.class.getName());
+
+	// the search keys keep the draws of the former shared Random(11), which
+	// created them first
+	private static final long SEARCHKEYS_SEED = 11;
+	private static final long UAGENTS_SEED = 13;
 
 	private static String dict = "/usr/share/dict/words";
 	private static int numSourceWords = 1000;
@@ -57,8 +87,12 @@ public class RawData {
 			"0.0020 	Netscape 2.02 (Win 95): Mozilla/2.02E (Win95; U)",
 			"0.2441		***"
 	};
-	
-	private static String nextSeedAgent() {
+
+	private static interface Creator {
+		public void create(Path path) throws IOException;
+	}
+
+	private static String nextSeedAgent(Random rand) {
 
 		int len = rand.nextInt(20) + 5;
 		char[] sagent = new char[len + 4];
@@ -75,7 +109,7 @@ public class RawData {
 		return new String(sagent);
 	}
 	
-	private static String nextSeedWord() {
+	private static String nextSeedWord(Random rand) {
 		
 		int len = rand.nextInt(15) + 3;
 		char[] sword = new char[len];
@@ -86,48 +120,135 @@ public class RawData {
 		return new String(sword);
 	}
 
+	/***
+	 * delete path if it exists, unlike Utils.checkHdfsPath() the shared
+	 * FileSystem is left open for the other creator threads
+	 */
+	private static FileSystem delete(Path path) throws IOException {
+		FileSystem fs = path.getFileSystem(new Configuration());
+		if (fs.exists(path)) {
+			fs.delete(path, true);
+		}
+		return fs;
+	}
+
+	private static Writer createWriter(Path path) throws IOException {
+		FileSystem fs = delete(path);
+		return new BufferedWriter(new OutputStreamWriter(fs.create(path), "UTF-8"));
+	}
+
+	/***
+	 * what a file created from the dictionary depends on
+	 */
+	private static String getDictSignature() {
+		File fdict = new File(dict);
+		if (!fdict.exists()) {
+			return "nodict";
+		}
+		return fdict.getAbsolutePath() + ":" + fdict.length() + ":" + fdict.lastModified();
+	}
+
+	/***
+	 * Create path by creator, through the cache directory when there is one:
+	 * the file is created in the cache under a name made of the signature
+	 * of its inputs, unless it is there already, and is copied to path.
+	 */
+	private static void createCached(Path path, Path cache, String signature,
+			Creator creator) throws IOException {
+
+		if (null == cache) {
+			creator.create(path);
+			return;
+		}
+
+		Configuration conf = new Configuration();
+		FileSystem fs = cache.getFileSystem(conf);
+		Path cached = new Path(cache, path.getName() + "."
+				+ MD5Hash.digest(signature + ":" + Locale.getDefault()).toString());
+
+		if (fs.exists(cached)) {
+			log.info("Reusing " + cached + " for " + path);
+		} else {
+			// created aside and renamed, for runs sharing the cache
+			Path temp = new Path(cache, "_" + cached.getName() + "." + System.nanoTime());
+			creator.create(temp);
+			if (!fs.rename(temp, cached)) {
+				fs.delete(temp, false);
+				if (!fs.exists(cached)) {
+					throw new IOException("failed to cache " + cached);
+				}
+			}
+			log.info("Cached " + path + " as " + cached);
+		}
+
+		FileSystem dfs = delete(path);
+		if (!FileUtil.copy(fs, cached, dfs, path, false, conf)) {
+			throw new IOException("failed to copy " + cached + " to " + path);
+		}
+	}
+
 	public static void createUserAgents(Path hdfs_uagent) throws IOException {
-		Utils.checkHdfsPath(hdfs_uagent);
-		
-		FileSystem fs = hdfs_uagent.getFileSystem(new Configuration());
-		FSDataOutputStream fout = fs.create(hdfs_uagent);
+		createUserAgents(hdfs_uagent, null);
+	}
+
+	public static void createUserAgents(Path hdfs_uagent, Path cache) throws IOException {
+		String signature = "uagents:" + UAGENTS_SEED + ":" + numSourceUAgents;
+		createCached(hdfs_uagent, cache, signature, new Creator() {
+			public void create(Path path) throws IOException {
+				writeUserAgents(path);
+			}
+		});
+	}
+
+	private static void writeUserAgents(Path hdfs_uagent) throws IOException {
+
+		Random rand = new Random(UAGENTS_SEED);
+		Writer fout = createWriter(hdfs_uagent);
 		
 		for (int i=0; i<rawUAgents.length; i++) {
 			String[] pair = rawUAgents[i].split("\t");
 			int num = (int) Math.round(Double.parseDouble(pair[0]) * numSourceUAgents);
 
-			String content = "";
 			for (int j=0; j<num; j++) {
 				if ("***".equals(pair[pair.length-1])) {
-					content = content + nextSeedAgent() + "\n";
+					fout.write(nextSeedAgent(rand));
 				} else {
-					content = content + pair[pair.length-1] + "\n";
+					fout.write(pair[pair.length-1]);
 				}
+				fout.write('\n');
 			}
-
-			fout.write(content.getBytes("UTF-8"));
 		}
 		fout.close();
 	}
 	
 	public static void createSearchKeys(Path hdfs_searchkeys) throws IOException {
+		createSearchKeys(hdfs_searchkeys, null);
+	}
 
-		Utils.checkHdfsPath(hdfs_searchkeys);
-		
-		FileSystem fs = hdfs_searchkeys.getFileSystem(new Configuration());
-		FSDataOutputStream fout = fs.create(hdfs_searchkeys);
+	public static void createSearchKeys(Path hdfs_searchkeys, Path cache) throws IOException {
+		String signature = "searchkeys:" + SEARCHKEYS_SEED + ":" + numSourceWords
+				+ ":" + getDictSignature();
+		createCached(hdfs_searchkeys, cache, signature, new Creator() {
+			public void create(Path path) throws IOException {
+				writeSearchKeys(path);
+			}
+		});
+	}
+
+	private static void writeSearchKeys(Path hdfs_searchkeys) throws IOException {
+
+		Random rand = new Random(SEARCHKEYS_SEED);
+		Writer fout = createWriter(hdfs_searchkeys);
 
 		File fdict = new File(dict);
-		int len = 0;
 		if (fdict.exists()) {
 			
-			FileReader fr = new FileReader(fdict);
-			BufferedReader br = new BufferedReader(fr);
+			int len = 0;
+			BufferedReader br = new BufferedReader(new FileReader(fdict));
 			while (null != br.readLine()) {
 				len++;
 			}
 			br.close();
-			fr.close();
 			
 			int[] wids = new int[numSourceWords];
 			for (int i=0; i<numSourceWords; i++) {
@@ -136,37 +257,44 @@ public class RawData {
 			Arrays.sort(wids);
 
 			int i=0, j=0;
-			File newfdict = new File(dict);
-			FileReader newfr = new FileReader(newfdict);
-			BufferedReader newbr = new BufferedReader(newfr);
+			br = new BufferedReader(new FileReader(fdict));
 			while ((i<wids.length) && (j<len)) {
-				String wd = newbr.readLine();
-				if (j==wids[i]) {
-					wd = wd + "\n";
-					while ((i<wids.length) && (j==wids[i])) {
-						fout.write(wd.getBytes("UTF-8"));
-						i++;
-					}
+				String wd = br.readLine();
+				while ((i<wids.length) && (j==wids[i])) {
+					fout.write(wd);
+					fout.write('\n');
+					i++;
 				}
 				j++;
 			}
-			newbr.close();
-			newfr.close();
+			br.close();
 		} else {
 			for (int i=0; i<numSourceWords; i++) {
-				String wd = nextSeedWord() + "\n";
+				String wd = nextSeedWord(rand) + "\n";
 				System.out.print(wd);
-				fout.write(wd.getBytes("UTF-8"));
+				fout.write(wd);
 			}
 		}
 		fout.close();
 	}
 
 	public static void createCCodes(Path hdfs_ccode) throws IOException {
-		Utils.checkHdfsPath(hdfs_ccode);
-		
-		FileSystem fs = hdfs_ccode.getFileSystem(new Configuration());
-		FSDataOutputStream fout = fs.create(hdfs_ccode);
+		createCCodes(hdfs_ccode, null);
+	}
+
+	public static void createCCodes(Path hdfs_ccode, Path cache) throws IOException {
+		// the available locales come with the jvm
+		String signature = "ccodes:" + System.getProperty("java.version");
+		createCached(hdfs_ccode, cache, signature, new Creator() {
+			public void create(Path path) throws IOException {
+				writeCCodes(path);
+			}
+		});
+	}
+
+	private static void writeCCodes(Path hdfs_ccode) throws IOException {
+
+		Writer fout = createWriter(hdfs_ccode);
 		
 		Locale[] locales = Locale.getAvailableLocales();  
 		for( Locale locale : locales ){
@@ -179,38 +307,93 @@ public class RawData {
 			}
 			
 			if (!"".equals(country) && !"".equals(language)) {
-				String ccode = country + "," + country + "-" + language + "\n";
-				fout.write(ccode.getBytes("UTF-8"));
+				fout.write(country + "," + country + "-" + language + "\n");
 			}
 		}
 		fout.close();
 	}
 
+	/***
+	 * create the user agents, country codes and search keys in parallel
+	 */
+	public static void createSeedLists(final Path uagents, final Path ccodes,
+			final Path searchkeys, final Path cache) throws IOException {
+
+		ExecutorService pool = Executors.newFixedThreadPool(3);
+		List<Future<Object>> results = new ArrayList<Future<Object>>();
+		results.add(pool.submit(new Callable<Object>() {
+			public Object call() throws IOException {
+				createUserAgents(uagents, cache);
+				return null;
+			}
+		}));
+		results.add(pool.submit(new Callable<Object>() {
+			public Object call() throws IOException {
+				createCCodes(ccodes, cache);
+				return null;
+			}
+		}));
+		results.add(pool.submit(new Callable<Object>() {
+			public Object call() throws IOException {
+				createSearchKeys(searchkeys, cache);
+				return null;
+			}
+		}));
+		pool.shutdown();
+
+		try {
+			for (Future<Object> result : results) {
+				result.get();
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			throw new IOException("Interrupted creating seed lists", e);
+		} catch (ExecutionException e) {
+			pool.shutdownNow();
+			throw new IOException("Failed creating seed lists", e.getCause());
+		}
+	}
+
 	public static int putDictToHdfs(Path hdfs_dict, int size) throws IOException {
+		return putDictToHdfs(hdfs_dict, size, null);
+	}
+
+	public static int putDictToHdfs(Path hdfs_dict, final int size, Path cache) throws IOException {
+
+		String signature = "dict:" + size + ":" + getDictSignature();
+		createCached(hdfs_dict, cache, signature, new Creator() {
+			public void create(Path path) throws IOException {
+				writeDict(path, size);
+			}
+		});
 
-		Utils.checkHdfsPath(hdfs_dict);
-		
 		FileSystem fs = hdfs_dict.getFileSystem(new Configuration());
-		FSDataOutputStream fout = fs.create(hdfs_dict);
+		return PackedStrings.readCount(fs, hdfs_dict);
+	}
+
+	private static void writeDict(Path hdfs_dict, int size) throws IOException {
+
+		FileSystem fs = delete(hdfs_dict);
+		PackedStrings.Writer fout = new PackedStrings.Writer(fs.create(hdfs_dict));
+		fout.setBase(0);
 
 		File fdict = new File(dict);
 		int len = 0;
 		if (fdict.exists()) {
 			
-			FileReader fr = new FileReader(fdict);
+			InputStreamReader fr = new InputStreamReader(new FileInputStream(fdict), "UTF-8");
 			BufferedReader br = new BufferedReader(fr);
 			
 			while (len < size) {
-				String word = br.readLine() + "\n";
+				String word = br.readLine();
 //				if (null == word) break;
 				
-				fout.write(word.getBytes("UTF-8"));
+				fout.append(String.valueOf(word));
 				len++;
 			}
 			br.close();
 			fr.close();
 		}
 		fout.close();
-		return len;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,270 @@
+package HiBench;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/***
+ * Map side aggregation of reverse links: an open-addressing (linear probing)
+ * table from a link target to the list of pages linking to it, kept in
+ * primitive arrays within a fixed byte budget.
+ *
+ * The lists are chains of fixed size blocks taken from a shared pool, so a
+ * target with a single referrer takes one block instead of a full list. A
+ * list reaching the max length is handed to the sink and emptied. When the
+ * table or the block pool is full, the least recently referenced entries,
+ * making up at least half of the table, are handed to the sink and removed,
+ * so the hot targets of a Zipf distribution keep being aggregated.
+ */
+public class ReferenceTable {
+
+	public static interface Sink {
+		public void emit(long id, long[] refs, int len) throws IOException;
+	}
+
+	private static final long EMPTY = -1;
+	private static final int NONE = -1;
+	private static final double MAX_LOAD = 0.75;
+	private static final int MAX_HISTO = 256;
+	private static final int BLOCK = 4;
+
+	// per slot: key, first and last block, list length, last use
+	private static final int SLOT_BYTES = HtmlCore.LONG_BYTE + 4 * HtmlCore.INT_BYTE;
+	// per block: ids and the next block, one block per slot
+	private static final int BLOCK_BYTES = BLOCK * HtmlCore.LONG_BYTE + HtmlCore.INT_BYTE;
+
+	private long[] keys;
+	private int[] heads, tails, lens, stamps;
+	private int mask;
+	private int size, limit;
+
+	private long[] pool;
+	private int[] nexts;
+	private int free;
+
+	private int maxLen;
+	private long[] scratch;
+	private int clock;
+	private Sink sink;
+
+	private long flushes, emitted;
+
+	/***
+	 * @param bytes memory budget of the table
+	 * @param maxLen length at which a list is emitted
+	 */
+	public ReferenceTable(long bytes, int maxLen, Sink sink) {
+		int cap = getCapacity(bytes);
+		keys = new long[cap];
+		heads = new int[cap];
+		tails = new int[cap];
+		lens = new int[cap];
+		stamps = new int[cap];
+		Arrays.fill(keys, EMPTY);
+		mask = cap - 1;
+		size = 0;
+		limit = (int) (cap * MAX_LOAD);
+
+		pool = new long[cap * BLOCK];
+		nexts = new int[cap];
+		for (int i=0; i<cap; i++) {
+			nexts[i] = i + 1;
+		}
+		nexts[cap - 1] = NONE;
+		free = 0;
+
+		this.maxLen = maxLen;
+		scratch = new long[maxLen];
+		this.sink = sink;
+	}
+
+	private static int getCapacity(long bytes) {
+		long cap = bytes / (SLOT_BYTES + BLOCK_BYTES);
+		return Integer.highestOneBit((int) Math.max(Math.min(cap, 1 << 30), 16));
+	}
+
+	/***
+	 * bytes taken by a table of the given budget
+	 */
+	public static long getBytes(long bytes) {
+		return (long) getCapacity(bytes) * (SLOT_BYTES + BLOCK_BYTES);
+	}
+
+	private int slot(long id) {
+		long h = id * 0x9e3779b97f4a7c15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/***
+	 * add page ref to the list of id
+	 */
+	public void add(long id, long ref) throws IOException {
+
+		int i = slot(id);
+		while (EMPTY != keys[i]) {
+			if (id == keys[i]) {
+				break;
+			}
+			i = (i + 1) & mask;
+		}
+
+		if (EMPTY == keys[i]) {
+			if (size >= limit) {
+				flushOldest();
+				add(id, ref);
+				return;
+			}
+			keys[i] = id;
+			heads[i] = NONE;
+			tails[i] = NONE;
+			lens[i] = 0;
+			stamps[i] = clock;
+			size++;
+		}
+
+		if (0 == lens[i] % BLOCK) {
+			if (NONE == free) {
+				flushOldest();
+				add(id, ref);
+				return;
+			}
+			int b = free;
+			free = nexts[b];
+			nexts[b] = NONE;
+			if (NONE == tails[i]) {
+				heads[i] = b;
+			} else {
+				nexts[tails[i]] = b;
+			}
+			tails[i] = b;
+		}
+
+		pool[tails[i] * BLOCK + lens[i] % BLOCK] = ref;
+		lens[i]++;
+		stamps[i] = clock++;
+
+		if (lens[i] >= maxLen) {
+			emit(i);
+		}
+	}
+
+	/***
+	 * hand the list of slot i to the sink and give its blocks back
+	 */
+	private void emit(int i) throws IOException {
+
+		int len = lens[i];
+		if (0 == len) {
+			return;
+		}
+
+		int b = heads[i];
+		for (int j=0; j<len; j=j+BLOCK) {
+			System.arraycopy(pool, b * BLOCK, scratch, j, Math.min(BLOCK, len - j));
+			if (NONE == nexts[b]) {
+				nexts[b] = free;
+				free = heads[i];
+				break;
+			}
+			b = nexts[b];
+		}
+		heads[i] = NONE;
+		tails[i] = NONE;
+		lens[i] = 0;
+
+		sink.emit(keys[i], scratch, len);
+		emitted++;
+	}
+
+	/***
+	 * remove slot i and shift back the following entries of its cluster
+	 */
+	private void remove(int i) {
+		int hole = i;
+		int j = (i + 1) & mask;
+		while (EMPTY != keys[j]) {
+			int home = slot(keys[j]);
+			// move j into the hole unless its home lies cyclically in (hole, j]
+			boolean stay = (hole <= j) ? (hole < home && home <= j) : (hole < home || home <= j);
+			if (!stay) {
+				keys[hole] = keys[j];
+				heads[hole] = heads[j];
+				tails[hole] = tails[j];
+				lens[hole] = lens[j];
+				stamps[hole] = stamps[j];
+				hole = j;
+			}
+			j = (j + 1) & mask;
+		}
+		keys[hole] = EMPTY;
+		size--;
+	}
+
+	/***
+	 * emit and remove the entries not referenced since a point in time
+	 * chosen so that at least half of the entries go
+	 */
+	private void flushOldest() throws IOException {
+
+		int oldest = 0;
+		for (int i=0; i<=mask; i++) {
+			if (EMPTY != keys[i]) {
+				oldest = Math.max(oldest, clock - stamps[i]);
+			}
+		}
+
+		long[] histo = new long[MAX_HISTO];
+		for (int i=0; i<=mask; i++) {
+			if (EMPTY != keys[i]) {
+				histo[bucket(clock - stamps[i], oldest)]++;
+			}
+		}
+
+		int threshold = MAX_HISTO - 1;
+		long old = histo[threshold];
+		while (old < (size + 1) / 2 && threshold > 0) {
+			threshold--;
+			old = old + histo[threshold];
+		}
+
+		int i = 0;
+		while (i <= mask) {
+			if (EMPTY != keys[i] && bucket(clock - stamps[i], oldest) >= threshold) {
+				emit(i);
+				// an entry shifted back into i is checked again
+				remove(i);
+			} else {
+				i++;
+			}
+		}
+		flushes++;
+	}
+
+	private static int bucket(int age, int oldest) {
+		return (int) ((long) age * MAX_HISTO / ((long) oldest + 1));
+	}
+
+	/***
+	 * emit and remove all the entries
+	 */
+	public void flush() throws IOException {
+		for (int i=0; i<=mask; i++) {
+			if (EMPTY != keys[i]) {
+				emit(i);
+				keys[i] = EMPTY;
+			}
+		}
+		size = 0;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getFlushes() {
+		return flushes;
+	}
+
+	public long getEmitted() {
+		return emitted;
+	}
+}
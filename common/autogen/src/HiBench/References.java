@@ -5,37 +5,88 @@ import java.io.DataOutput;
 import java.io.IOException;
 
 import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
 
+/***
+ * Page ids linked from a page (len < 0, -len out-links) or linking to it
+ * (len > 0 in-links).
+ *
+ * Wire format: [vint len][vlong id 0][vlong id 1 - id 0]...
+ * Each id is stored as the difference to the previous one, which is small
+ * for the increasing in-link ids of a map task, and for the unordered
+ * out-links takes no more than the 8 bytes of a raw long below 2^56 pages.
+ */
 public class References implements Writable {
 
 	int len;
 	long[] refs;
-	
+
 	References() {}
-	
+
 	References(int len, long[] refs) {
 		this.len = len;
 		this.refs = refs;
 	}
-	
+
+	void set(int len, long[] refs) {
+		this.len = len;
+		this.refs = refs;
+	}
+
+	private void ensure(int capacity) {
+		if (null == refs || refs.length < capacity) {
+			long[] nrefs = new long[Math.max(capacity, (null == refs) ? 16 : refs.length * 2)];
+			if (null != refs) {
+				System.arraycopy(refs, 0, nrefs, 0, refs.length);
+			}
+			refs = nrefs;
+		}
+	}
+
+	/***
+	 * copy links into this, which owns its array
+	 */
+	void copy(References links) {
+		int abslen = Math.abs(links.len);
+		ensure(abslen);
+		System.arraycopy(links.refs, 0, refs, 0, abslen);
+		len = links.len;
+	}
+
+	/***
+	 * append the ids of links to the in-links of this, which owns its array
+	 */
+	void append(References links) {
+		int abslen = Math.abs(links.len);
+		ensure(len + abslen);
+		System.arraycopy(links.refs, 0, refs, len, abslen);
+		len = len + abslen;
+	}
+
 	@Override
 	public void readFields(DataInput in) throws IOException {
 
-		len = in.readInt();
+		len = WritableUtils.readVInt(in);
 		int abslen = Math.abs(len);
-		refs = new long[abslen];
+		if (null == refs || refs.length < abslen) {
+			refs = new long[abslen];
+		}
+		long prev = 0;
 		for (int i=0; i<abslen; i++) {
-			refs[i] = in.readLong();
+			prev = prev + WritableUtils.readVLong(in);
+			refs[i] = prev;
 		}
 	}
 
 	@Override
 	public void write(DataOutput out) throws IOException {
 
-		out.writeInt(len);
+		WritableUtils.writeVInt(out, len);
 		int abslen = Math.abs(len);
+		long prev = 0;
 		for (int i=0; i<abslen; i++) {
-			out.writeLong(refs[i]);
+			WritableUtils.writeVLong(out, refs[i] - prev);
+			prev = refs[i];
 		}
 	}
 
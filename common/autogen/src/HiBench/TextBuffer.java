@@ -0,0 +1,132 @@
+package HiBench;
+
+import java.nio.ByteBuffer;
+
+import org.apache.hadoop.io.Text;
+
+/***
+ * Reusable byte buffer to build Text records without intermediate Strings.
+ * Numbers are written as ASCII digits straight into the buffer, the result
+ * is byte for byte the same as the one of Long.toString.
+ */
+public class TextBuffer {
+
+	private byte[] bytes;
+	private int len;
+
+	public TextBuffer() {
+		this(64);
+	}
+
+	public TextBuffer(int capacity) {
+		bytes = new byte[capacity];
+		len = 0;
+	}
+
+	private void ensure(int more) {
+		if (len + more > bytes.length) {
+			byte[] nbytes = new byte[Math.max(bytes.length * 2, len + more)];
+			System.arraycopy(bytes, 0, nbytes, 0, len);
+			bytes = nbytes;
+		}
+	}
+
+	public TextBuffer reset() {
+		len = 0;
+		return this;
+	}
+
+	/***
+	 * cut the buffer back to the given length, e.g. to keep a common prefix
+	 */
+	public TextBuffer truncate(int length) {
+		len = length;
+		return this;
+	}
+
+	public TextBuffer append(byte b) {
+		ensure(1);
+		bytes[len++] = b;
+		return this;
+	}
+
+	public TextBuffer append(byte[] b) {
+		return append(b, 0, b.length);
+	}
+
+	public TextBuffer append(byte[] b, int off, int blen) {
+		ensure(blen);
+		System.arraycopy(b, off, bytes, len, blen);
+		len = len + blen;
+		return this;
+	}
+
+	/***
+	 * append len bytes of src from its position on
+	 */
+	public TextBuffer append(ByteBuffer src, int blen) {
+		ensure(blen);
+		src.get(bytes, len, blen);
+		len = len + blen;
+		return this;
+	}
+
+	/***
+	 * remove the leading and trailing bytes up to space, the same as
+	 * String.trim() does on the decoded chars
+	 */
+	public TextBuffer trim() {
+		int end = len;
+		while (end > 0 && (bytes[end - 1] & 0xff) <= ' ') {
+			end--;
+		}
+		int start = 0;
+		while (start < end && (bytes[start] & 0xff) <= ' ') {
+			start++;
+		}
+		if (start > 0) {
+			System.arraycopy(bytes, start, bytes, 0, end - start);
+		}
+		len = end - start;
+		return this;
+	}
+
+	public TextBuffer append(long v) {
+
+		if (Long.MIN_VALUE == v) {
+			return append(Long.toString(v).getBytes());
+		}
+
+		ensure(20);
+		if (v < 0) {
+			bytes[len++] = '-';
+			v = -v;
+		}
+
+		int digits = 1;
+		for (long t = v; t >= 10; t = t / 10) {
+			digits++;
+		}
+
+		int pos = len + digits;
+		do {
+			bytes[--pos] = (byte) ('0' + (v % 10));
+			v = v / 10;
+		} while (v > 0);
+
+		len = len + digits;
+		return this;
+	}
+
+	public int length() {
+		return len;
+	}
+
+	public byte[] getBytes() {
+		return bytes;
+	}
+
+	public void writeTo(Text text) {
+		text.set(bytes, 0, len);
+	}
+}
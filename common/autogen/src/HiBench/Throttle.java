@@ -0,0 +1,114 @@
+package HiBench;
+
+import org.apache.hadoop.mapred.JobConf;
+
+/***
+ * Token bucket pacing the records of a generator task, to a number of rows
+ * and/or bytes per second set by -rate and -bandwidth.
+ *
+ * The buckets are refilled with the elapsed time and hold at most one second
+ * of tokens, so a task never bursts above its rate for longer than that. A
+ * record taking more tokens than there are waits for the missing ones.
+ */
+public class Throttle {
+
+	public static final String ROWS_PARAM_NAME = "hibench.throttle.rows";
+	public static final String BYTES_PARAM_NAME = "hibench.throttle.bytes";
+
+	private static final long NANOS = 1000000000L;
+	private static final long MAX_SLEEP_MILLIS = 1000;
+
+	private double rowRate, byteRate;		// per nanosecond, 0 for no limit
+	private double rowTokens, byteTokens;
+	private double maxRows, maxBytes;
+	private long last;
+	private long waited;
+
+	public Throttle(double rowsPerSec, double bytesPerSec) {
+		rowRate = rowsPerSec / NANOS;
+		byteRate = bytesPerSec / NANOS;
+		maxRows = Math.max(rowsPerSec, 1);
+		maxBytes = Math.max(bytesPerSec, 1);
+		rowTokens = 0;
+		byteTokens = 0;
+		last = System.nanoTime();
+	}
+
+	/***
+	 * @return the throttle of a task, null if the job has no rate limit
+	 */
+	public static Throttle get(JobConf job) {
+		float rows = job.getFloat(ROWS_PARAM_NAME, 0);
+		float bytes = job.getFloat(BYTES_PARAM_NAME, 0);
+		if (rows <= 0 && bytes <= 0) {
+			return null;
+		}
+		return new Throttle(rows, bytes);
+	}
+
+	public static void share(DataOptions options, JobConf job) {
+		job.setFloat(ROWS_PARAM_NAME, (float) options.getRowRate());
+		job.setFloat(BYTES_PARAM_NAME, (float) options.getByteRate());
+	}
+
+	private void refill() {
+		long now = System.nanoTime();
+		long elapsed = now - last;
+		last = now;
+		if (rowRate > 0) {
+			rowTokens = Math.min(maxRows, rowTokens + elapsed * rowRate);
+		}
+		if (byteRate > 0) {
+			byteTokens = Math.min(maxBytes, byteTokens + elapsed * byteRate);
+		}
+	}
+
+	/***
+	 * take the tokens of rows records of bytes in total, waiting for them
+	 */
+	public void acquire(long rows, long bytes) {
+
+		refill();
+		if (rowRate > 0) {
+			rowTokens = rowTokens - rows;
+		}
+		if (byteRate > 0) {
+			byteTokens = byteTokens - bytes;
+		}
+
+		// the debt is paid back by waiting
+		long wait = 0;
+		if (rowTokens < 0) {
+			wait = Math.max(wait, (long) (-rowTokens / rowRate));
+		}
+		if (byteTokens < 0) {
+			wait = Math.max(wait, (long) (-byteTokens / byteRate));
+		}
+		while (wait > 0) {
+			long millis = Math.min(wait / 1000000, MAX_SLEEP_MILLIS);
+			try {
+				Thread.sleep(millis, (int) ((wait - millis * 1000000) % 1000000));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			long before = last;
+			refill();
+			waited = waited + (last - before);
+			wait = 0;
+			if (rowTokens < 0) {
+				wait = Math.max(wait, (long) (-rowTokens / rowRate));
+			}
+			if (byteTokens < 0) {
+				wait = Math.max(wait, (long) (-byteTokens / byteRate));
+			}
+		}
+	}
+
+	/***
+	 * nanoseconds spent waiting for tokens
+	 */
+	public long getWaited() {
+		return waited;
+	}
+}
@@ -1,13 +1,13 @@
 package HiBench;
 
-import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileReader;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.text.NumberFormat;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
@@ -17,16 +17,20 @@ import org.apache.hadoop.fs.FileStatus;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.PathFilter;
-import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.MapFile;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapred.ClusterStatus;
+import org.apache.hadoop.mapred.Counters;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
 
 public class Utils {
 
 	private static final Log log = LogFactory.getLog(Utils.class.getName());
+
+	/***
+	 * Local directory holding the shared (distributed cache) files when the
+	 * generators run inside the client JVM, see LocalEngine
+	 */
+	public static final String LOCAL_CACHE_DIR = "hibench.local.cache.dir";
 	
 	public static final void checkHdfsPath(Path path) throws IOException {
 		
@@ -67,6 +71,100 @@ public class Utils {
 		fs.close();
 	}
 
+	private static final String PART_PREFIX = "part-";
+
+	/***
+	 * number of a part file, -1 for the other files
+	 */
+	private static int getPartNumber(String name) {
+		if (!name.startsWith(PART_PREFIX)) {
+			return -1;
+		}
+		int end = PART_PREFIX.length();
+		while (end < name.length() && Character.isDigit(name.charAt(end))) {
+			end++;
+		}
+		if (PART_PREFIX.length() == end) {
+			return -1;
+		}
+		return Integer.parseInt(name.substring(PART_PREFIX.length(), end));
+	}
+
+	private static String getPartName(String name, int number) {
+		NumberFormat format = NumberFormat.getInstance();
+		format.setMinimumIntegerDigits(5);
+		format.setGroupingUsed(false);
+
+		int end = PART_PREFIX.length();
+		while (end < name.length() && Character.isDigit(name.charAt(end))) {
+			end++;
+		}
+		return PART_PREFIX + format.format(number) + name.substring(end);
+	}
+
+	/***
+	 * number following the highest part file number in dir, 0 if none
+	 */
+	public static final int getNextPartNumber(Path dir) throws IOException {
+		FileSystem fs = dir.getFileSystem(new Configuration());
+		int next = 0;
+		if (fs.exists(dir)) {
+			for (FileStatus status : fs.listStatus(dir)) {
+				next = Math.max(next, getPartNumber(status.getPath().getName()) + 1);
+			}
+		}
+		return next;
+	}
+
+	/***
+	 * Move the part files of a job output into dir, renumbered from offset
+	 * on: part-NNNNN[.ext] becomes part-(NNNNN + offset)[.ext], replacing
+	 * any part file of that number. The rest of the job output is deleted.
+	 */
+	public static final void moveParts(Path from, Path dir, int offset) throws IOException {
+
+		FileSystem fs = dir.getFileSystem(new Configuration());
+		fs.mkdirs(dir);
+
+		FileStatus[] existing = fs.listStatus(dir);
+		for (FileStatus status : fs.listStatus(from)) {
+			String name = status.getPath().getName();
+			int number = getPartNumber(name);
+			if (number < 0) {
+				continue;
+			}
+			number = number + offset;
+			for (FileStatus old : existing) {
+				if (getPartNumber(old.getPath().getName()) == number) {
+					fs.delete(old.getPath(), false);
+				}
+			}
+			Path to = new Path(dir, getPartName(name, number));
+			if (!fs.rename(status.getPath(), to)) {
+				throw new IOException("failed to move " + status.getPath() + " to " + to);
+			}
+		}
+		fs.delete(from, true);
+	}
+
+	/***
+	 * Run a generator job, either as a mapreduce job or, with -engine local,
+	 * inside the client JVM. Jobs having reduce tasks always go to mapreduce.
+	 *
+	 * @return the counters of the job
+	 */
+	public static final Counters runJob(JobConf job, DataOptions options) throws IOException {
+		
+		if (DataOptions.Engine.LOCAL == options.getEngine()) {
+			if (0 == job.getNumReduceTasks()) {
+				LocalEngine engine = new LocalEngine(options.getNumThreads());
+				return engine.runJob(job);
+			}
+			log.info("Job " + job.getJobName() + " has reduce tasks, run it as mapreduce job");
+		}
+		return JobClient.runJob(job).getCounters();
+	}
+
 	public static final int getMaxNumReds () throws IOException {
 		JobConf job = new JobConf(Utils.class);
 		JobClient client = new JobClient(job);
@@ -106,22 +204,20 @@ public class Utils {
 		job.setInt(symbol, words);
 	}
 	
-	private static final String[] getSharedArray(String symbol, JobConf job) throws IOException {
+	private static final String getSharedFileName(String symbol, JobConf job) {
+		String dir = job.get(LOCAL_CACHE_DIR);
+		if (null == dir) {
+			return symbol;
+		}
+		return new File(dir, symbol).getPath();
+	}
+	
+	private static final PackedStrings getSharedArray(String symbol, JobConf job) throws IOException {
 		
-		String[] dict = null;
+		PackedStrings dict = null;
 		int words = job.getInt(symbol, 0);
 		if (words > 0) {
-			dict = new String[words];
-			
-			FileReader reader = new FileReader(symbol);
-			BufferedReader br = new BufferedReader(reader);
-			String line = null;
-			int len = 0;
-			while ((line = br.readLine()) != null) {
-				dict[len++] = line;
-			}
-			br.close();
-			reader.close();
+			dict = new PackedStrings(new File(getSharedFileName(symbol, job)));
 		}
 		return dict;
 	}
@@ -130,17 +226,18 @@ public class Utils {
 		shareArray(HtmlCore.WORD_DICT_DIR_NAME, new Path(options.getWorkPath(), HtmlCore.WORD_DICT_DIR_NAME), options.getNumWords(), job);
 	}
 	
-	public static final String[] getDict(JobConf job) throws IOException {
+	public static final PackedStrings getDict(JobConf job) throws IOException {
 		return getSharedArray(HtmlCore.WORD_DICT_DIR_NAME, job);
 	}
 	
-    private static PathFilter getPassDirectoriesFilter(final FileSystem fs) {
+    private static PathFilter getPassFilesFilter(final FileSystem fs) {
     	
         return new PathFilter() {
             public boolean accept(final Path path) {
                 try {
-                    return fs.getFileStatus(path).isDir() &&
-                            !path.getName().startsWith("_");
+                    return !fs.getFileStatus(path).isDir() &&
+                            !path.getName().startsWith("_") &&
+                            !path.getName().startsWith(".");
                     
                 } catch (IOException ioe) {
                     return false;
@@ -149,29 +246,30 @@ public class Utils {
         };
     }
     
-	private static final void shareMapFile(String symbol, int slots, Path mfile, JobConf job) throws IOException, URISyntaxException {
+	/***
+	 * share the packed url file of each slot as symbol-N, N being the slot
+	 * its page ids belong to
+	 */
+	private static final void sharePackedFiles(String symbol, int slots, Path dir, JobConf job) throws IOException, URISyntaxException {
 		
-		FileSystem fs = FileSystem.get(job);
-		if (fs.exists(mfile) && fs.getFileStatus(mfile).isDir()) {
+		FileSystem fs = dir.getFileSystem(job);
+		if (fs.exists(dir) && fs.getFileStatus(dir).isDir()) {
 
 			DistributedCache.createSymlink(job);
 			
-			FileStatus[] fstats = fs.listStatus(mfile, getPassDirectoriesFilter(fs));
+			FileStatus[] fstats = fs.listStatus(dir, getPassFilesFilter(fs));
 			
-			LongWritable key = new LongWritable();
-			Text value = new Text();
 			for (int i=0; i<fstats.length; i++) {
-				Path curMap = fstats[i].getPath();
-				MapFile.Reader mreader = new MapFile.Reader(fs, curMap.toString(), job);
-				if (mreader.next(key, value)) {
-					int rid = (int) (key.get() % slots);
-					String uriWithLink =
-							curMap.toUri().toString() + "#" + symbol + "-" + Integer.toString(rid);
-					DistributedCache.addCacheFile(new URI(uriWithLink), job);
-				} else {
+				Path cur = fstats[i].getPath();
+				long base = PackedStrings.readBase(fs, cur);
+				if (base < 0) {
+					log.error("empty url file " + cur + " !!!");
 					System.exit(-1);
 				}
-				mreader.close();
+				int rid = (int) (base % slots);
+				String uriWithLink =
+						cur.toUri().toString() + "#" + symbol + "-" + Integer.toString(rid);
+				DistributedCache.addCacheFile(new URI(uriWithLink), job);
 			}
 		}
 		
@@ -179,10 +277,10 @@ public class Utils {
 	}
 	
 	public static final void shareUrls (String symbol, DataOptions options, JobConf job) throws IOException, URISyntaxException {
-		shareMapFile(symbol, options.getNumMaps(), new Path(options.getWorkPath(), symbol), job);
+		sharePackedFiles(symbol, options.getNumMaps(), new Path(options.getWorkPath(), symbol), job);
 	}
 	
-	public static final IndexedMapFile getSharedMapFile(String symbol, JobConf job) throws IOException {
+	public static final IndexedUrls getSharedUrls(String symbol, JobConf job) throws IOException {
 		
 		int slots = job.getInt(symbol, 0);
 		
@@ -191,14 +289,12 @@ public class Utils {
 			System.exit(-1);
 		}
 		
-		FileSystem fs = FileSystem.getLocal(job);
-		MapFile.Reader[] readers = new MapFile.Reader[slots];
+		PackedStrings[] urls = new PackedStrings[slots];
 		for (int i=0; i<slots; i++) {
-			String symbfile = fs.getWorkingDirectory().toString() + "/" + symbol + "-" + Integer.toString(i);
-			readers[i] = new MapFile.Reader(fs, symbfile, job);
+			urls[i] = new PackedStrings(new File(getSharedFileName(symbol + "-" + Integer.toString(i), job)));
 		}
 		
-		return new IndexedMapFile(slots, readers);
+		return new IndexedUrls(slots, urls);
 	}
 	
 	/***
@@ -211,7 +307,7 @@ public class Utils {
 	 * 		1. read object from distributed cache file to re-create the ZipfCore
 	 * @throws IOException 
 	 */
-	private static final void serialZipfCore(Zipfian zipfian, Path hdfs_zipf) throws IOException {
+	private static final void serialZipfCore(Zipfian zipfian, ZipfCore.Sampler sampler, Path hdfs_zipf) throws IOException {
 		
 		Utils.checkHdfsPath(hdfs_zipf);
 		
@@ -220,7 +316,7 @@ public class Utils {
 
 		ObjectOutputStream so = new ObjectOutputStream(fout);
 		
-		ZipfCore core = zipfian.createZipfCore();
+		ZipfCore core = zipfian.createZipfCore(sampler);
 		so.writeObject(core);
 		
 		so.close();
@@ -242,7 +338,7 @@ public class Utils {
 		ZipfCore zipfcore = null;
 		
 		FileSystem fs = FileSystem.getLocal(job);
-		Path symbLink = new Path(fname);
+		Path symbLink = new Path(getSharedFileName(fname, job));
 		if (fs.exists(symbLink)) {
 			FileInputStream fi = new FileInputStream(symbLink.toString());
 			ObjectInputStream si = new ObjectInputStream(fi);
@@ -261,6 +357,11 @@ public class Utils {
 		return getSharedZipfCore(HtmlCore.WORD_ZIPF_FILE_NAME, job);
 	}
 	
+	public static final void shareRandomOptions(DataOptions options, JobConf job) {
+		job.set(HtmlCore.RANDOM_MODE_PARAM_NAME, options.getRandomMode());
+		job.setLong(HtmlCore.RANDOM_SEED_PARAM_NAME, options.getSeed());
+	}
+	
 	public static final void shareLinkZipfCore(DataOptions options, JobConf job) throws URISyntaxException {
 		shareZipfCore(HtmlCore.LINK_ZIPF_FILE_NAME, options, job);
 	}
@@ -274,7 +375,7 @@ public class Utils {
 			Zipfian lzipfian = new Zipfian(options.getNumPages(), DataOptions.LINK_ZIPF_EXPONENT);
 			lzipfian.setupZipf((long) (options.getNumPages() * HtmlCore.getMeanLinksPerPage()), DataOptions.LINK_SIMULATE_SPACE_RATIO);
 			Path lzipfCorePath = new Path(options.getWorkPath(), HtmlCore.LINK_ZIPF_FILE_NAME);
-			serialZipfCore(lzipfian, lzipfCorePath);
+			serialZipfCore(lzipfian, options.getZipfSampler(), lzipfCorePath);
 		} else {
 			System.out.println("ERROR: number of pages should be greater than 0");
 			System.exit(-1);
@@ -286,7 +387,7 @@ public class Utils {
 			Zipfian wzipfian = new Zipfian(options.getNumWords(), DataOptions.WORD_ZIPF_EXPONENT);
 			wzipfian.setupZipf((long) (options.getNumPages() * HtmlCore.getMeanWordsPerPage()), DataOptions.WORD_SIMULATE_SPACE_RATIO);
 			Path wzipfCorePath = new Path(options.getWorkPath(), HtmlCore.WORD_ZIPF_FILE_NAME);
-			serialZipfCore(wzipfian, wzipfCorePath);
+			serialZipfCore(wzipfian, options.getZipfSampler(), wzipfCorePath);
 		} else {
 			System.out.println("ERROR: number of words should be greater than 0");
 			System.exit(-1);
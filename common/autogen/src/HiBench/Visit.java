@@ -4,23 +4,47 @@ import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Calendar;
 import java.util.Date;
 import java.util.Random;
 
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
 
 /***
  * Util used to generate random user visit records
  * @author lyi2
  *
+ * nextAccess(byte[], int, int, Text) encodes a record straight into a Text
+ * with no intermediate String: user agents, country codes and search keys
+ * are kept as utf-8 bytes, dates come from a table of the days of the date
+ * range and numbers are written as digits. It draws the same random numbers
+ * in the same order as nextAccess(String), so both give the same records.
  */
 public class Visit {
+	private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+	private static final int DATE_BYTES = 10;		// yyyy-MM-dd
+	private static final int MAX_PROFIT_DIGITS = 11;
+	private static final long[] POW10 = new long[MAX_PROFIT_DIGITS + 2];
+	static {
+		POW10[0] = 1;
+		for (int i=1; i<POW10.length; i++) {
+			POW10[i] = POW10[i-1] * 10;
+		}
+	}
+
 	private Random rand;
 	private String delim = ",";
 	private String[] uagents, ccodes, skeys;
 	private long urls, dateRange;
 	private Date date;
 	private SimpleDateFormat dateForm;
+
+	private byte[] bdelim;
+	private byte[][] buagents, bccodes, bskeys;
+	private long[] dayStarts;		// local midnight of each day of the range
+	private byte[] days;			// yyyy-MM-dd of each day of the range
+	private TextBuffer tb;
 	
 	@SuppressWarnings("deprecation")
 	Visit(Path[] cacheFiles, String delim, long numUrls) throws IOException {
@@ -83,6 +107,61 @@ public class Visit {
 				}
 			}
 		}
+
+		bdelim = this.delim.getBytes("UTF-8");
+		buagents = encode(uagents);
+		bccodes = encode(ccodes);
+		bskeys = encode(skeys);
+		createDays();
+		tb = new TextBuffer(256);
+	}
+
+	private static byte[][] encode(String[] items) throws IOException {
+		if (null == items) {
+			return null;
+		}
+		byte[][] bitems = new byte[items.length][];
+		for (int i=0; i<items.length; i++) {
+			bitems[i] = items[i].getBytes("UTF-8");
+		}
+		return bitems;
+	}
+
+	private static int putDigits(byte[] b, int off, int v, int width) {
+		for (int i=off+width-1; i>=off; i--) {
+			b[i] = (byte) ('0' + (v % 10));
+			v = v / 10;
+		}
+		return off + width;
+	}
+
+	/***
+	 * table the days between time 0 and the end of the date range, in the
+	 * calendar and time zone dateForm formats the dates with
+	 */
+	private void createDays() {
+		Calendar cal = Calendar.getInstance();
+		cal.setTimeInMillis(0);
+		int num = (int) (dateRange / DAY_MILLIS) + 2;
+		dayStarts = new long[num];
+		days = new byte[num * DATE_BYTES];
+
+		for (int i=0; i<num; i++) {
+			cal.set(Calendar.HOUR_OF_DAY, 0);
+			cal.set(Calendar.MINUTE, 0);
+			cal.set(Calendar.SECOND, 0);
+			cal.set(Calendar.MILLISECOND, 0);
+			dayStarts[i] = cal.getTimeInMillis();
+
+			int off = i * DATE_BYTES;
+			off = putDigits(days, off, cal.get(Calendar.YEAR), 4);
+			days[off++] = '-';
+			off = putDigits(days, off, cal.get(Calendar.MONTH) + 1, 2);
+			days[off++] = '-';
+			putDigits(days, off, cal.get(Calendar.DAY_OF_MONTH), 2);
+
+			cal.add(Calendar.DAY_OF_MONTH, 1);
+		}
 	}
 	
 	private String nextCountryCode() {
@@ -140,6 +219,129 @@ public class Visit {
 			nextTimeDuration());
 	}
 	
+	private void appendIp() {
+		tb.append(rand.nextInt(254)+1).append((byte) '.')
+			.append(rand.nextInt(255)).append((byte) '.')
+			.append(rand.nextInt(255)).append((byte) '.')
+			.append(rand.nextInt(254)+1);
+	}
+
+	private void appendDate() {
+		long time = (long) Math.floor(rand.nextDouble() * dateRange);
+		int day = (int) Math.min((time - dayStarts[0]) / DAY_MILLIS, dayStarts.length - 1);
+		// days are not all 24 hours long in time zones with daylight saving
+		while (day > 0 && dayStarts[day] > time) {
+			day--;
+		}
+		while (day + 1 < dayStarts.length && dayStarts[day + 1] <= time) {
+			day++;
+		}
+		tb.append(days, day * DATE_BYTES, DATE_BYTES);
+	}
+
+	/***
+	 * Append the profit as Float.toString would. A profit is k / 2^24 for an
+	 * integer k, which is worked on in fixed point: the shortest decimal
+	 * rounding back to it, the closest one when there are several. This gives
+	 * the same bytes as Float.toString for every such profit (checked for all
+	 * 2^24 of them); the rare ones below 10^-3 are written in scientific
+	 * notation by Float.toString itself.
+	 */
+	private void appendProfit() {
+		float profit = rand.nextFloat();
+		if (profit < 1e-3f) {
+			tb.append(Float.toString(profit).getBytes());
+			return;
+		}
+
+		// profit = sig * 2^-(24+shift), with a 24 bits significand
+		int k = (int) (profit * (1 << 24));
+		int shift = Integer.numberOfLeadingZeros(k) - 8;
+		long sig = (long) k << shift;
+		int scale = 26 + shift;
+
+		// the values rounding to profit, scaled by 2^scale, are in [lo, hi],
+		// ends included for an even significand. Below a power of 2 the
+		// previous float is half as far.
+		long mid = sig << 2;
+		long lo = (sig == (1L << 23)) ? mid - 1 : mid - 2;
+		long hi = mid + 2;
+		boolean even = (0 == (sig & 1));
+
+		int q = 1;
+		long mlo = 0, mhi = -1;
+		for (; q <= MAX_PROFIT_DIGITS; q++) {
+			long slo = lo * POW10[q], shi = hi * POW10[q];
+			mlo = (slo + (1L << scale) - 1) >> scale;
+			if (!even && (mlo << scale) == slo) {
+				mlo++;
+			}
+			mhi = shi >> scale;
+			if (!even && (mhi << scale) == shi) {
+				mhi--;
+			}
+			if (mlo <= mhi) {
+				break;
+			}
+		}
+
+		if (q > MAX_PROFIT_DIGITS) {
+			tb.append(Float.toString(profit).getBytes());
+			return;
+		}
+
+		// a single digit is not enough to pick the closest one, use two
+		if (mhi < 10) {
+			q++;
+			long slo = lo * POW10[q], shi = hi * POW10[q];
+			mlo = (slo + (1L << scale) - 1) >> scale;
+			if (!even && (mlo << scale) == slo) {
+				mlo++;
+			}
+			mhi = shi >> scale;
+			if (!even && (mhi << scale) == shi) {
+				mhi--;
+			}
+		}
+
+		// closest to profit, ties to even
+		long exact = mid * POW10[q];
+		long m = exact >> scale;
+		long rem = exact - (m << scale);
+		long half = 1L << (scale - 1);
+		if (rem > half || (rem == half && 1 == (m & 1))) {
+			m++;
+		}
+		m = Math.max(mlo, Math.min(mhi, m));
+
+		while (q > 1 && 0 == m % 10) {
+			m = m / 10;
+			q--;
+		}
+		tb.append((byte) '0').append((byte) '.');
+		for (long p = POW10[q - 1]; p > m; p = p / 10) {
+			tb.append((byte) '0');
+		}
+		tb.append(m);
+	}
+
+	/***
+	 * encode the record of a visit of the given url into value
+	 */
+	public void nextAccess(byte[] url, int off, int len, Text value) {
+		tb.reset();
+		appendIp();
+		tb.append(bdelim).append(url, off, len).append(bdelim);
+		appendDate();
+		tb.append(bdelim);
+		appendProfit();
+		tb.append(bdelim).append(buagents[rand.nextInt(buagents.length)])
+			.append(bdelim).append(bccodes[rand.nextInt(bccodes.length)])
+			.append(bdelim).append(bskeys[rand.nextInt(bskeys.length)])
+			.append(bdelim).append(rand.nextInt(10)+1);
+		tb.writeTo(value);
+	}
+
 	public String debug() {
 		return
 		"[delim: " + delim + "] " +
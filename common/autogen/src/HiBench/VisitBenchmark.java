@@ -0,0 +1,143 @@
+package HiBench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+
+/***
+ * Micro benchmark of the user visit records. For the same seeds, it reports
+ * rows/sec of Visit.nextAccess(String) set into a Text, the way the visits
+ * were created before, and of Visit.nextAccess(byte[], int, int, Text), and
+ * counts the rows on which both differ, which should be none.
+ *
+ * usage: VisitBenchmark [-n <rows>] [-r <rounds>] [-p <pages>] [-d <delimiter>]
+ */
+public class VisitBenchmark {
+
+	private long rows = 10000000;
+	private int rounds = 3;
+	private long pages = 1000000;
+	private String delim = ",";
+
+	private void parseArgs(String[] args) {
+		for (int i=0; i<args.length; i++) {
+			if ("-n".equals(args[i])) {
+				rows = Long.parseLong(args[++i]);
+			} else if ("-r".equals(args[i])) {
+				rounds = Integer.parseInt(args[++i]);
+			} else if ("-p".equals(args[i])) {
+				pages = Long.parseLong(args[++i]);
+			} else if ("-d".equals(args[i])) {
+				delim = args[++i];
+			} else {
+				System.out.println("Unknown argument -- " + args[i] + "!!!");
+				System.exit(-1);
+			}
+		}
+	}
+
+	/***
+	 * local copies of the user agents, country codes and search keys, as
+	 * the tasks get them from the distributed cache
+	 */
+	private static Path[] createCacheFiles(File dir) throws IOException {
+		File uagents = new File(dir, HiveData.uagentf);
+		File ccodes = new File(dir, HiveData.countryf);
+		File skeys = new File(dir, HiveData.searchkeyf);
+		RawData.createUserAgents(new Path(uagents.toURI()));
+		RawData.createCCodes(new Path(ccodes.toURI()));
+		RawData.createSearchKeys(new Path(skeys.toURI()));
+
+		return new Path[] {
+				new Path(uagents.getPath()),
+				new Path(ccodes.getPath()),
+				new Path(skeys.getPath())
+		};
+	}
+
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		if (null != files) {
+			for (File f : files) {
+				delete(f);
+			}
+		}
+		file.delete();
+	}
+
+	private void run(Visit strings, Visit bytes, byte[] url) {
+
+		Text v = new Text();
+		Text w = new Text();
+		for (int r=0; r<rounds; r++) {
+
+			strings.fireRandom(r + 1);
+			long sum = 0;
+			long start = System.nanoTime();
+			for (long i=0; i<rows; i++) {
+				v.set(strings.nextAccess(new String(url, 0, url.length)));
+				sum = sum + v.getLength();
+			}
+			long scost = System.nanoTime() - start;
+
+			bytes.fireRandom(r + 1);
+			long bsum = 0;
+			start = System.nanoTime();
+			for (long i=0; i<rows; i++) {
+				bytes.nextAccess(url, 0, url.length, w);
+				bsum = bsum + w.getLength();
+			}
+			long bcost = System.nanoTime() - start;
+
+			strings.fireRandom(r + 1);
+			bytes.fireRandom(r + 1);
+			long diffs = 0;
+			for (long i=0; i<rows; i++) {
+				v.set(strings.nextAccess(new String(url, 0, url.length)));
+				bytes.nextAccess(url, 0, url.length, w);
+				if (!v.equals(w)) {
+					if (0 == diffs) {
+						System.out.println("  string: " + v + "\n  bytes:  " + w);
+					}
+					diffs++;
+				}
+			}
+
+			System.out.println("round " + r
+					+ ": string " + Math.round(rows * 1e9 / scost) + " rows/sec"
+					+ ", bytes " + Math.round(rows * 1e9 / bcost) + " rows/sec"
+					+ ", mean row " + (bsum * 1.0 / rows) + " bytes"
+					+ ", " + diffs + " different rows"
+					+ ((sum == bsum) ? "" : ", different lengths"));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+
+		VisitBenchmark bench = new VisitBenchmark();
+		bench.parseArgs(args);
+
+		File dir = File.createTempFile("visits", "");
+		dir.delete();
+		dir.mkdirs();
+		try {
+			Path[] cacheFiles = createCacheFiles(dir);
+			Visit strings = new Visit(cacheFiles, bench.delim, bench.pages);
+			Visit bytes = new Visit(cacheFiles, bench.delim, bench.pages);
+
+			Random rand = new Random(0);
+			byte[] url = new byte[HtmlCore.getMaxUrlLength()];
+			for (int i=0; i<url.length; i++) {
+				url[i] = (byte) (rand.nextInt(26) + 'a');
+			}
+			System.out.println("url: " + new String(url) + ", " + bench.rows + " rows");
+
+			bench.run(strings, bytes, url);
+		} finally {
+			delete(dir);
+		}
+	}
+}
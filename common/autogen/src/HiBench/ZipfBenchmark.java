@@ -0,0 +1,88 @@
+package HiBench;
+
+/***
+ * Micro benchmark of the ZipfCore samplers. For the same Zipfian setup,
+ * it reports draws/sec of indexNext(), simpleNext() and aliasNext(), as well
+ * as the mean id and the hit ratio of the hottest id, which should agree
+ * across samplers since they follow the same distribution.
+ *
+ * usage: ZipfBenchmark [-p <elems>] [-e <exponent>] [-s <samples>]
+ * 						[-z <zoom>] [-n <draws>] [-r <rounds>]
+ */
+public class ZipfBenchmark {
+
+	private long elems = 10000000;
+	private double exponent = DataOptions.LINK_ZIPF_EXPONENT;
+	private long samples = -1;
+	private double zoom = DataOptions.LINK_SIMULATE_SPACE_RATIO;
+	private long draws = 50000000;
+	private int rounds = 3;
+
+	private void parseArgs(String[] args) {
+		for (int i=0; i<args.length; i++) {
+			if ("-p".equals(args[i])) {
+				elems = Long.parseLong(args[++i]);
+			} else if ("-e".equals(args[i])) {
+				exponent = Double.parseDouble(args[++i]);
+			} else if ("-s".equals(args[i])) {
+				samples = Long.parseLong(args[++i]);
+			} else if ("-z".equals(args[i])) {
+				zoom = Double.parseDouble(args[++i]);
+			} else if ("-n".equals(args[i])) {
+				draws = Long.parseLong(args[++i]);
+			} else if ("-r".equals(args[i])) {
+				rounds = Integer.parseInt(args[++i]);
+			} else {
+				System.out.println("Unknown argument -- " + args[i] + "!!!");
+				System.exit(-1);
+			}
+		}
+		if (samples <= 0) {
+			samples = (long) (elems * HtmlCore.getMeanLinksPerPage());
+		}
+	}
+
+	private void run(ZipfCore core, String name) {
+
+		for (int r=0; r<rounds; r++) {
+			core.setRandSeed(r + 1);
+
+			long sum = 0, hot = 0;
+			long start = System.nanoTime();
+			for (long i=0; i<draws; i++) {
+				long x;
+				if (ZipfCore.Sampler.ALIAS == core.sampler) {
+					x = core.aliasNext();
+				} else if (ZipfCore.Sampler.SEARCH == core.sampler) {
+					x = core.simpleNext();
+				} else {
+					x = core.indexNext();
+				}
+				sum = sum + x;
+				if (0 == x) {
+					hot++;
+				}
+			}
+			long cost = System.nanoTime() - start;
+
+			System.out.println(name + " round " + r
+					+ ": " + Math.round(draws * 1e9 / cost) + " draws/sec"
+					+ ", mean id: " + (sum * 1.0 / draws)
+					+ ", P(0): " + (hot * 1.0 / draws));
+		}
+	}
+
+	public static void main(String[] args) {
+
+		ZipfBenchmark bench = new ZipfBenchmark();
+		bench.parseArgs(args);
+
+		Zipfian zipfian = new Zipfian(bench.elems, bench.exponent);
+		zipfian.setupZipf(bench.samples, bench.zoom);
+		System.out.println(zipfian.debuginfo());
+
+		bench.run(zipfian.createZipfCore(ZipfCore.Sampler.INDEX), "index ");
+		bench.run(zipfian.createZipfCore(ZipfCore.Sampler.SEARCH), "search");
+		bench.run(zipfian.createZipfCore(ZipfCore.Sampler.ALIAS), "alias ");
+	}
+}
@@ -7,6 +7,16 @@ public class ZipfCore implements Serializable {
 
 	private static final long serialVersionUID = 2483499022100222872L;
 
+	/***
+	 * Sampling strategies over the same bucks:
+	 * 		INDEX:  bucket index lookup followed by a binary search (default)
+	 * 		SEARCH: plain binary search over all bucks
+	 * 		ALIAS:  Walker alias table over all bucks, O(1) per draw
+	 */
+	public static enum Sampler {
+		INDEX, SEARCH, ALIAS
+	}
+
 	public long elems, zelems;
 	public double exponent, scale;
 
@@ -15,7 +25,11 @@ public class ZipfCore implements Serializable {
 
 	public int[] buckIndex;
 	public long[] zbuck, xbuck, ybuck;	// bucks represented by three arrays
-	
+
+	public Sampler sampler;
+	public double[] aprob;				// alias table, only set for ALIAS sampler
+	public int[] alias;
+
 	public Random rand;
 
 	ZipfCore() {
@@ -30,6 +44,10 @@ public class ZipfCore implements Serializable {
 		}
 	}
 
+	public void setRand(Random rand) {
+		this.rand = rand;
+	}
+
 	public long simpleNext() {
 
 		long v = (long) Math.floor(rand.nextDouble() * zelems);
@@ -49,6 +67,15 @@ public class ZipfCore implements Serializable {
 	}
 
 	public long next() {
+		if (Sampler.ALIAS == sampler) {
+			return aliasNext();
+		} else if (Sampler.SEARCH == sampler) {
+			return simpleNext();
+		}
+		return indexNext();
+	}
+
+	public long indexNext() {
 
 		long v = (long) Math.floor(rand.nextDouble() * zelems);
 		
@@ -69,4 +96,33 @@ public class ZipfCore implements Serializable {
 		}
 		return xbuck[start] + (v - zbuck[start]) / ybuck[start];
 	}
+
+	/***
+	 * Pick a buck from the alias table, then pick x inside the buck. All x of
+	 * a folded buck share the same y value, so the inverse within the buck is
+	 * simply linear. A single uniform draw is split to serve both steps.
+	 */
+	public long aliasNext() {
+
+		double r = rand.nextDouble() * aprob.length;
+		int b = (int) r;
+		if (b == aprob.length) {
+			b--;
+		}
+		double f = r - b;
+
+		if (f < aprob[b]) {
+			f = f / aprob[b];
+		} else {
+			f = (f - aprob[b]) / (1 - aprob[b]);
+			b = alias[b];
+		}
+
+		long width = xbuck[b+1] - xbuck[b];
+		long x = (long) (f * width);
+		if (x >= width) {
+			x = width - 1;
+		}
+		return xbuck[b] + x;
+	}
 }
@@ -1,5 +1,8 @@
 package HiBench;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 /***
  * Zipfian distribution: Y(x) = f / pow(x, exponent) where x = 1, 2, ..., n
  * 
@@ -34,6 +37,8 @@ package HiBench;
 
 public class Zipfian {
 
+	private static final Log log = LogFactory.getLog(Zipfian.class.getName());
+
 	private long elems, knee;
 	private long zelems, zknee;
 	
@@ -93,6 +98,7 @@ public class Zipfian {
 
 	public void setupZipf(long samples, double zoom) {
 
+		long start = System.currentTimeMillis();
 		long expectVElems = (long) Math.floor(samples * zoom);
 		long baseVElems = calcFactors(0.5);
 
@@ -103,22 +109,82 @@ public class Zipfian {
 			System.exit(-1);
 		}
 		
-		// find the (almost) largest tail regarding the expectVElems
-		double vtail = Math.round(expectVElems * 0.5 / baseVElems) - 0.5;
-		if (vtail > 10) {
-			vtail = 10;
+		// find the (almost) largest tail regarding the expectVElems, among
+		// maxtail, maxtail - 1, ... (calcFactors grows with the tail)
+		double maxtail = Math.round(expectVElems * 0.5 / baseVElems) - 0.5;
+		if (maxtail > 10) {
+			maxtail = 10;
+		}
+		int steps = (int) Math.floor(maxtail - 0.5);
+
+		// the first probes are around the closed-form estimate of the tail
+		double guess = expectVElems / (Math.pow(elems, exponent) * estimateSumY(elems));
+		int probe = (int) Math.max(0, Math.min(steps, Math.ceil(maxtail - guess)));
+
+		int lo = 0, hi = steps, probes = 0;
+		while (lo < hi) {
+			boolean fits = calcFactors(maxtail - probe) <= expectVElems;
+			if (fits) {
+				hi = probe;
+			} else {
+				lo = probe + 1;
+			}
+			probes++;
+			if (probes < 2) {
+				probe = fits ? Math.max(lo, probe - 1) : Math.min(hi, probe + 1);
+			} else {
+				probe = (lo + hi) / 2;
+			}
 		}
+
+		double vtail = maxtail - lo;
 		while (calcFactors (vtail) > expectVElems) {
 			vtail = vtail - 1;
 		}
 
 		createIndex();
 		generateBucks();
+
+		log.info("Zipfian setup of " + elems + " elems (exponent " + exponent
+				+ "): tail " + vtail + ", " + zbuck.length + " bucks, "
+				+ (System.currentTimeMillis() - start) + " ms");
+	}
+	
+	/***
+	 * Euler-Maclaurin estimate of sum(pow(x, -exponent)) for x = 1, 2, ..., n:
+	 * the first terms are summed directly, the rest is the integral plus the
+	 * end point and derivative corrections. So Z(n) is about scale times it.
+	 */
+	private double estimateSumY(long n) {
+
+		long head = Math.min(n, 16);
+		double sum = 0;
+		for (long x=1; x<=head; x++) {
+			sum = sum + Math.pow(x, -exponent);
+		}
+		if (n == head) {
+			return sum;
+		}
+
+		double a = head, b = n;
+		double integral = (1 == exponent) ? Math.log(b / a)
+				: (Math.pow(b, 1 - exponent) - Math.pow(a, 1 - exponent)) / (1 - exponent);
+		double ends = (Math.pow(b, -exponent) - Math.pow(a, -exponent)) / 2;
+		double d1 = -exponent * (Math.pow(b, -exponent - 1) - Math.pow(a, -exponent - 1)) / 12;
+		double d3 = -exponent * (exponent + 1) * (exponent + 2)
+				* (Math.pow(b, -exponent - 3) - Math.pow(a, -exponent - 3)) / 720;
+
+		return sum + integral + ends + d1 - d3;
 	}
 	
 	public ZipfCore createZipfCore() {
+		return createZipfCore(ZipfCore.Sampler.INDEX);
+	}
+
+	public ZipfCore createZipfCore(ZipfCore.Sampler sampler) {
 		
 		ZipfCore kernel = new ZipfCore();
+		kernel.sampler = sampler;
 		
 		kernel.elems = elems;
 		kernel.exponent = exponent;
@@ -139,8 +205,65 @@ public class Zipfian {
 			kernel.buckIndex[i] = (int) buckIndex[i];
 		}
 
+		if (ZipfCore.Sampler.ALIAS == sampler) {
+			createAliasTable(kernel);
+		}
+
 		return kernel;
 	}
+
+	/***
+	 * Build a Walker alias table (Vose's method) over all bucks, the weight
+	 * of buck i being zbuck[i+1] - zbuck[i]. Picking a buck costs one table
+	 * access regardless of the number of bucks.
+	 */
+	private void createAliasTable(ZipfCore kernel) {
+
+		int n = zbuck.length - 1;
+		double[] prob = new double[n];
+		int[] alias = new int[n];
+
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int ns = 0, nl = 0;
+
+		double total = zbuck[n] - zbuck[0];
+		for (int i=0; i<n; i++) {
+			prob[i] = (zbuck[i+1] - zbuck[i]) * n / total;
+			if (prob[i] < 1.0) {
+				small[ns++] = i;
+			} else {
+				large[nl++] = i;
+			}
+		}
+
+		while (ns > 0 && nl > 0) {
+			int s = small[--ns];
+			int l = large[--nl];
+			alias[s] = l;
+			prob[l] = prob[l] + prob[s] - 1.0;
+			if (prob[l] < 1.0) {
+				small[ns++] = l;
+			} else {
+				large[nl++] = l;
+			}
+		}
+
+		// left-overs are (up to rounding errors) exactly full
+		while (nl > 0) {
+			int l = large[--nl];
+			prob[l] = 1.0;
+			alias[l] = l;
+		}
+		while (ns > 0) {
+			int s = small[--ns];
+			prob[s] = 1.0;
+			alias[s] = s;
+		}
+
+		kernel.aprob = prob;
+		kernel.alias = alias;
+	}
 	
 	private double getXfromDerivative(double derivative) {
 		return Math.pow((scale * exponent) / derivative, 1.0 / (1 + exponent));
@@ -37,9 +37,10 @@ import org.apache.hadoop.mapred.Reporter;
  * overloaded in derived classes to define the IO operation and the
  * statistics data to be collected by subsequent reducers.
  * 
+ * @param <V> type of the statistics values
  */
-public abstract class IOMapperBase extends Configured
-    implements Mapper<Text, LongWritable, Text, Text> {
+public abstract class IOMapperBase<V> extends Configured
+    implements Mapper<Text, LongWritable, Text, V> {
   
   protected byte[] buffer;
   protected int bufferSize;
@@ -92,7 +93,7 @@ public abstract class IOMapperBase extends Configured
    * @param doIOReturnValue value returned by {@link #doIO(Reporter,String,long)}
    * @throws IOException
    */
-  abstract void collectStats(OutputCollector<Text, Text> output, 
+  abstract void collectStats(OutputCollector<Text, V> output, 
                              String name, 
                              long execTime, 
                              Object doIOReturnValue) throws IOException;
@@ -112,7 +113,7 @@ public abstract class IOMapperBase extends Configured
    */
   public void map(Text key, 
                   LongWritable value,
-                  OutputCollector<Text, Text> output, 
+                  OutputCollector<Text, V> output, 
                   Reporter reporter) throws IOException {
     String name = key.toString();
     long longValue = value.get();
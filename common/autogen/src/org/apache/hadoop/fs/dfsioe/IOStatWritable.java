@@ -0,0 +1,49 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.dfsioe;
+
+import org.apache.hadoop.io.GenericWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+
+/**
+ * Statistics value of the enhanced benchmark: a {@link Text} number of the
+ * <tt>l:</tt> and <tt>f:</tt> statistics, a {@link ThroughputHistogram}
+ * (<tt>h:</tt>) or the {@link ThroughputSamples} of a file (<tt>s:</tt>).
+ */
+public class IOStatWritable extends GenericWritable {
+
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static final Class<? extends Writable>[] TYPES = new Class[] {
+    Text.class,
+    ThroughputHistogram.class,
+    ThroughputSamples.class,
+  };
+
+  public IOStatWritable() {
+  }
+
+  public IOStatWritable(Writable value) {
+    set(value);
+  }
+
+  @Override
+  protected Class<? extends Writable>[] getTypes() {
+    return TYPES;
+  }
+}
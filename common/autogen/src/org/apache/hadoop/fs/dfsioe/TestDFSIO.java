@@ -151,7 +151,7 @@ public class TestDFSIO extends Configured implements Tool {
    * <li>i/o rate squared</li>
    * </ul>
    */
-  private abstract static class IOStatMapper extends IOMapperBase {
+  private abstract static class IOStatMapper extends IOMapperBase<Text> {
     IOStatMapper() { 
       super(fsConfig);
     }
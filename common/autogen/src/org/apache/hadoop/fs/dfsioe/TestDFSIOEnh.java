@@ -19,17 +19,24 @@
 package org.apache.hadoop.fs.dfsioe;
 
 import java.io.*;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 
-import java.util.Date;
-import java.util.StringTokenizer;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.commons.logging.*;
 
 import org.apache.hadoop.mapred.*;
-import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.util.StringUtils;
 import org.apache.hadoop.util.Tool;
 import org.apache.hadoop.util.ToolRunner;
@@ -37,8 +44,6 @@ import org.apache.hadoop.io.*;
 import org.apache.hadoop.io.SequenceFile.CompressionType;
 import org.apache.hadoop.conf.*;
 import org.apache.hadoop.fs.*;
-import org.apache.hadoop.fs.dfsioe.Analyzer._Mapper;
-import org.apache.hadoop.fs.dfsioe.Analyzer._Reducer;
 
 /**
  * Enhanced Distributed i/o benchmark.
@@ -64,11 +69,13 @@ import org.apache.hadoop.fs.dfsioe.Analyzer._Reducer;
  * <li>the total time spent on throughput sampling (new)</li>
  * </ul>
  *    
- * Finally, for each file, the throughput samples are interpolated and sampled again 
- * at the rate the plotInterval. This re-sampling result will be output to a csv file, 
- * if "-tputReportEach" is in commandline arguments.      
- * Then, the re-sampled throughput of each file is aggregated to a total  and output to a file.
- * if "-tputResultTotal"
+ * Each map task interpolates the throughput samples of its file at the slots
+ * of the plotInterval and emits the bytes moved during each slot as a binary
+ * histogram, which the combiner and the single reducer sum up to the
+ * aggregated throughput in one pass. The aggregated throughput is output to
+ * a csv file if "-tputReportTotal" is in commandline arguments; with
+ * "-tputReportEach" the samples of each file are kept and re-sampled into a
+ * csv file per file.
  * and the following information is appended to a local file
  * <ul>
  * <li>read or write test</li>
@@ -99,8 +106,6 @@ public class TestDFSIOEnh extends Configured implements Tool {
   protected static Path WRITE_DIR = new Path(TEST_ROOT_DIR, "io_write");
   protected static Path READ_DIR = new Path(TEST_ROOT_DIR, "io_read");
   private static Path DATA_DIR = new Path(TEST_ROOT_DIR, "io_data");
-  private static Path REPORT_DIR = new Path(TEST_ROOT_DIR, "reports");
-  private static Path REPORT_TMP = new Path(TEST_ROOT_DIR, "_merged_reports.txt");
 
 
   static{
@@ -119,73 +124,244 @@ public class TestDFSIOEnh extends Configured implements Tool {
   private static final long   DEFAULT_TPUT_SAMPLE_UNIT = MEGA; // the unit of sample
   private static final int    DEFAULT_TPUT_PLOT_INTERVAL = 1000; //plot interval in milliseconds
 
+  //read modes, see ReadMapperEnh
+  private static final String READ_MODE_SEQ = "seq";
+  private static final String READ_MODE_BYTE_BUFFER = "bytebuffer";
+  private static final String READ_MODE_PREAD = "pread";
+  private static final String READ_MODE_RANDOM = "random";
+
 
   
+  /**
+   * Statistics of one stream of a map task: the bytes it moved and its
+   * throughput samples, taken with one clock read per buffer. The samples
+   * are kept in primitive arrays allocated once per task and reused by its
+   * next files.
+   */
   protected static class IOStatistics {
-    public Long objSize = new Long(0);
-    public ArrayList<Long> statHdfs = new ArrayList<Long> ();
-    public int loggingTime = 0;
+    public long objSize = 0;
+    public ThroughputSamples statHdfs = new ThroughputSamples(1024);
+    public float loggingTime = 0;
+
+    // sampling clock: wall clock time of the start, read once, plus the
+    // elapsed time of System.nanoTime()
+    private long startMillis;
+    private long startNanos;
+    private long samplingNanos;
+    private long lastSample;
+    private long overheadNanos;
+
+    /**
+     * Start the samples of a stream, with none of its bytes done.
+     */
+    public void startSampling(int samplingInterval) {
+        statHdfs.clear();
+        samplingNanos = samplingInterval * 1000000L;
+        overheadNanos = 0;
+        startMillis = System.currentTimeMillis();
+        startNanos = System.nanoTime();
+        lastSample = startNanos;
+        statHdfs.add(startMillis, 0);
+    }
+
+    private long toMillis(long nanos) {
+        return startMillis + (nanos - startNanos) / 1000000L;
+    }
+
+    /**
+     * @return true if a sample of bytes was taken at time now, once per
+     *         sampling interval
+     */
+    public boolean sample(long now, long bytes) {
+        if (now - lastSample < samplingNanos)
+            return false;
+        statHdfs.add(toMillis(now), bytes);
+        lastSample = now;
+        return true;
+    }
+
+    /**
+     * Add the last sample, all the bytes done.
+     */
+    public void stopSampling(long bytes) {
+        statHdfs.add(toMillis(System.nanoTime()), bytes);
+        loggingTime = overheadNanos / 1000000f;
+    }
   }
   
   
-  protected abstract static class IOStatMapperEnh extends IOMapperBase {
+  /**
+   * Base of the read and write mappers. A map task accesses its file with
+   * "-streams" concurrent streams, each one on its own share of the bytes
+   * and with its own samples; with more than one stream, the streams run
+   * in a pool of threads of the task.
+   */
+  protected abstract static class IOStatMapperEnh extends IOMapperBase<IOStatWritable> {
     IOStatMapperEnh() {
       super(fsConfig);
     }
 
-    protected IOStatistics stats = new IOStatistics();    
+    protected IOStatistics[] stats = new IOStatistics[0];
     protected int samplingInterval;
+    protected long tStart;
+    protected int plotInterval;
+    protected boolean reportEach;
+    protected int streams = 1;
+    protected String readMode = READ_MODE_SEQ;
+    private ExecutorService pool;
 
     protected  void init(Configuration conf){
         samplingInterval = conf.getInt("test.io.sampling.interval",DEFAULT_TPUT_SAMPLING_INTERVAL);
-        
+        tStart = conf.getLong("test.io.start.time", 0);
+        plotInterval = conf.getInt("test.io.plot.interval", DEFAULT_TPUT_PLOT_INTERVAL);
+        reportEach = conf.getBoolean("test.io.report.each", false);
+        streams = Math.max(1, conf.getInt("test.io.streams", 1));
+        readMode = conf.get("test.io.read.mode", READ_MODE_SEQ);
+    }
+
+    @Override
+    public void configure(JobConf job) {
+        super.configure(job);
+        init(job);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (null != pool)
+            pool.shutdownNow();
+    }
+
+    private static IOStatWritable stat(String value) {
+        return new IOStatWritable(new Text(value));
+    }
+
+    /**
+     * Called after each buffer: one clock read, and a sample plus a status
+     * update once per sampling interval only.
+     */
+    protected void sample(IOStatistics stats, Reporter reporter, String op, String name, long bytes, long totalSize) {
+        long now = System.nanoTime();
+        if (stats.sample(now, bytes)) {
+            reporter.setStatus(op + " " + name + "@" + bytes + "/" + totalSize
+                               + " ::host = " + hostName);
+            stats.overheadNanos += System.nanoTime() - now;
+        }
+    }
+
+    protected String getStreamName(String name, int stream) {
+        return (1 == streams) ? name : name + "." + stream;
+    }
+
+    protected long getStreamOffset(long totalSize, int stream) {
+        return totalSize / streams * stream;
+    }
+
+    protected long getStreamSize(long totalSize, int stream) {
+        return (stream == streams - 1) ? totalSize - getStreamOffset(totalSize, stream) : totalSize / streams;
+    }
+
+    /**
+     * Move the share of stream of the totalSize bytes of file name.
+     */
+    abstract void doStreamIO(Reporter reporter,
+                             String name,
+                             int stream,
+                             long totalSize,
+                             IOStatistics stats) throws IOException;
+
+    public Object doIO(final Reporter reporter,
+                       final String name,
+                       long totalSize
+                       ) throws IOException {
+
+        final long size = totalSize * MEGA;
+        if (stats.length != streams) {
+            stats = new IOStatistics[streams];
+            for (int i = 0; i < streams; i++)
+                stats[i] = new IOStatistics();
+        }
+        if (1 == streams) {
+            doStreamIO(reporter, name, 0, size, stats[0]);
+            return stats;
+        }
+
+        if (null == pool) {
+            pool = Executors.newFixedThreadPool(streams, new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "dfsioe stream");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        List<Future<Object>> done = new ArrayList<Future<Object>>();
+        for (int i = 0; i < streams; i++) {
+            final int stream = i;
+            done.add(pool.submit(new Callable<Object>() {
+                public Object call() throws IOException {
+                    doStreamIO(reporter, name, stream, size, stats[stream]);
+                    return null;
+                }
+            }));
+        }
+        try {
+            for (Future<Object> f : done)
+                f.get();
+        } catch (InterruptedException e) {
+            throw new IOException("interrupted while waiting for the streams of " + name);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(StringUtils.stringifyException(e.getCause()));
+        }
+        return stats;
     }
 
-    void collectStats(OutputCollector<Text, Text> output,
+    void collectStats(OutputCollector<Text, IOStatWritable> output,
                       String name,
                       long execTime,
                       Object statistics) throws IOException {
         
-        IOStatistics stats = (IOStatistics) statistics;
+        IOStatistics[] stats = (IOStatistics[]) statistics;
 
         //original TestDFSIO benchmark report
         //super.collectStats(output, name, execTime,stats.objSize);
-        long totalSize = ((Long)stats.objSize).longValue();
+        long totalSize = 0;
+        float loggingTime = 0;
+        for (int i = 0; i < stats.length; i++) {
+            totalSize += stats[i].objSize;
+            loggingTime += stats[i].loggingTime;
+        }
         float ioRateMbSec = (float)totalSize * 1000 / (execTime * MEGA);
         LOG.info("Number of bytes processed = " + totalSize);
         LOG.info("Exec time = " + execTime);
         LOG.info("IO rate = " + ioRateMbSec);
 
-        output.collect(new Text("l:tasks"), new Text(String.valueOf(1)));
-        output.collect(new Text("l:size"), new Text(String.valueOf(totalSize)));
-        output.collect(new Text("l:time"), new Text(String.valueOf(execTime)));
-        output.collect(new Text("f:rate"), new Text(String.valueOf(ioRateMbSec*1000)));
-        output.collect(new Text("f:sqrate"), new Text(String.valueOf(ioRateMbSec*ioRateMbSec*1000)));
+        output.collect(new Text("l:tasks"), stat(String.valueOf(1)));
+        output.collect(new Text("l:size"), stat(String.valueOf(totalSize)));
+        output.collect(new Text("l:time"), stat(String.valueOf(execTime)));
+        output.collect(new Text("f:rate"), stat(String.valueOf(ioRateMbSec*1000)));
+        output.collect(new Text("f:sqrate"), stat(String.valueOf(ioRateMbSec*ioRateMbSec*1000)));
  
-        //enhanced report for real-time throughput
-        int size = stats.statHdfs.size();
-        StringBuilder statsSum = new StringBuilder();
-        int serialNo = 0;
-        int lastLen = 0;
-        for(int i = 0; i< size; i += 2) {
-            long timeStamp = stats.statHdfs.get(i);
-            long bytes = stats.statHdfs.get(i+1);
-            statsSum.append(timeStamp);
-            statsSum.append(":");
-            statsSum.append(bytes);
-            statsSum.append(";");
-            if (i%100 == 0){
-                int len = statsSum.length();
-                output.collect(new Text("s:"+name+":"+serialNo+":tput_samples"),new Text(statsSum.substring(lastLen,len)+"EoR"));
-                serialNo ++;
-                lastLen = len;
-            }
+        //enhanced report for real-time throughput, summed over the streams
+        ThroughputHistogram tput = new ThroughputHistogram();
+        long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        for (int i = 0; i < stats.length; i++) {
+            ThroughputSamples samples = stats[i].statHdfs;
+            tput.addSamples(samples, tStart, plotInterval);
+            first = Math.min(first, samples.getTime(0));
+            last = Math.max(last, samples.getTime(samples.size()-1));
+            if (reportEach)
+                output.collect(new Text("s:"+getStreamName(name, i)+":tput_samples"), new IOStatWritable(samples));
         }
-        statsSum.append("EoR");
-        output.collect(new Text("s:"+name+":"+serialNo+":tput_samples"), new Text(statsSum.substring(lastLen,statsSum.length())));
-        //add start and end time stamp
-        output.collect(new Text("g:"+name+":io_start_end"), new Text(String.valueOf(stats.statHdfs.get(0))+";"+String.valueOf(stats.statHdfs.get(size-2))));
-        output.collect(new Text("f:logging_time"), new Text(String.valueOf(stats.loggingTime)));
+        output.collect(new Text("h:tput"), new IOStatWritable(tput));
+        //count the task in the slots it spans entirely
+        int start = (int)((first-tStart)/plotInterval) + 1;
+        int end = (int)((last-tStart)/plotInterval) - 1;
+        ThroughputHistogram concurrency = new ThroughputHistogram();
+        concurrency.add(Math.max(start, 0), end + 1, 1);
+        output.collect(new Text("h:concurrency"), new IOStatWritable(concurrency));
+        output.collect(new Text("f:logging_time"), stat(String.valueOf(loggingTime)));
     }
   }
 
@@ -199,40 +375,33 @@ public class TestDFSIOEnh extends Configured implements Tool {
     }     
 
 
-    public Object doIO(Reporter reporter,
-                       String name,
-                       long totalSize
-                       ) throws IOException{
-
-        totalSize *= MEGA;
+    /**
+     * Each stream writes a file of its own, the streams only read the
+     * buffer and share it.
+     */
+    void doStreamIO(Reporter reporter,
+                    String name,
+                    int stream,
+                    long totalSize,
+                    IOStatistics stats
+                    ) throws IOException{
+
+        String streamName = getStreamName(name, stream);
+        long size = getStreamSize(totalSize, stream);
         OutputStream out;
-        out = fs.create(new Path(DATA_DIR, name), true, bufferSize);
-        stats.objSize = totalSize;        
+        out = fs.create(new Path(DATA_DIR, streamName), true, bufferSize);
+        stats.objSize = size;        
         
-        long lastTimeStamp=0;
-        int time = 0;
         //log start time
-        long startTime = System.currentTimeMillis();
-        stats.statHdfs.add(new Long(startTime));
-        stats.statHdfs.add(new Long(0));
+        stats.startSampling(samplingInterval);
         
         try {
             long nrRemaining;
-            for (nrRemaining = totalSize; nrRemaining > 0; nrRemaining -= bufferSize) {
+            for (nrRemaining = size; nrRemaining > 0; nrRemaining -= bufferSize) {
                 int curSize = (bufferSize < nrRemaining)? bufferSize : (int)nrRemaining;
                 out.write(buffer, 0, curSize);
-                reporter.setStatus("writing " + name + "@" + 
-                                    (totalSize - nrRemaining) + "/" + totalSize
-                                    + " ::host = " + hostName);
-                //add statistics logging
-                long currentTime = System.currentTimeMillis();
-                if( lastTimeStamp==0 || (currentTime-lastTimeStamp) >= samplingInterval) {
-                    stats.statHdfs.add(new Long(currentTime));
-                    stats.statHdfs.add(new Long(totalSize-nrRemaining));
-                    lastTimeStamp=currentTime;
-                }
-                long end = System.currentTimeMillis();
-                time += (end-currentTime);
+                //add statistics samples
+                sample(stats, reporter, "writing", streamName, size - nrRemaining + curSize, size);
             }        
   
         } finally {
@@ -240,12 +409,7 @@ public class TestDFSIOEnh extends Configured implements Tool {
         }
 
         //log end time
-        long endTime = System.currentTimeMillis();        
-        stats.statHdfs.add(new Long(endTime));
-        stats.statHdfs.add(new Long(totalSize));
-
-        stats.loggingTime = time;
-        return stats;
+        stats.stopSampling(size);
     }
 
   }
@@ -272,61 +436,136 @@ public class TestDFSIOEnh extends Configured implements Tool {
 
   /**
    * Read mapper class.
+   * <p>
+   * The streams read the files written by as many streams, or their share
+   * of a file written by one stream. In the "-readMode":
+   * <ul>
+   * <li><tt>seq</tt> - a stream seeks to its share and reads it through</li>
+   * <li><tt>bytebuffer</tt> - the same into a direct ByteBuffer, where the
+   * file system stream is a ByteBufferReadable, otherwise as seq</li>
+   * <li><tt>pread</tt> - positional reads of the buffers of the share in
+   * order, without moving the stream</li>
+   * <li><tt>random</tt> - positional reads of as many buffers at random
+   * offsets within the share</li>
+   * </ul>
    */
   public static class ReadMapperEnh extends IOStatMapperEnh {
 
+    // read(ByteBuffer) of the streams, looked up as hadoop 1 has none
+    private static final Method BYTE_BUFFER_READ = getByteBufferRead();
+
+    private static Method getByteBufferRead() {
+        try {
+            Class<?> readable = Class.forName("org.apache.hadoop.fs.ByteBufferReadable");
+            return readable.getMethod("read", ByteBuffer.class);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private byte[][] buffers = new byte[0][];
+    private ByteBuffer[] directs = new ByteBuffer[0];
+
     public ReadMapperEnh() { 
         super(); 
     }
 
-    public Object doIO(Reporter reporter, 
-                       String name, 
-                       long totalSize 
-                       ) throws IOException {
+    @Override
+    protected void init(Configuration conf) {
+        super.init(conf);
+        buffers = new byte[streams][];
+        directs = new ByteBuffer[streams];
+        for (int i = 0; i < streams; i++) {
+            buffers[i] = (0 == i) ? buffer : new byte[bufferSize];
+            if (READ_MODE_BYTE_BUFFER.equals(readMode))
+                directs[i] = ByteBuffer.allocateDirect(bufferSize);
+        }
+        if (READ_MODE_BYTE_BUFFER.equals(readMode) && null == BYTE_BUFFER_READ)
+            LOG.warn("No ByteBufferReadable streams in this hadoop, reading into byte arrays");
+    }
 
-        totalSize *= MEGA;
-        // open file
-        DataInputStream in = fs.open(new Path(DATA_DIR, name));
-        stats.objSize = totalSize;
+    /**
+     * @return the bytes read into the direct buffer, null if the stream
+     *         can not read into it
+     */
+    private static Integer read(FSDataInputStream in, ByteBuffer direct, int len) throws IOException {
+        if (null == BYTE_BUFFER_READ || !BYTE_BUFFER_READ.getDeclaringClass().isInstance(in))
+            return null;
+        direct.clear();
+        direct.limit(len);
+        try {
+            return (Integer) BYTE_BUFFER_READ.invoke(in, direct);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof UnsupportedOperationException)
+                return null;
+            if (e.getCause() instanceof IOException)
+                throw (IOException) e.getCause();
+            throw new IOException(StringUtils.stringifyException(e.getCause()));
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
 
-        long lastTimeStamp = 0;
-        int time = 0;
+    void doStreamIO(Reporter reporter, 
+                    String name, 
+                    int stream,
+                    long totalSize,
+                    IOStatistics stats
+                    ) throws IOException {
+
+        String streamName = getStreamName(name, stream);
+        long size = getStreamSize(totalSize, stream);
+        // a file written by one stream is shared by the streams
+        Path path = new Path(DATA_DIR, name);
+        long offset = getStreamOffset(totalSize, stream);
+        if (streams > 1 && !fs.exists(path)) {
+            path = new Path(DATA_DIR, streamName);
+            offset = 0;
+        }
+        byte[] buf = (null == buffers || stream >= buffers.length) ? buffer : buffers[stream];
+        ByteBuffer direct = (null == directs || stream >= directs.length) ? null : directs[stream];
+
+        // open file
+        FSDataInputStream in = fs.open(path);
+        stats.objSize = size;
 
         //log start time 
-        long startTime = System.currentTimeMillis();
-        stats.statHdfs.add(new Long(startTime));
-        stats.statHdfs.add(new Long(0));
+        stats.startSampling(samplingInterval);
 
-        
         long actualSize = 0;
         try {
-            while (actualSize < totalSize) {
-                int curSize = in.read(buffer, 0, bufferSize);
-                if (curSize < 0) break;
-                actualSize += curSize;
-                reporter.setStatus("reading " + name + "@" + 
-                             actualSize + "/" + totalSize 
-                             + " ::host = " + hostName);
-                //add statistics samples        
-                long currentTime = System.currentTimeMillis();
-                if( lastTimeStamp==0 || (currentTime-lastTimeStamp) >= samplingInterval) {
-                    stats.statHdfs.add(new Long(currentTime));
-                    stats.statHdfs.add(new Long(actualSize));
-                    lastTimeStamp=currentTime;
+            if (READ_MODE_PREAD.equals(readMode) || READ_MODE_RANDOM.equals(readMode)) {
+                long blocks = (size + bufferSize - 1) / bufferSize;
+                Random rand = READ_MODE_RANDOM.equals(readMode) ? new Random(streamName.hashCode()) : null;
+                for (long b = 0; b < blocks; b++) {
+                    long pos = ((null == rand) ? b : (long)(rand.nextDouble() * blocks)) * bufferSize;
+                    int curSize = (int) Math.min(bufferSize, size - pos);
+                    in.readFully(offset + pos, buf, 0, curSize);
+                    actualSize += curSize;
+                    //add statistics samples        
+                    sample(stats, reporter, "reading", streamName, actualSize, size);
+                }
+            } else {
+                if (offset > 0)
+                    in.seek(offset);
+                while (actualSize < size) {
+                    int len = (int) Math.min(bufferSize, size - actualSize);
+                    Integer curSize = (null == direct) ? null : read(in, direct, len);
+                    if (null == curSize) {
+                        direct = null;
+                        curSize = in.read(buf, 0, len);
+                    }
+                    if (curSize < 0) break;
+                    actualSize += curSize;
+                    //add statistics samples        
+                    sample(stats, reporter, "reading", streamName, actualSize, size);
                 }
-                long end = System.currentTimeMillis();
-                time += (end-currentTime);
             }
         } finally {
             in.close();
         }
         //log end time
-        long endTime = System.currentTimeMillis();
-        stats.statHdfs.add(new Long(endTime));
-        stats.statHdfs.add(new Long(actualSize));
-   
-        stats.loggingTime = time;
-        return stats;
+        stats.stopSampling(actualSize);
     }
   }
 
@@ -366,114 +605,17 @@ public class TestDFSIOEnh extends Configured implements Tool {
     job.setInputFormat(SequenceFileInputFormat.class);
 
     job.setMapperClass(mapperClass);
-    job.setReducerClass(AccumulatingReducer.class);
+    job.setCombinerClass(TputAccumulatingReducer.class);
+    job.setReducerClass(TputAccumulatingReducer.class);
 
     FileOutputFormat.setOutputPath(job, outputDir);
+    job.setOutputFormat(SequenceFileOutputFormat.class);
     job.setOutputKeyClass(Text.class);
-    job.setOutputValueClass(Text.class);
+    job.setOutputValueClass(IOStatWritable.class);
     job.setNumReduceTasks(1);
     JobClient.runJob(job);
   }
 
- /**
-  * A linear interpolator.
-  *
-  * Add a series of points (x,y) and then 
-  * get interpolated value y at specific x
-  */
-  protected static class LinearInterpolator {
-
-    private ArrayList<Point> points = new ArrayList<Point>();
-    boolean sorted = false;
-
-    /**
-     * 2-D sample Point definition.
-     */
-    protected static class Point {
-        private double x;
-        private double y;
-        Point (double x, double y) {
-            this.x = x;
-            this.y = y;
-        }
-        public double x () { return x;}
-        public double y () { return y;}
-
-        public static class ComparatorX implements Comparator<Point> {
-            public int compare(Point p1, Point p2){
-                double p1X = p1.x();
-                double p2X = p2.x();
-                if (p1X > p2X) 
-                    return 1;
-                else if(p1X < p2X)
-                    return -1;
-                else
-                    return 0;
-            }
-       }
-    }
-
-    /**
-     * Add Sample Points.
-     */
-    public void add (double x, double y){
-        points.add(new Point(x,y));
-        sorted = false;
-    }
-
-    protected int searchNearest(double x){
-        //check out of bounds
-        if(x > points.get(points.size()-1).x() || x < points.get(0).x()) {
-            return -1;
-        }
-        //find nearest
-        for (int index = 0; index<points.size(); index++){
-            if(points.get(index).x() >= x)
-                return index;
-        }
-        return -1;
-    }
-
-    /**
-     * Get Interpolated value.
-     */
-    public double get (double x) {
-        if(!sorted){
-            Collections.sort(points, new Point.ComparatorX());
-            sorted = true;
-        }
-        //find the nearest points
-        int index = searchNearest(x);
-        if(-1 == index) { 
-            LOG.error("point out of bound of available interpolation");
-            return -1;
-        }
-        // if index = 0, x must be equal to the first element.
-        if(0 == index ) {
-            return points.get(0).y();
-        } else {
-            //do interpolation
-            double x_0 = points.get(index-1).x();
-            double x_1 = points.get(index).x();
-            double y_0 = points.get(index-1).y();
-            double y_1 = points.get(index).y();
-            double y = (y_1-y_0)/(x_1-x_0)*(x-x_0)+y_0;
-            return y;   
-        }
-    }
-    /**
-     * Dump Sample Points. 
-     * For debug use.
-     */
-    public void dumpPoints(){
-        for(int i = 0; i<points.size(); i++){
-            double x = points.get(i).x();
-            double y = points.get(i).y();
-            LOG.info("i="+i+" ("+x+","+y+")");
-        }
-    }
-  }
-
   /**
    * Main function.
    */
@@ -493,9 +635,11 @@ public class TestDFSIOEnh extends Configured implements Tool {
     int tputPlotInterval = DEFAULT_TPUT_PLOT_INTERVAL;
     long tputSampleUnit = DEFAULT_TPUT_SAMPLE_UNIT;
     float threshold = 0.5f;
+    int streams = 1;
+    String readMode = READ_MODE_SEQ;
 
     String version="TestFDSIO.0.0.4 Enhanced Version";
-    String usage = "Usage: TestFDSIOEnh -read | -write | -skipAnalyze | -clean [-nrFiles N] [-fileSize MB] [-resFile resultFileName] [-bufferSize Bytes] [-tputFile AggregatedThroughputCSVFileName] [-sampleInterval Miliseconds] [-plotInterval Miliseconds] [-sampleUnit g|m|k|b] [-sumThreshold 0.0~1.0] [-tputReportEach] [-tputReportTotal]";
+    String usage = "Usage: TestFDSIOEnh -read | -write | -skipAnalyze | -clean [-nrFiles N] [-fileSize MB] [-resFile resultFileName] [-bufferSize Bytes] [-tputFile AggregatedThroughputCSVFileName] [-sampleInterval Miliseconds] [-plotInterval Miliseconds] [-sampleUnit g|m|k|b] [-sumThreshold 0.0~1.0] [-tputReportEach] [-tputReportTotal] [-streams N] [-readMode seq|bytebuffer|pread|random]";
     
     System.out.println(version);
     if (args.length == 0) {
@@ -505,7 +649,14 @@ public class TestDFSIOEnh extends Configured implements Tool {
 
     //parse arguments
     for (int i = 0; i < args.length; i++) {       
-        if (args[i].startsWith("-read")) {
+        if (args[i].equals("-readMode")) {
+            readMode = args[++i].toLowerCase();
+            if (!readMode.equals(READ_MODE_SEQ) && !readMode.equals(READ_MODE_BYTE_BUFFER)
+                && !readMode.equals(READ_MODE_PREAD) && !readMode.equals(READ_MODE_RANDOM)) {
+                System.err.println(usage);
+                return -1;
+            }
+        } else if (args[i].startsWith("-read")) {
             testType = TEST_TYPE_READ;
         } else if (args[i].equals("-write")) {
             testType = TEST_TYPE_WRITE;
@@ -544,6 +695,8 @@ public class TestDFSIOEnh extends Configured implements Tool {
                 LOG.warn("Summary threshold is smaller than 0.0 ! Value should be within [0.0,1.0] !");
                 threshold = 0.0f;
             }
+        } else if (args[i].equals("-streams")){
+            streams = Integer.parseInt(args[++i]);
         } else if (args[i].equals("-sampleUnit")){
             String unit = args[++i];
             if (unit.equalsIgnoreCase("k")) 
@@ -563,6 +716,8 @@ public class TestDFSIOEnh extends Configured implements Tool {
     LOG.info("nrFiles = " + nrFiles);
     LOG.info("fileSize (MB) = " + fileSize);
     LOG.info("bufferSize = " + bufferSize);
+    LOG.info("streams = " + streams);
+    LOG.info("readMode = " + readMode);
   
     try {
 
@@ -570,6 +725,8 @@ public class TestDFSIOEnh extends Configured implements Tool {
 
         fsConfig.setInt("test.io.file.buffer.size", bufferSize);
         fsConfig.setInt("test.io.sampling.interval",tputSampleInterval);
+        fsConfig.setInt("test.io.streams", streams);
+        fsConfig.set("test.io.read.mode", readMode);
  
         FileSystem fs = FileSystem.get(fsConfig);
 
@@ -597,6 +754,10 @@ public class TestDFSIOEnh extends Configured implements Tool {
         }
         createControlFile(fs, fileSize, nrFiles,fsConfig);
         long tStart = System.currentTimeMillis();
+        //the map tasks put their samples in the slots from tStart on
+        fsConfig.setLong("test.io.start.time", tStart);
+        fsConfig.setInt("test.io.plot.interval", tputPlotInterval);
+        fsConfig.setBoolean("test.io.report.each", tputReportEach);
         if (testType == TEST_TYPE_WRITE)
             writeTest(fs,fsConfig);
         if (testType == TEST_TYPE_READ)
@@ -604,9 +765,6 @@ public class TestDFSIOEnh extends Configured implements Tool {
         long execTime = System.currentTimeMillis() - tStart;
     
         if (skipAnalyze == false){
-            /*analyzeResult(fs, testType, execTime, resFileName, nrFiles, fileSize*MEGA, 
-                    tStart, tputPlotInterval, tputSampleUnit,(int)(mapSlots*threshold),
-                    tputFileName, tputReportEach, tputReportTotal);*/
             runAnalyse(fs, fsConfig, testType, execTime, resFileName, nrFiles, fileSize*MEGA, 
                     tStart, tputPlotInterval, tputSampleUnit,(int)(mapSlots*threshold),
                     tputFileName, tputReportEach, tputReportTotal);
@@ -655,122 +813,6 @@ public class TestDFSIOEnh extends Configured implements Tool {
     LOG.info("created control files for: "+nrFiles+" files");
   }
   
- /**
-  * Analyze Aggregated throughput samples.
-  */
-  @Deprecated
-  protected static String[] analyzeTputSamples(ArrayList<String> wrSamples, 
-                                           int nrFiles, 
-                                           long fileSize,  
-                                           long tStart, 
-                                           long execTime, 
-                                           int[] concurrency,
-                                           int plotInterval, 
-                                           long sampleUnit,
-                                           int threshold, 
-                                           String tputResFile, 
-                                           boolean writeReportTotal, 
-                                           boolean writeReportEach
-                                        ) throws IOException {
-
-    int maxslot = (int)(execTime/plotInterval)+1;
-
-    double[]  bytesTotal = new double[maxslot+1];
-    double[]  bytesChanged = new double[maxslot+1]; 
-
-    double[] resultValue = new double [maxslot+1];
-    int[]  resultSample = new int [maxslot+1];
-
-    //initialize the arrays
-    for(int i = 0; i<=maxslot; i++){
-        bytesTotal[i] = 0;
-        bytesChanged[i] = 0;
-    }
-
-    for (int f = 0; f<nrFiles; f++) {
-      // clear up the arrays
-        for(int j = 0; j<maxslot+1; j++){
-            resultValue[j] = 0;
-            resultSample[j] = 0;
-        }
-        // add to interpolator
-        LinearInterpolator processor = new LinearInterpolator();
- 
-        double min_timeSpot = Double.MAX_VALUE; 
-        double max_timeSpot = 0;
-        for(int i = 0; i < wrSamples.size(); i += 2){
-            String wrFileName = wrSamples.get(i);
-            if (!wrFileName.equals(getFileName(f))) continue;
-            String sampleLog = wrSamples.get(i+1);
-            String[] samples = sampleLog.split(";");
-            //collect the samples
-            for(int j=0; !samples[j].startsWith("EoR"); j++){
-                String[] items = samples[j].split(":");
-                long timeStamp = Long.parseLong(items[0]);
-                long bytes = Long.parseLong(items[1]);    
-                double timePassed = (timeStamp-tStart)/(double)plotInterval;
-                if(timePassed > max_timeSpot) max_timeSpot = timePassed;
-                if(timePassed < min_timeSpot) min_timeSpot = timePassed;
-                processor.add((double)timePassed,(double)bytes);
-            }
-        }
-     
-        processor.add(0,0);
-        processor.add(maxslot+0.1,fileSize);
-             
-        //get value for each time slot
-        for (int k = 0; k<=maxslot; k++){
-            resultValue[k]=processor.get(k);
-        } 
-        
-        if(writeReportEach) {
-            PrintStream res = new PrintStream(
-                            new FileOutputStream (
-                                    new File(tputResFile+""+"test_io_"+String.valueOf(f)+".csv"),true));
-            for (int i = 0; i<=maxslot-1; i++)
-                 bytesChanged[i] = resultValue[i+1]-resultValue[i];
-            bytesChanged[maxslot] = 0;
-            for (int ri = 0; ri<=maxslot; ri++)
-                res.println(ri+","+resultValue[ri]/(double)sampleUnit+","+bytesChanged[ri]/(double)sampleUnit);
-            res.close();
-        }
-        //add into total bytes
-        for (int k=0; k<=maxslot; k++)
-            bytesTotal[k] += resultValue[k];
-    }
-
-    //change unit
-    for (int i = 0; i<=maxslot; i++)
-        bytesTotal[i] /= (double)sampleUnit ;   
-
-    //calculate the aggregated throughput
-    for (int i = 0; i<=maxslot-1; i++)
-        bytesChanged[i] = bytesTotal[i+1]-bytesTotal[i];
-    bytesChanged[maxslot] = 0;
-
-    if(writeReportTotal) {
-        PrintStream res = new PrintStream(
-                                new FileOutputStream (
-                                        new File(tputResFile),true));
-        for (int ri = 0; ri<=maxslot; ri++)
-            res.println(ri+","+bytesTotal[ri]+","+bytesChanged[ri]);
-        res.close();
-    }
-
-   String unit = "";
-   if (sampleUnit == KILO) 
-        unit = "kb";
-   else if (sampleUnit == MEGA)
-        unit = "mb";
-   else if (sampleUnit == 1)
-        unit = "b";
-   else if (sampleUnit == GIGA)
-        unit = "gb";
-
-   return calcSummary(bytesChanged,concurrency,threshold,unit);
-
- } 
-  
 /**
  * A concise summary of the Aggregated throughput.
  * Find the mean and the standard deviation of aggregated throughput along job execution time.
@@ -828,6 +870,40 @@ public class TestDFSIOEnh extends Configured implements Tool {
   }
 
  
+	 /**
+	  * Cumulative bytes at the start of slots 0..maxslot, in sample units.
+	  */
+	 private static double[] getBytesTotal(ThroughputHistogram tput, int maxslot, long sampleUnit) {
+		 double[] bytesTotal = new double[maxslot+1];
+		 long bytes = 0;
+		 for (int i = 0; i<=maxslot; i++) {
+			 bytesTotal[i] = bytes / (double)sampleUnit;
+			 bytes += tput.get(i);
+		 }
+		 return bytesTotal;
+	 }
+
+	 private static double[] getBytesChanged(double[] bytesTotal) {
+		 int maxslot = bytesTotal.length - 1;
+		 double[] bytesChanged = new double[maxslot+1];
+		 for (int i = 0; i<=maxslot-1; i++)
+			 bytesChanged[i] = bytesTotal[i+1]-bytesTotal[i];
+		 bytesChanged[maxslot] = 0;
+		 return bytesChanged;
+	 }
+
+	 private static void writeTputReport(String fileName, double[] bytesTotal, double[] bytesChanged) throws IOException {
+		 PrintStream res = new PrintStream(new FileOutputStream (new File(fileName),true));
+		 for (int ri = 0; ri<bytesTotal.length; ri++)
+			 res.println(ri+","+bytesTotal[ri]+","+bytesChanged[ri]);
+		 res.close();
+	 }
+
+	 /**
+	  * Read the statistics of the single reducer and report them. The
+	  * throughput and concurrency histograms are already summed up over all
+	  * the files, only the per file reports need the samples of each file.
+	  */
 	 protected static void runAnalyse(FileSystem fs, Configuration fsConfig,
 								         int testType, long execTime,
 								         String resFileName, int nrFiles,
@@ -844,13 +920,9 @@ public class TestDFSIOEnh extends Configured implements Tool {
 		
 		 int maxslot = (int)(execTime/plotInterval)+1;
 		 int[] concurrency = new int[maxslot+1];
-		 double[]  bytesTotal = new double[maxslot+1];
-		 for (int i=0; i<maxslot+1; i++) {
-			 bytesTotal[i] = 0;
-			 concurrency[i] = 0; 
-		 }
+		 ThroughputHistogram tput = new ThroughputHistogram();
 		 
-		 BufferedReader rd = null;
+		 SequenceFile.Reader rd = null;
 		 long tasks = 0;
 		 long size = 0;
 		 long time = 0;
@@ -858,41 +930,44 @@ public class TestDFSIOEnh extends Configured implements Tool {
 		 float sqrate = 0;
 		 float loggingTime = 0;
 		 try {
-			 rd = new BufferedReader(new InputStreamReader(new DataInputStream(fs.open(reduceFile))));
-			 String s = null;
-			 while ((s = rd.readLine()) != null) {
-				 StringTokenizer tokens = new StringTokenizer(s, " \t\n\r\f%");
-				 String lable = tokens.nextToken(); 
+			 rd = new SequenceFile.Reader(fs, reduceFile, fsConfig);
+			 Text key = new Text();
+			 IOStatWritable value = new IOStatWritable();
+			 while (rd.next(key, value)) {
+				 String lable = key.toString();
+				 Writable stat = value.get();
 				 if (lable.endsWith(":tasks")) {
-					 tasks = Long.parseLong(tokens.nextToken());
+					 tasks = Long.parseLong(stat.toString());
 				 } else if (lable.endsWith(":size")) {
-					 size = Long.parseLong(tokens.nextToken());
+					 size = Long.parseLong(stat.toString());
 				 } else if (lable.endsWith(":time")) {
-					 time = Long.parseLong(tokens.nextToken());
+					 time = Long.parseLong(stat.toString());
 				 } else if (lable.endsWith(":rate")) {
-					 rate = Float.parseFloat(tokens.nextToken());
+					 rate = Float.parseFloat(stat.toString());
 				 } else if (lable.endsWith(":sqrate")) {
-					 sqrate = Float.parseFloat(tokens.nextToken());
-				 } else if (lable.endsWith(":io_start_end")) {
-					 String[] t = tokens.nextToken().split(";");
-					 int start = (int)((Long.parseLong(t[0])-tStart)/plotInterval) + 1;
-					 int end = (int)((Long.parseLong(t[1])-tStart)/plotInterval) - 1;
-					 if(start < 0)
-						 start = 0;
-					 for (int i=start; i<=end; i++){
-						 if(i > concurrency.length-1)
-							 break;
-						 concurrency[i]++;
-					 }
+					 sqrate = Float.parseFloat(stat.toString());
 				 } else if (lable.endsWith(":logging_time")) {
-					 loggingTime = Float.parseFloat(tokens.nextToken());
-				 } else if (lable.endsWith(":tput_samples")) {
-					 break;
+					 loggingTime = Float.parseFloat(stat.toString());
+				 } else if (lable.endsWith(":tput")) {
+					 tput = (ThroughputHistogram) stat;
+				 } else if (lable.endsWith(":concurrency")) {
+					 ThroughputHistogram tasksAt = (ThroughputHistogram) stat;
+					 for (int i = 0; i<=maxslot; i++)
+						 concurrency[i] = (int) tasksAt.get(i);
+				 } else if (lable.endsWith(":tput_samples") && tputReportEach) {
+					 String name = lable.split(":")[1];
+					 ThroughputHistogram fileTput = new ThroughputHistogram();
+					 fileTput.addSamples((ThroughputSamples) stat, tStart, plotInterval);
+					 double[] fileTotal = getBytesTotal(fileTput, maxslot, sampleUnit);
+					 writeTputReport(tputResFileName+name+".csv", fileTotal, getBytesChanged(fileTotal));
 				 }
 			 }
 		 } finally {
-			 rd.close();
+			 if (rd != null) rd.close();
 		 }
+		 if (tputReportEach)
+			 LOG.info("throughput of each file reported to " + tputResFileName + "test_io_*.csv");
+
 		 double med = rate / 1000 / tasks;
 		 double stdDev = Math.sqrt(Math.abs(sqrate / 1000 / tasks - med*med));
 		 String resultLines[] = {
@@ -921,212 +996,30 @@ public class TestDFSIOEnh extends Configured implements Tool {
 			 LOG.info(enhResultLines[i]);
 			 res.println(enhResultLines[i]);
 		 }
-		 
-		 try {
-			 fs.delete(REPORT_DIR, true);
-			 //set up env
-			 Configuration conf2 = new Configuration(fsConfig);
-			 conf2.setLong("ana_tStart", tStart);
-			 conf2.setInt("ana_plotInterval", plotInterval);
-			 conf2.setLong("ana_sampleUnit", sampleUnit);
-			 conf2.setLong("ana_execTime", execTime);
-			 conf2.setLong("ana_fileSize", fileSize);
-			 
-			 Job job = new Job(conf2, "Result Analyzer");
-			 job.setJarByClass(Analyzer.class);
-			 job.setMapperClass(_Mapper.class);
-			 job.setReducerClass(_Reducer.class);
-			 job.setOutputKeyClass(Text.class);
-			 job.setOutputValueClass(Text.class);
-//			 job.setNumReduceTasks(1);
-			 org.apache.hadoop.mapreduce.lib.input.FileInputFormat.addInputPath(job, reduceFile);
-			 org.apache.hadoop.mapreduce.lib.output.FileOutputFormat.setOutputPath(job, REPORT_DIR);
-			 job.waitForCompletion(true);
-		 } catch (InterruptedException e) {
-			 e.printStackTrace();
-		 } catch (ClassNotFoundException e) {
-			 e.printStackTrace();
-		 } finally {
-			 fs.delete(REPORT_TMP, true);
-			 FileUtil.copyMerge(fs, REPORT_DIR, fs, REPORT_TMP, false, fsConfig, null);
-			 LOG.info("remote report file " + REPORT_TMP + " merged.");
-			 BufferedReader lines = new BufferedReader(new InputStreamReader(new DataInputStream(fs.open(REPORT_TMP))));
-			 String line = null;
-			 while((line = lines.readLine()) != null) {
-				 StringTokenizer tokens = new StringTokenizer(line, " \t\n\r\f%");
-				 tokens.nextToken();
-				 String ss = tokens.nextToken();
-				 String[] str = ss.split(",");
-				 int idx = Integer.parseInt(str[0]);
-				 double val = Double.parseDouble(str[1]);
-				 assert idx <= maxslot;
-				 bytesTotal[idx] += val;
-			 }
-			 lines.close();
-			 if (tputReportEach) {
-				 FileUtil.copy(fs, REPORT_TMP, new File(tputResFileName.split(".")[0]+"test_io_.csv"), false, fsConfig);
-				 LOG.info("*test_io_.csv fetched to local fs.");
-			 }
-			 //calculate the aggregated throughput
-			 double[]  bytesChanged = new double[maxslot+1]; 
-			 for (int i = 0; i<=maxslot-1; i++)
-				 bytesChanged[i] = bytesTotal[i+1]-bytesTotal[i];
-			 bytesChanged[maxslot] = 0;
-
-			 if(tputReportTotal) {
-				 PrintStream res2 = new PrintStream(new FileOutputStream (new File(tputResFileName),true));
-				 for (int ri = 0; ri<=maxslot; ri++)
-					 res2.println(ri+","+bytesTotal[ri]+","+bytesChanged[ri]);
-				 res2.close();
-			 }
-			 String unit = "";
-			 if (sampleUnit == KILO) 
-				 unit = "kb";
-			 else if (sampleUnit == MEGA)
-				 unit = "mb";
-			 else if (sampleUnit == 1)
-				 unit = "b";
-			 else if (sampleUnit == GIGA)
-				 unit = "gb";
-
-			 String[] tputResultLines = calcSummary(bytesChanged,concurrency,threshold,unit);
-			 for (int j = 0; j < tputResultLines.length; j++) {
-				 LOG.info(tputResultLines[j]);
-				 res.println(tputResultLines[j]);
-			 }
-		 }
-		 res.println("\n-- Result Analyse -- : " + ((System.currentTimeMillis() - t1)/1000) + "s");
-		 res.close();
-	 }
-	 
-	 @Deprecated
-	 protected static void analyzeResult( FileSystem fs, 
-                                     int testType,
-                                     long execTime,
-                                     String resFileName,
-                                     int nrFiles,
-                                     long fileSize,
-                                     long tStart,
-                                     int plotInterval,
-                                     long sampleUnit,
-                                     int threshold,
-                                     String tputResFileName,
-                                     boolean tputReportEach,
-                                     boolean tputReportTotal 
-                                    ) throws IOException {
-    
 
-		 //the original report
-		 //TestDFSIO.analyzeResult(fs,testType,execTime,resFileName);
-	
-	
-		 long tasks = 0;
-		 long size = 0;
-		 long time = 0;
-		 float rate = 0;
-		 float sqrate = 0;
-	
-		 Path reduceFile;
-		 if (testType == TEST_TYPE_WRITE)
-			 reduceFile = new Path(WRITE_DIR, "part-00000");
-		 else
-			 reduceFile = new Path(READ_DIR, "part-00000");
-	    
-	
-		 //long time = 0;
-		 float loggingTime = 0;
-		 String line;
-		 ArrayList<String> wrSamples = new ArrayList<String> (); 
-	
-		 int maxslot = (int)(execTime/plotInterval)+1;
-		 int[] concurrency = new int[maxslot+1];
-		 for (int i=0; i<maxslot+1; i++)
-			 concurrency[i] = 0;
-	
-		 DataInputStream in = null;
-		 BufferedReader lines = null;
-		 try {
-			 in = new DataInputStream(fs.open(reduceFile));
-			 lines = new BufferedReader(new InputStreamReader(in));  
-			 while((line = lines.readLine()) != null) {
-				 StringTokenizer tokens = new StringTokenizer(line, " \t\n\r\f%");
-				 String attr = tokens.nextToken(); 
-				 if (attr.endsWith(":time")) {
-					 time = Long.parseLong(tokens.nextToken());
-				 } else if (attr.endsWith(":logging_time")) {
-					 loggingTime = Float.parseFloat(tokens.nextToken());
-				 } else if (attr.endsWith(":tput_samples")){
-					 String[] tags=attr.split(":");
-					 wrSamples.add(tags[1]);
-					 wrSamples.add(tokens.nextToken());
-				 } else if (attr.endsWith(":io_start_end")){
-					 String[] t=tokens.nextToken().split(";");
-					 int start = (int)((Long.parseLong(t[0])-tStart)/plotInterval) + 1;
-					 int end = (int)((Long.parseLong(t[1])-tStart)/plotInterval) - 1;
-					 if(start < 0)
-						 start = 0;
-					 for (int i=start; i<=end; i++){
-						 if(i > concurrency.length-1)
-							 break;
-						 concurrency[i]++;
-					 }
-				 } else if (attr.endsWith(":tasks")){
-					 tasks = Long.parseLong(tokens.nextToken());
-				 } else if (attr.endsWith(":size")){
-					 size = Long.parseLong(tokens.nextToken());
-				 } else if (attr.endsWith(":rate")) {
-					 rate = Float.parseFloat(tokens.nextToken());
-				 } else if (attr.endsWith(":sqrate")) {
-					 sqrate = Float.parseFloat(tokens.nextToken());
-				 }
-			 }
-		 } finally {
-			 if(in != null) in.close();
-			 if(lines != null) lines.close();  
-		 }
-	
-		 double med = rate / 1000 / tasks;
-		 double stdDev = Math.sqrt(Math.abs(sqrate / 1000 / tasks - med*med));
-		 String resultLines[] = {
-				 "----- TestDFSIO ----- : " + ((testType == TEST_TYPE_WRITE) ? "write" : (testType == TEST_TYPE_READ) ? "read" : "unknown"),
-				 "           Date & time: " + new Date(System.currentTimeMillis()),
-				 "       Number of files: " + tasks,
-				 "Total MBytes processed: " + size/MEGA,
-				 "     Throughput mb/sec: " + size * 1000.0 / (time * MEGA),
-				 "Average IO rate mb/sec: " + med,
-				 " IO rate std deviation: " + stdDev,
-				 "    Test exec time sec: " + (float)execTime / 1000, "" };
-	
-		 String[] tputResultLines = analyzeTputSamples(wrSamples, nrFiles, fileSize,  
-	                                                    tStart, execTime, concurrency,
-	                                                      plotInterval, sampleUnit, threshold,
-	                                                    tputResFileName, tputReportTotal, tputReportEach);
-	    
-		 String enhResultLines[] = {
-	        "-- Extended Metrics --   : " + ((testType == TEST_TYPE_WRITE) ? "write" :
-	                                        (testType == TEST_TYPE_READ) ? "read" : 
-	                                    "unknown"),
-	        "Result file name         : " + tputResFileName,
-	        "Sampling overhead        : " + (loggingTime/time)*100 + "%",
-	        "Reference Start Time     : " + String.valueOf(tStart)
-		 };
-	
-		 PrintStream res = new PrintStream(new FileOutputStream(new File(resFileName), true)); 
-	   
-		 for(int i = 0; i < resultLines.length; i++) {
-			 LOG.info(resultLines[i]);
-			 res.println(resultLines[i]);
-		 } 
-	
-		 for(int i = 0; i < enhResultLines.length; i++) {
-			 LOG.info(enhResultLines[i]);
-			 res.println(enhResultLines[i]);
-		 }
-	    
+		 //calculate the aggregated throughput
+		 double[] bytesTotal = getBytesTotal(tput, maxslot, sampleUnit);
+		 double[] bytesChanged = getBytesChanged(bytesTotal);
+
+		 if(tputReportTotal)
+			 writeTputReport(tputResFileName, bytesTotal, bytesChanged);
+
+		 String unit = "";
+		 if (sampleUnit == KILO) 
+			 unit = "kb";
+		 else if (sampleUnit == MEGA)
+			 unit = "mb";
+		 else if (sampleUnit == 1)
+			 unit = "b";
+		 else if (sampleUnit == GIGA)
+			 unit = "gb";
+
+		 String[] tputResultLines = calcSummary(bytesChanged,concurrency,threshold,unit);
 		 for (int j = 0; j < tputResultLines.length; j++) {
 			 LOG.info(tputResultLines[j]);
 			 res.println(tputResultLines[j]);
 		 }
+		 res.println("\n-- Result Analyse -- : " + ((System.currentTimeMillis() - t1)/1000) + "s");
 		 res.close();
 	 }
 
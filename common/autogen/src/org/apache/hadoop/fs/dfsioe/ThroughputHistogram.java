@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.dfsioe;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Values per time slot of the plot interval, counted from the start of the
+ * test: the bytes moved during each slot, or the number of tasks doing I/O
+ * during all of it.
+ * <p>
+ * Histograms are merged by adding them slot by slot, in any order, so the
+ * map tasks emit one each and a combiner and the single reducer sum them up
+ * to the aggregated throughput of all the files in one pass, whatever the
+ * number of files and samples.
+ * <p>
+ * Only the slots from the first to the last non empty one are kept:
+ * <tt>[vint first][vint length][vlong value]...</tt>
+ */
+public class ThroughputHistogram implements Writable {
+
+  private int first;
+  private long[] values;
+  private int length;
+
+  public ThroughputHistogram() {
+    values = new long[16];
+    clear();
+  }
+
+  public void clear() {
+    first = 0;
+    length = 0;
+  }
+
+  /**
+   * @return the first slot, values before it are 0
+   */
+  public int getFirst() {
+    return first;
+  }
+
+  /**
+   * @return the slot after the last one, values from it on are 0
+   */
+  public int getEnd() {
+    return first + length;
+  }
+
+  public long get(int slot) {
+    return (slot < first || slot >= first + length) ? 0 : values[slot - first];
+  }
+
+  /**
+   * make room for the slots from..to-1
+   */
+  private void ensure(int from, int to) {
+    if (0 == length) {
+      first = from;
+    }
+    int nfirst = Math.min(first, from);
+    int nend = Math.max(first + length, to);
+    if (nfirst < first || nend - nfirst > values.length) {
+      long[] nvalues = (nend - nfirst > values.length)
+        ? new long[Math.max(nend - nfirst, values.length * 2)] : values;
+      System.arraycopy(values, 0, nvalues, first - nfirst, length);
+      for (int i = 0; i < first - nfirst; i++) {
+        nvalues[i] = 0;
+      }
+      values = nvalues;
+    }
+    for (int i = first + length; i < nend; i++) {
+      values[i - nfirst] = 0;
+    }
+    first = nfirst;
+    length = nend - nfirst;
+  }
+
+  public void add(int slot, long value) {
+    ensure(slot, slot + 1);
+    values[slot - first] += value;
+  }
+
+  /**
+   * add value to the slots from..to-1
+   */
+  public void add(int from, int to, long value) {
+    if (from >= to) {
+      return;
+    }
+    ensure(from, to);
+    for (int i = from; i < to; i++) {
+      values[i - first] += value;
+    }
+  }
+
+  public void add(ThroughputHistogram other) {
+    if (0 == other.length) {
+      return;
+    }
+    ensure(other.first, other.first + other.length);
+    for (int i = 0; i < other.length; i++) {
+      values[other.first + i - first] += other.values[i];
+    }
+  }
+
+  /**
+   * Add the bytes moved during each slot by a file, the bytes done at the
+   * slot boundaries being interpolated linearly between its samples: none
+   * before the first sample and all of them after the last one.
+   * The bytes at a boundary are rounded, so the slots of a file add up to
+   * its bytes exactly.
+   *
+   * @param samples time ordered samples of the file
+   * @param tStart start of slot 0
+   * @param plotInterval length of a slot in milliseconds
+   */
+  public void addSamples(ThroughputSamples samples, long tStart, int plotInterval) {
+    int n = samples.size();
+    if (0 == n) {
+      return;
+    }
+    long t0 = samples.getTime(0) - tStart;
+    long tn = samples.getTime(n - 1) - tStart;
+    int from = (int) Math.max(0, t0 / plotInterval);
+    int to = (int) ((tn + plotInterval - 1) / plotInterval);
+    if (from >= to) {
+      add(from, samples.getBytes(n - 1) - samples.getBytes(0));
+      return;
+    }
+    ensure(from, to);
+
+    long done = interpolate(samples, 0, tStart, (long) from * plotInterval);
+    int i = 0;
+    for (int slot = from; slot < to; slot++) {
+      long boundary = (long) (slot + 1) * plotInterval;
+      while (i < n - 1 && samples.getTime(i + 1) - tStart < boundary) {
+        i++;
+      }
+      long next = interpolate(samples, i, tStart, boundary);
+      values[slot - first] += next - done;
+      done = next;
+    }
+  }
+
+  /**
+   * bytes done at time t of the test, from the samples i and i+1 around it
+   */
+  private static long interpolate(ThroughputSamples samples, int i, long tStart, long t) {
+    if (t <= samples.getTime(i) - tStart) {
+      return (0 == i) ? samples.getBytes(0) : samples.getBytes(i);
+    }
+    if (i + 1 >= samples.size()) {
+      return samples.getBytes(i);
+    }
+    long t0 = samples.getTime(i) - tStart;
+    long t1 = samples.getTime(i + 1) - tStart;
+    long b0 = samples.getBytes(i);
+    long b1 = samples.getBytes(i + 1);
+    return b0 + Math.round((double) (b1 - b0) * (t - t0) / (t1 - t0));
+  }
+
+  public void readFields(DataInput in) throws IOException {
+    first = WritableUtils.readVInt(in);
+    length = WritableUtils.readVInt(in);
+    if (length > values.length) {
+      values = new long[length];
+    }
+    for (int i = 0; i < length; i++) {
+      values[i] = WritableUtils.readVLong(in);
+    }
+  }
+
+  public void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, first);
+    WritableUtils.writeVInt(out, length);
+    for (int i = 0; i < length; i++) {
+      WritableUtils.writeVLong(out, values[i]);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.dfsioe;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Throughput samples of one file: the time stamps and the number of bytes
+ * read or written so far at each of them, in time order.
+ * <p>
+ * Both series only grow, so they are written as the differences to the
+ * previous sample, which take one or two bytes each:
+ * <p>
+ * <tt>[vint count][vlong time 0][vlong bytes 0][vlong time 1 - time 0]...</tt>
+ */
+public class ThroughputSamples implements Writable {
+
+  private long[] times;
+  private long[] bytes;
+  private int size;
+
+  public ThroughputSamples() {
+    this(64);
+  }
+
+  public ThroughputSamples(int capacity) {
+    times = new long[capacity];
+    bytes = new long[capacity];
+    size = 0;
+  }
+
+  private void ensure(int capacity) {
+    if (capacity > times.length) {
+      int ncapacity = Math.max(capacity, times.length * 2);
+      long[] ntimes = new long[ncapacity];
+      long[] nbytes = new long[ncapacity];
+      System.arraycopy(times, 0, ntimes, 0, size);
+      System.arraycopy(bytes, 0, nbytes, 0, size);
+      times = ntimes;
+      bytes = nbytes;
+    }
+  }
+
+  public void add(long time, long nbytes) {
+    ensure(size + 1);
+    times[size] = time;
+    bytes[size] = nbytes;
+    size++;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public long getTime(int i) {
+    return times[i];
+  }
+
+  public long getBytes(int i) {
+    return bytes[i];
+  }
+
+  public void readFields(DataInput in) throws IOException {
+    size = 0;
+    int count = WritableUtils.readVInt(in);
+    ensure(count);
+    long time = 0, nbytes = 0;
+    for (int i = 0; i < count; i++) {
+      time += WritableUtils.readVLong(in);
+      nbytes += WritableUtils.readVLong(in);
+      times[i] = time;
+      bytes[i] = nbytes;
+    }
+    size = count;
+  }
+
+  public void write(DataOutput out) throws IOException {
+    WritableUtils.writeVInt(out, size);
+    long time = 0, nbytes = 0;
+    for (int i = 0; i < size; i++) {
+      WritableUtils.writeVLong(out, times[i] - time);
+      WritableUtils.writeVLong(out, bytes[i] - nbytes);
+      time = times[i];
+      nbytes = bytes[i];
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.fs.dfsioe;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.MapReduceBase;
+import org.apache.hadoop.mapred.OutputCollector;
+import org.apache.hadoop.mapred.Reducer;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * Combiner and reducer of the enhanced benchmark statistics.
+ * <p>
+ * The values are accumulated according to the type prefix of their key:
+ * <ul>
+ * <li><tt>f:</tt> - float, summ</li>
+ * <li><tt>l:</tt> - long, summ</li>
+ * <li><tt>h:</tt> - {@link ThroughputHistogram}, summ slot by slot</li>
+ * <li><tt>s:</tt> - {@link ThroughputSamples} of one file, passed on</li>
+ * </ul>
+ * Every sum is associative, so the same class runs as the combiner and the
+ * reducer gets a single value per key from each map task.
+ */
+public class TputAccumulatingReducer extends MapReduceBase
+    implements Reducer<Text, IOStatWritable, Text, IOStatWritable> {
+
+  private ThroughputHistogram histogram = new ThroughputHistogram();
+  private Text number = new Text();
+  private IOStatWritable result = new IOStatWritable();
+
+  public void reduce(Text key,
+                     Iterator<IOStatWritable> values,
+                     OutputCollector<Text, IOStatWritable> output,
+                     Reporter reporter
+                     ) throws IOException {
+    String field = key.toString();
+
+    // sum histograms
+    if (field.startsWith("h:")) {
+      histogram.clear();
+      while (values.hasNext())
+        histogram.add((ThroughputHistogram) values.next().get());
+      result.set(histogram);
+      output.collect(key, result);
+      return;
+    }
+    // sum float values
+    if (field.startsWith("f:")) {
+      float fSum = 0;
+      while (values.hasNext())
+        fSum += Float.parseFloat(values.next().get().toString());
+      number.set(String.valueOf(fSum));
+      result.set(number);
+      output.collect(key, result);
+      return;
+    }
+    // sum long values
+    if (field.startsWith("l:")) {
+      long lSum = 0;
+      while (values.hasNext())
+        lSum += Long.parseLong(values.next().get().toString());
+      number.set(String.valueOf(lSum));
+      result.set(number);
+      output.collect(key, result);
+      return;
+    }
+    // samples of a file, keyed by its name
+    while (values.hasNext())
+      output.collect(key, values.next());
+  }
+}
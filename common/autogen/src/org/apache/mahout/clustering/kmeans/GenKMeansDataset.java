@@ -36,6 +36,7 @@ import org.apache.hadoop.mapred.Mapper;
 import org.apache.hadoop.mapred.MapReduceBase;
 import org.apache.hadoop.mapred.SequenceFileInputFormat;
 import org.apache.hadoop.mapred.SequenceFileOutputFormat;
+import org.apache.mahout.math.DenseVector;
 import org.apache.mahout.math.RandomAccessSparseVector;
 import org.apache.mahout.math.Vector;
 import org.apache.mahout.math.VectorWritable;
@@ -68,6 +69,17 @@ public class GenKMeansDataset extends Configured implements Tool {
   private static final Log LOG= LogFactory.getLog(GenKMeansDataset.class);
 
   private static long SAMPLES_PER_FILE = 20000000;
+  private static boolean samplesPerFileSet = false;
+
+  private static final String DIMENSIONS_PARAM_NAME = "genkmeansdataset.dimensions";
+  private static final String SEED_PARAM_NAME = "genkmeansdataset.seed";
+  private static final String VECTOR_PARAM_NAME = "genkmeansdataset.vector";
+  public static final String SPARSE_VECTOR = "sparse";
+  public static final String DENSE_VECTOR = "dense";
+
+  // random streams of the generator seeds other than the sample ranges
+  private static final long PARAMS_STREAM = -1;
+  private static final long CENTROIDS_STREAM = -2;
 
   private static final String TEST_BASE_PATH = "/KMeans";
   private static final String TEST_INPUT_PATH = TEST_BASE_PATH + "/input";
@@ -92,6 +104,38 @@ public class GenKMeansDataset extends Configured implements Tool {
     }
     return points;
   }
+
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Derive the 16 bytes seed of a MersenneTwisterRNG from the global seed
+   * and a stream number, so that every sample range gets its own random
+   * stream, which only depends on the global seed and the range number.
+   */
+  public static byte[] getSeed(long seed, long stream) {
+    byte[] bytes = new byte[16];
+    long h = mix(seed + 0x9e3779b97f4a7c15L * (stream + 1));
+    long l = mix(h ^ 0x632be59bd9b4e019L);
+    for (int i = 0; i < 8; i++) {
+      bytes[i] = (byte) (h >>> (56 - 8 * i));
+      bytes[8 + i] = (byte) (l >>> (56 - 8 * i));
+    }
+    return bytes;
+  }
+
+  /**
+   * Create a random generator, seeded from the global seed if there is one
+   */
+  public static MersenneTwisterRNG createRNG(String seed, long stream) {
+    if (null == seed) {
+      return new MersenneTwisterRNG();
+    }
+    return new MersenneTwisterRNG(getSeed(Long.parseLong(seed), stream));
+  }
   
   /**
    * Sample Producer. 
@@ -201,13 +245,25 @@ public class GenKMeansDataset extends Configured implements Tool {
     private double cMax = 1.0;
 
 
+	/**
+	 * Each input record is a range of samples of one cluster: the key is the
+	 * range number, which picks the random stream of the range when the
+	 * generator is seeded.
+	 */
 	public static class MapClass extends MapReduceBase implements
         Mapper<IntWritable,Text,LongWritable,VectorWritable> {
 		private int dimension = 2;
+		private String seed;
+		private boolean dense;
+		private LongWritable k;
+		private VectorWritable v;
 
 		public void configure(JobConf jobConf){
-			this.dimension = Integer.parseInt(jobConf.get("genkmeansdataset.dimensions"));
-
+			this.dimension = Integer.parseInt(jobConf.get(DIMENSIONS_PARAM_NAME));
+			this.seed = jobConf.get(SEED_PARAM_NAME);
+			this.dense = DENSE_VECTOR.equals(jobConf.get(VECTOR_PARAM_NAME, SPARSE_VECTOR));
+			k = new LongWritable();
+			v = new VectorWritable();
 		}
 		public void map( IntWritable key,
                  Text value,
@@ -215,7 +271,7 @@ public class GenKMeansDataset extends Configured implements Tool {
                  Reporter reporter) throws IOException {
 
             try {
-				MersenneTwisterRNG rng = new MersenneTwisterRNG();
+				MersenneTwisterRNG rng = createRNG(seed, key.get());
 				//create gussian generators based on seeds 
 				GaussianGenerator [] gg = new GaussianGenerator [dimension];
 				String[] numbers = value.toString().split("\t");
@@ -228,15 +284,19 @@ public class GenKMeansDataset extends Configured implements Tool {
 					gg[d] = new GaussianGenerator(mean,std,rng);
             	}
 
-				//generate samples
+				//generate samples, a dense vector is backed by vec
             	double [] vec = new double[dimension];
+            	Vector p = dense ? new DenseVector(vec, true) : new RandomAccessSparseVector(dimension);
+            	v.set(p);
             	for(long count = 0; count <numSamples; count++){
                 	for(int d = 0; d<dimension ; d++)
                     	vec[d] = gg[d].nextValue();
-                	Vector p = new RandomAccessSparseVector(dimension);
-                	p.assign(vec);
-                	output.collect(new LongWritable(count), new VectorWritable(p));
-					reporter.setStatus(Long.toString(count+1)+" samples generated");
+                	if (!dense)
+                		p.assign(vec);
+                	k.set(count);
+                	output.collect(k, v);
+					if (0 == (count & 0xffff))
+						reporter.setStatus(Long.toString(count+1)+" samples generated");
 					reporter.incrCounter(HiBench.Counters.BYTES_DATA_GENERATED,
 							8+p.getNumNondefaultElements()*8);
             	}
@@ -254,6 +314,9 @@ public class GenKMeansDataset extends Configured implements Tool {
 	public GaussianSampleGenerator(byte[] seed){
 		rng = new MersenneTwisterRNG(seed);
 	}
+	public GaussianSampleGenerator(MersenneTwisterRNG rng){
+		this.rng = rng;
+	}
   
 	public void setGenParams(long num, int dimen, double [][][] params, double cMin, double cMax){
 		this.dimension = dimen;
@@ -295,6 +358,14 @@ public class GenKMeansDataset extends Configured implements Tool {
 		long numTotal = this.numSamples; //total number of samples
 		int centriodNum = genParams.length; // number of initial centroids
         long numPerCluster = (long)Math.ceil(numTotal/(double)centriodNum);
+		if (!samplesPerFileSet) {
+			// enough ranges to keep every map slot of the cluster busy
+			int slots = new JobClient(getJobConf()).getClusterStatus().getMaxMapTasks();
+			long rangesPerCluster = Math.max(1, (slots + centriodNum - 1) / centriodNum);
+			SAMPLES_PER_FILE = Math.min(SAMPLES_PER_FILE,
+					Math.max(1, (numPerCluster + rangesPerCluster - 1) / rangesPerCluster));
+			LOG.info(slots + " map slots, " + SAMPLES_PER_FILE + " samples per range");
+		}
 		long numFiles = (long)Math.ceil(numPerCluster/(double)SAMPLES_PER_FILE); //num of files per cluster
 		for (int k= 0; k<genParams.length; k++){
            	if(genParams[k].length != dimension)
@@ -305,16 +376,13 @@ public class GenKMeansDataset extends Configured implements Tool {
                 if(genParams[k][d].length != 2) throw new Exception("The dimension of mean vector or std vector does not match desired dimension");
 			    sb.append("\t"+Double.toString(genParams[k][d][0])+"\t"+Double.toString(genParams[k][d][1]));
            	}
+			// the last range of the cluster takes what is left
 			for (long i = 0; i< numFiles; i++){
-		   		SequenceFile.Writer out = createNewFile(new Path(sampleSeedPath,"seed"+(fileNo++)),IntWritable.class,Text.class);
-		   		out.append(new IntWritable(k), new Text(Long.toString(SAMPLES_PER_FILE)+sb.toString()));
-				out.close();
-			}
-			if (numFiles*SAMPLES_PER_FILE < numPerCluster){
-				long left = numPerCluster-numFiles*SAMPLES_PER_FILE;
-				SequenceFile.Writer out = createNewFile(new Path(sampleSeedPath,"seed"+(fileNo++)),IntWritable.class,Text.class);
-				out.append(new IntWritable(k), new Text(Long.toString(left)+sb.toString()));
+				long num = Math.min(SAMPLES_PER_FILE, numPerCluster-i*SAMPLES_PER_FILE);
+				SequenceFile.Writer out = createNewFile(new Path(sampleSeedPath,"seed"+fileNo),IntWritable.class,Text.class);
+				out.append(new IntWritable(fileNo), new Text(Long.toString(num)+sb.toString()));
 				out.close();
+				fileNo++;
 			}
   	 	}
 		return numPerCluster*centriodNum;
@@ -326,7 +394,7 @@ public class GenKMeansDataset extends Configured implements Tool {
         LOG.info("Generating "+this.numSamples+" of samples");
 
 		JobConf jobConf = getJobConf();
-		jobConf.set("genkmeansdataset.dimensions",Integer.toString(dimension));
+		jobConf.set(DIMENSIONS_PARAM_NAME,Integer.toString(dimension));
 
 		FileInputFormat.setInputPaths(jobConf, input);
   		FileOutputFormat.setOutputPath(jobConf, samplePath);
@@ -486,9 +554,11 @@ public class GenKMeansDataset extends Configured implements Tool {
 		String compressCodec="org.apache.hadoop.io.compress.DefaultCodec";
 		String compress="false";
 		String compressType="BLOCK";
+		String seed = null;
+		String vectorType = SPARSE_VECTOR;
 
 		String welcomeMsg = "Generating Mahout KMeans Input Dataset";
-		String usage = "Usage: org.apache.mahout.clustering.kmeans.GenKMeansDataset -sampleDir sampleDirectory -clusterDir centroidDirectory -numClusters numberofClusters -numSamples numberOfSamples -samplesPerFile numberOfSamplesPerFile -sampleDimension dimensionOfEachSample [ -centroidMin minValueOfEachDimensionForCenters -centroidMax maxValueOfEachDimensionForCenters -stdMin minStandardDeviationOfClusters -stdMax maxStandardDeviationOfClusters -maxIteration maxIter (The samples are generated using Gaussian Distribution around a set of centers which are also generated using UniformDistribution";
+		String usage = "Usage: org.apache.mahout.clustering.kmeans.GenKMeansDataset -sampleDir sampleDirectory -clusterDir centroidDirectory -numClusters numberofClusters -numSamples numberOfSamples -samplesPerFile numberOfSamplesPerFile -sampleDimension dimensionOfEachSample [ -centroidMin minValueOfEachDimensionForCenters -centroidMax maxValueOfEachDimensionForCenters -stdMin minStandardDeviationOfClusters -stdMax maxStandardDeviationOfClusters -maxIteration maxIter -seed globalSeed -vectorType sparse|dense (The samples are generated using Gaussian Distribution around a set of centers which are also generated using UniformDistribution";
 		System.out.println(welcomeMsg);
 		if(args.length == 0) {
 			System.err.println(usage);
@@ -505,6 +575,7 @@ public class GenKMeansDataset extends Configured implements Tool {
 				numClusters = Integer.parseInt(args[++i]);
 			} else if (args[i].startsWith("-samplesPerFile")) {
 				SAMPLES_PER_FILE = Long.parseLong(args[++i]);
+				samplesPerFileSet = true;
 			} else if (args[i].startsWith("-sampleDimension")){
 				dimension=Integer.parseInt(args[++i]);
 			} else if (args[i].startsWith("-centroidMin")) {
@@ -518,6 +589,14 @@ public class GenKMeansDataset extends Configured implements Tool {
 			} else if (args[i].startsWith("-datasetFile")) {
 				datasetFile = args[++i];
             } else if (args[i].startsWith("-maxIteration")) {
+			} else if (args[i].startsWith("-seed")){
+				seed = Long.toString(Long.parseLong(args[++i]));
+			} else if (args[i].startsWith("-vectorType")){
+				vectorType = args[++i];
+				if (!DENSE_VECTOR.equals(vectorType) && !SPARSE_VECTOR.equals(vectorType)) {
+					System.err.println(usage);
+					System.exit(-1);
+				}
 			} else if (args[i].startsWith("-compressCodec")){
 				compressCodec = args[++i];
 			} else if (args[i].startsWith("-compressType")){
@@ -534,8 +613,8 @@ public class GenKMeansDataset extends Configured implements Tool {
 	    //if no dataset input, use random generator
         if(datasetFile.equals("")) {
 			LOG.info("KMeans Clustering Input Dataset : Synthetic");	
-	        GaussianSampleGenerator gsg = new GaussianSampleGenerator();
-            MersenneTwisterRNG rng = new MersenneTwisterRNG();
+	        GaussianSampleGenerator gsg = new GaussianSampleGenerator(createRNG(seed, CENTROIDS_STREAM));
+            MersenneTwisterRNG rng = createRNG(seed, PARAMS_STREAM);
 	   	    ContinuousUniformGenerator ug = new ContinuousUniformGenerator(meanMin,meanMax,rng);
             ContinuousUniformGenerator ugStd = new ContinuousUniformGenerator(stdMin,stdMax,rng);
 	                
@@ -581,6 +660,10 @@ public class GenKMeansDataset extends Configured implements Tool {
 		jobConf.set("mapred.output.compression.type",compressType);
 		jobConf.set("mapred.output.compression.codec",compressCodec);
 		LOG.info("mapred.output.compression.codec=" + jobConf.get("mapred.output.compression.codec"));
+		if (null != seed) {
+			jobConf.set(SEED_PARAM_NAME, seed);
+		}
+		jobConf.set(VECTOR_PARAM_NAME, vectorType);
 	    FileSystem fs = FileSystem.get(jobConf);
 
         sp.setFileSystem(fs,jobConf);
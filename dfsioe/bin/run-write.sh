@@ -28,7 +28,7 @@ DIR=`cd $bin/../; pwd`
 #$HADOOP_EXECUTABLE dfs -rmr ${OUTPUT_HDFS}
 
 # pre-running
-OPTION="-write -nrFiles ${WT_NUM_OF_FILES} -fileSize ${WT_FILE_SIZE} -bufferSize 4096 -plotInteval 1000 -sampleUnit m -sampleInteval 200 -sumThreshold 0.5 -tputReportTotal"
+OPTION="-write -nrFiles ${WT_NUM_OF_FILES} -fileSize ${WT_FILE_SIZE} -bufferSize 4096 -plotInteval 1000 -sampleUnit m -sampleInteval 200 -sumThreshold 0.5 -tputReportTotal -streams ${WT_STREAMS}"
 START_TIME=`timestamp`
 
 #run benchmark
@@ -23,10 +23,16 @@ INPUT_HDFS=/benchmarks/TestDFSIO-Enh
 #RD_NUM_OF_FILES=871 #340GB
 RD_NUM_OF_FILES=1127 #440GB
 RD_FILE_SIZE=400 #2000
+# concurrent streams of each map task, and how they read: seq, bytebuffer,
+# pread (positional reads in order) or random (positional reads anywhere)
+RD_STREAMS=1
+RD_READ_MODE=seq
 
 # dfsioe-write
 #WT_NUM_OF_FILES=615 #240GB
 #WT_NUM_OF_FILES=871 #340GB
 WT_NUM_OF_FILES=1127 #440GB
 WT_FILE_SIZE=400 #1000
+# concurrent streams of each map task, writing a file each
+WT_STREAMS=1
 
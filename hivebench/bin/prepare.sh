@@ -37,7 +37,7 @@ OPTION="-t hive \
 	-r ${NUM_REDS} \
 	-p ${PAGES} \
 	-v ${USERVISITS} \
-	-o sequence"
+	-o ${HIVE_INPUT_FORMAT}"
 
 START_TIME=`timestamp`
 
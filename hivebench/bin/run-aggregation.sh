@@ -47,13 +47,19 @@ fi
 
 echo "DROP TABLE uservisits;" >> $DIR/hive-benchmark/uservisits_aggre.hive
 echo "DROP TABLE uservisits_aggre;" >> $DIR/hive-benchmark/uservisits_aggre.hive
-echo "CREATE EXTERNAL TABLE uservisits (sourceIP STRING,destURL STRING,visitDate STRING,adRevenue DOUBLE,userAgent STRING,countryCode STRING,languageCode STRING,searchWord STRING,duration INT ) ROW FORMAT DELIMITED FIELDS TERMINATED BY ',' STORED AS SEQUENCEFILE LOCATION '$INPUT_HDFS/uservisits';">> $DIR/hive-benchmark/uservisits_aggre.hive
+echo "CREATE EXTERNAL TABLE uservisits (sourceIP STRING,destURL STRING,visitDate STRING,adRevenue DOUBLE,userAgent STRING,countryCode STRING,languageCode STRING,searchWord STRING,duration INT ) ${HIVE_INPUT_STORAGE} LOCATION '$INPUT_HDFS/uservisits';">> $DIR/hive-benchmark/uservisits_aggre.hive
 cat $DIR/hive-benchmark/uservisits_aggre.template >> $DIR/hive-benchmark/uservisits_aggre.hive
 
 
 SIZE=$($HADOOP_EXECUTABLE job -history $INPUT_HDFS/uservisits | grep 'HiBench.Counters.*|BYTES_DATA_GENERATED')
 SIZE=${SIZE##*|}
 SIZE=${SIZE//,/}
+REPORT_TYPE="HIVEAGGR"
+if [ -n "${HIVE_INGEST:-}" ]; then
+    # the table grows under the query (run-ingest.sh), count what it holds at the start
+    SIZE=$(dir_size $INPUT_HDFS/uservisits)
+    REPORT_TYPE="HIVEAGGR_INGEST"
+fi
 START_TIME=`timestamp`
 
 # run bench
@@ -69,7 +75,7 @@ fi
 
 # post-running
 END_TIME=`timestamp`
-gen_report "HIVEAGGR" ${START_TIME} ${END_TIME} ${SIZE}
+gen_report "${REPORT_TYPE}" ${START_TIME} ${END_TIME} ${SIZE}
 
 $HADOOP_EXECUTABLE fs -rmr $OUTPUT_HDFS/hive-aggre
 $HADOOP_EXECUTABLE fs -cp /user/hive/warehouse/uservisits_aggre $OUTPUT_HDFS/hive-aggre
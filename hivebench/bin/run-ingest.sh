@@ -0,0 +1,72 @@
+#!/bin/bash
+# Licensed to the Apache Software Foundation (ASF) under one or more
+# contributor license agreements.  See the NOTICE file distributed with
+# this work for additional information regarding copyright ownership.
+# The ASF licenses this file to You under the Apache License, Version 2.0
+# (the "License"); you may not use this file except in compliance with
+# the License.  You may obtain a copy of the License at
+#
+#     http://www.apache.org/licenses/LICENSE-2.0
+#
+# Unless required by applicable law or agreed to in writing, software
+# distributed under the License is distributed on an "AS IS" BASIS,
+# WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+# See the License for the specific language governing permissions and
+# limitations under the License.
+set -u
+
+bin=`dirname "$0"`
+bin=`cd "$bin"; pwd`
+
+echo "========== running hive-aggregate bench under ingest =========="
+# configure
+DIR=`cd $bin/../; pwd`
+. "${DIR}/../bin/hibench-config.sh"
+. "${DIR}/conf/configure.sh"
+
+# compress check
+COMPRESS_OPT=""
+if [ $COMPRESS -eq 1 ]; then
+    COMPRESS_OPT="-c ${COMPRESS_CODEC}"
+fi
+
+# append rate limited visits to the data of prepare.sh, in rolls
+OPTION="-t hive \
+	-b ${HIVE_BASE_HDFS} \
+	-n ${HIVE_INPUT} \
+	-m ${NUM_MAPS} \
+	-r ${NUM_REDS} \
+	-p ${PAGES} \
+	-v `expr ${USERVISITS} + ${INGEST_VISITS}` \
+	-o ${HIVE_INPUT_FORMAT} \
+	-append \
+	-vroll ${INGEST_ROLL} \
+	-rate ${INGEST_RATE}"
+
+$HADOOP_EXECUTABLE jar ${DATATOOLS} HiBench.DataGen ${OPTION} ${COMPRESS_OPT} > ${DIR}/ingest.log 2>&1 &
+INGEST_PID=$!
+
+# query the growing table as long as the ingest runs
+export HIVE_INGEST=1
+RUNS=0
+while kill -0 ${INGEST_PID} 2> /dev/null; do
+    ${bin}/run-aggregation.sh
+    result=$?
+    if [ $result -ne 0 ]
+    then
+        echo "ERROR: aggregation failed under ingest, stopping it."
+        kill ${INGEST_PID}
+        exit $result
+    fi
+    RUNS=`expr $RUNS + 1`
+done
+
+wait ${INGEST_PID}
+result=$?
+if [ $result -ne 0 ]
+then
+    echo "ERROR: ingest failed to run successfully, see ${DIR}/ingest.log"
+    exit $result
+fi
+
+echo "${RUNS} aggregation runs under ingest, see ${HIBENCH_REPORT}"
@@ -46,8 +46,8 @@ fi
 echo "DROP TABLE rankings;">>$DIR/hive-benchmark/rankings_uservisits_join.hive
 echo "DROP TABLE uservisits;">>$DIR/hive-benchmark/rankings_uservisits_join.hive
 echo "DROP TABLE rankings_uservisits_join;">>$DIR/hive-benchmark/rankings_uservisits_join.hive
-echo "CREATE EXTERNAL TABLE rankings (pageURL STRING, pageRank INT, avgDuration INT) ROW FORMAT DELIMITED FIELDS TERMINATED BY ',' STORED AS SEQUENCEFILE LOCATION '$INPUT_HDFS/rankings';">>$DIR/hive-benchmark/rankings_uservisits_join.hive
-echo "CREATE EXTERNAL TABLE uservisits (sourceIP STRING,destURL STRING,visitDate STRING,adRevenue DOUBLE,userAgent STRING,countryCode STRING,languageCode STRING,searchWord STRING,duration INT ) ROW FORMAT DELIMITED FIELDS TERMINATED BY ',' STORED AS SEQUENCEFILE LOCATION '$INPUT_HDFS/uservisits/';">>$DIR/hive-benchmark/rankings_uservisits_join.hive
+echo "CREATE EXTERNAL TABLE rankings (pageURL STRING, pageRank INT, avgDuration INT) ${HIVE_INPUT_STORAGE} LOCATION '$INPUT_HDFS/rankings';">>$DIR/hive-benchmark/rankings_uservisits_join.hive
+echo "CREATE EXTERNAL TABLE uservisits (sourceIP STRING,destURL STRING,visitDate STRING,adRevenue DOUBLE,userAgent STRING,countryCode STRING,languageCode STRING,searchWord STRING,duration INT ) ${HIVE_INPUT_STORAGE} LOCATION '$INPUT_HDFS/uservisits/';">>$DIR/hive-benchmark/rankings_uservisits_join.hive
 cat $DIR/hive-benchmark/rankings_uservisits_join.template>>$DIR/hive-benchmark/rankings_uservisits_join.hive
 
 USIZE=$($HADOOP_EXECUTABLE job -history $INPUT_HDFS/uservisits | grep 'HiBench.Counters.*|BYTES_DATA_GENERATED')
@@ -29,6 +29,16 @@ if [ $COMPRESS -eq 1 ]; then
     HIVE_OUTPUT=${HIVE_OUTPUT}-comp
 fi
 
+# storage of the input tables: sequence (delimited text) or rcfile (columnar)
+HIVE_INPUT_FORMAT=sequence
+
+if [ "$HIVE_INPUT_FORMAT" = "rcfile" ]; then
+    HIVE_INPUT=${HIVE_INPUT}-rcfile
+    HIVE_INPUT_STORAGE="ROW FORMAT SERDE 'org.apache.hadoop.hive.serde2.columnar.ColumnarSerDe' STORED AS RCFILE"
+else
+    HIVE_INPUT_STORAGE="ROW FORMAT DELIMITED FIELDS TERMINATED BY ',' STORED AS SEQUENCEFILE"
+fi
+
 INPUT_HDFS=${HIVE_BASE_HDFS}/${HIVE_INPUT}
 OUTPUT_HDFS=${HIVE_BASE_HDFS}/${HIVE_OUTPUT}
 
@@ -59,3 +69,10 @@ NUM_REDS=55
 # test 347GB
 #NUM_MAPS=340
 #NUM_REDS=170
+
+# live ingest (run-ingest.sh): visits appended to the prepared tables in rolls
+# while the aggregation runs again and again, the total ingest rate being
+# NUM_MAPS * INGEST_RATE rows/sec
+INGEST_VISITS=22000000 # added in total
+INGEST_ROLL=2200000 # moved into the table at once
+INGEST_RATE=10000 # rows/sec of each generator task
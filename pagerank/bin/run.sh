@@ -48,9 +48,9 @@ ESIZE=${ESIZE//,/}
 SIZE=$((VSIZE+ESIZE))
 if [ $BLOCK -eq 0 ]
 then
-    OPTION="${COMPRESS_OPT} ${INPUT_HDFS}/edges ${OUTPUT_HDFS} ${PAGES} ${NUM_REDS} ${NUM_ITERATIONS} nosym new"
+    OPTION="${COMPRESS_OPT} -Dpagerank.combine=${COMBINE} -Dpagerank.delta=${DELTA} ${INPUT_HDFS}/edges ${OUTPUT_HDFS} ${PAGES} ${NUM_REDS} ${NUM_ITERATIONS} nosym new ${JOIN}"
 else
-    OPTION="${COMPRESS_OPT} ${OUTPUT_HDFS} ${PAGES} ${NUM_REDS} ${NUM_ITERATIONS} ${BLOCK_WIDTH}"
+    OPTION="${COMPRESS_OPT} -Dpagerank.combine=${COMBINE} ${OUTPUT_HDFS} ${PAGES} ${NUM_REDS} ${NUM_ITERATIONS} ${BLOCK_WIDTH}"
 fi
 
 START_TIME=`timestamp`
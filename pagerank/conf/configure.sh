@@ -42,4 +42,11 @@ NUM_REDS=1
 # for running
 NUM_ITERATIONS=3
 BLOCK=0
+# join of the edges and the pagerank vector in the naive iterations: shuffle (the
+# edges are shuffled every iteration) or schimmy (map-side merge of the partitions)
+JOIN=shuffle
+# summing of the partial pageranks before the shuffle: none, combiner, or inmapper
+COMBINE=none
+# naive iterations propagating only the pagerank changes above a threshold: true or false
+DELTA=false
 BLOCK_WIDTH=32
@@ -33,24 +33,24 @@ import org.apache.hadoop.util.*;
 
 class ResultInfo
 {
-	public int changed;
-	public int unchanged;
+	public long changed;
+	public long unchanged;
 };
 
 public class ConCmpt extends Configured implements Tool 
 {
     public static int MAX_ITERATIONS = 2048;
-	public static int changed_nodes[] = new int[MAX_ITERATIONS];
-	public static int unchanged_nodes[] = new int[MAX_ITERATIONS];
+	public static long changed_nodes[] = new long[MAX_ITERATIONS];
+	public static long unchanged_nodes[] = new long[MAX_ITERATIONS];
 	static int iter_counter = 0;
 
     //////////////////////////////////////////////////////////////////////
     // STAGE 1: join matrix elements and vector elements using matrix.dst_id and vector.row_id
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage1 extends MapReduceBase	implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage1 extends MapReduceBase	implements Mapper<LongWritable, Text, LongWritable, Text>
     {
-		private final IntWritable from_node_int = new IntWritable();
-		private final IntWritable to_node_int = new IntWritable();
+		private final LongWritable from_node_int = new LongWritable();
+		private final LongWritable to_node_int = new LongWritable();
 		int make_symmetric = 0;
 
 		public void configure(JobConf job) {
@@ -59,7 +59,7 @@ public class ConCmpt extends Configured implements Tool
 			System.out.println("MapStage1 : make_symmetric = " + make_symmetric);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			if (line_text.startsWith("#"))				// ignore comments in the edge file
@@ -70,15 +70,15 @@ public class ConCmpt extends Configured implements Tool
 				return;
 
 			if( line[1].startsWith("m") ) {	// input sample: 11	msu5
-				from_node_int.set(Integer.parseInt(line[0]));
+				from_node_int.set(Long.parseLong(line[0]));
 				output.collect(from_node_int, new Text(line[1]));
 			} else {												// (src, dst) edge
-				to_node_int.set(Integer.parseInt(line[1]));
+				to_node_int.set(Long.parseLong(line[1]));
 
 				output.collect(to_node_int, new Text(line[0]));		// invert dst and src
 
 				if( make_symmetric == 1 ) {							// make inverse egges
-					from_node_int.set(Integer.parseInt(line[0]));
+					from_node_int.set(Long.parseLong(line[0]));
 
 					if( to_node_int.get() != from_node_int.get() )
 						output.collect(from_node_int, new Text(line[1]));
@@ -87,20 +87,20 @@ public class ConCmpt extends Configured implements Tool
 		}
 	}
 
-    public static class	RedStage1 extends MapReduceBase implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class	RedStage1 extends MapReduceBase implements Reducer<LongWritable, Text, LongWritable, Text>
     {
-		int number_nodes = 0;
+		long number_nodes = 0;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 
 			System.out.println("RedStage1 : configure is called. number_nodes = " + number_nodes );
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			String component_id_str = "";
-			Set<Integer> from_nodes_set = new HashSet<Integer>();
+			Set<Long> from_nodes_set = new HashSet<Long>();
 			boolean self_contained = false;
 			String line="";
 
@@ -112,7 +112,7 @@ public class ConCmpt extends Configured implements Tool
 					if( component_id_str.length() == 0 )
 						component_id_str = line.substring(3);
 				} else {						// edge line
-					int from_node_int = Integer.parseInt(line);
+					long from_node_int = Long.parseLong(line);
 					from_nodes_set.add( from_node_int );
 					if( key.get() == from_node_int)
 						self_contained = true;
@@ -125,14 +125,14 @@ public class ConCmpt extends Configured implements Tool
 			Iterator from_nodes_it = from_nodes_set.iterator();
 			while (from_nodes_it.hasNext()) {
 				String component_info;
-				int cur_key_int = ((Integer)from_nodes_it.next()).intValue();
+				long cur_key_int = ((Long)from_nodes_it.next()).longValue();
 
 				if( cur_key_int == key.get() ) {
 					component_info = "msi" + component_id_str;
-					output.collect(new IntWritable(cur_key_int), new Text(component_info));
+					output.collect(new LongWritable(cur_key_int), new Text(component_info));
 				} else {
 					component_info = "moi" + component_id_str;
-					output.collect(new IntWritable(cur_key_int), new Text(component_info));
+					output.collect(new LongWritable(cur_key_int), new Text(component_info));
 				}
 			}
 		}
@@ -144,35 +144,35 @@ public class ConCmpt extends Configured implements Tool
 	//  - Input: partial component ids
 	//  - Output: combined component ids
     ////////////////////////////////////////////////////////////////////////////////////////////////
-	public static class MapStage2 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage2 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
 		// Identity mapper
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			final String[] line = value.toString().split("\t");
 
-			output.collect(new IntWritable(Integer.parseInt(line[0])), new Text(line[1]) );
+			output.collect(new LongWritable(Long.parseLong(line[0])), new Text(line[1]) );
 		}
     }
 
-    public static class RedStage2 extends MapReduceBase	implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class RedStage2 extends MapReduceBase	implements Reducer<LongWritable, Text, LongWritable, Text>
     {
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			int i;
 			String out_val ="ms";
 			boolean bSelfChanged = false;
 			char changed_prefix = 'x';
 			String complete_cistring = "";
-			int cur_min_nodeid = -1;
-			int self_min_nodeid = -1;
+			long cur_min_nodeid = -1;
+			long self_min_nodeid = -1;
 
 			while (values.hasNext()) {
 				String cur_ci_string = values.next().toString();
-				int cur_nodeid = -1;
+				long cur_nodeid = -1;
 				try
 				{
-					cur_nodeid = Integer.parseInt( cur_ci_string.substring(3) );
+					cur_nodeid = Long.parseLong( cur_ci_string.substring(3) );
 				}
 				catch (Exception ex)
 				{
@@ -196,27 +196,27 @@ public class ConCmpt extends Configured implements Tool
 			} else
 				changed_prefix = 'i';	// changed
 
-			out_val = out_val + changed_prefix + Integer.toString(cur_min_nodeid);
+			out_val = out_val + changed_prefix + Long.toString(cur_min_nodeid);
 
 			output.collect(key, new Text( out_val ) );
 		}
     }
 
 
-    public static class CombinerStage2 extends MapReduceBase implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class CombinerStage2 extends MapReduceBase implements Reducer<LongWritable, Text, LongWritable, Text>
     {
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			String out_val ="moi";
-			int cur_min_nodeid = -1;
+			long cur_min_nodeid = -1;
 
 			while (values.hasNext()) {
 				Text cur_value_text = values.next();
 				String cur_ci_string = cur_value_text.toString();
-				int cur_nodeid = -1;
+				long cur_nodeid = -1;
 				try
 				{
-					cur_nodeid = Integer.parseInt( cur_ci_string.substring(3) );
+					cur_nodeid = Long.parseLong( cur_ci_string.substring(3) );
 				}
 				catch (Exception ex)
 				{
@@ -237,7 +237,7 @@ public class ConCmpt extends Configured implements Tool
 			}
 
 			if( cur_min_nodeid != -1 ) {
-				out_val += Integer.toString(cur_min_nodeid);
+				out_val += Long.toString(cur_min_nodeid);
 	
 				output.collect(key, new Text( out_val ) );
 			}
@@ -270,16 +270,16 @@ public class ConCmpt extends Configured implements Tool
     {
 		public void reduce (final Text key, final Iterator<Text> values, final OutputCollector<Text, Text> output, final Reporter reporter) throws IOException
 		{
-			int sum = 0;
+			long sum = 0;
 
 			while (values.hasNext()) {
 				final String line = values.next().toString();
-				int cur_value = Integer.parseInt(line);
+				long cur_value = Long.parseLong(line);
 
 				sum += cur_value;
 			}
 
-			output.collect(key, new Text(Integer.toString(sum)) );
+			output.collect(key, new Text(Long.toString(sum)) );
 		}
     }
 
@@ -290,29 +290,29 @@ public class ConCmpt extends Configured implements Tool
 	//    output : comcmpt_summaryout
 	//             min_node_id, number_of_nodes_in_the_component
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage4 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, IntWritable>
+	public static class MapStage4 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, LongWritable>
     {
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, LongWritable> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			final String[] line = line_text.split("\t");
 
-			output.collect( new IntWritable(Integer.parseInt(line[1].substring(3))), new IntWritable(1) );
+			output.collect( new LongWritable(Long.parseLong(line[1].substring(3))), new LongWritable(1) );
 		}
 	}
 
-    public static class	RedStage4 extends MapReduceBase implements Reducer<IntWritable, IntWritable, IntWritable, IntWritable>
+    public static class	RedStage4 extends MapReduceBase implements Reducer<LongWritable, LongWritable, LongWritable, LongWritable>
     {
-		public void reduce (final IntWritable key, final Iterator<IntWritable> values, OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<LongWritable> values, OutputCollector<LongWritable, LongWritable> output, final Reporter reporter) throws IOException
         {
-			int count = 0;
+			long count = 0;
 
 			while (values.hasNext()) {
-				int cur_count = values.next().get();
+				long cur_count = values.next().get();
 				count += cur_count;
 			}
 
-			output.collect(key, new IntWritable(count) );
+			output.collect(key, new LongWritable(count) );
 		}
     }
 
@@ -327,7 +327,7 @@ public class ConCmpt extends Configured implements Tool
 	protected Path output_path = null;
 	protected Path summaryout_path = null;
 	protected String local_output_path;
-	protected int number_nodes = 0;
+	protected long number_nodes = 0;
 	protected int nreducers = 1;
 	protected int cur_iter = 1;
 	protected int start_from_newbm = 0;
@@ -364,7 +364,7 @@ public class ConCmpt extends Configured implements Tool
 		nextbm_path = new Path(args[3]);
 		output_path = new Path(args[4]);
 		summaryout_path = new Path("concmpt_summaryout");
-		number_nodes = Integer.parseInt(args[5]);
+		number_nodes = Long.parseLong(args[5]);
 		nreducers = Integer.parseInt(args[6]);
 
 		if( args[7].compareTo("new") == 0 )
@@ -452,26 +452,27 @@ public class ConCmpt extends Configured implements Tool
     }
 
 	// generate component vector creation command
-	public void gen_component_vector_file(int number_nodes, Path curbm_path) throws IOException
+	public void gen_component_vector_file(long number_nodes, Path curbm_path) throws IOException
 	{
-		int start_pos = 0;
-		int i;
+		long start_pos = 0;
+		long i;
 		int max_filesize = 10000000;
 
 		for(i=0; i < number_nodes; i+=max_filesize)
 		{
 			int len=max_filesize;
 			if(len > number_nodes-i)
-				len = number_nodes - i;
+				len = (int)(number_nodes - i);
 			gen_one_file(number_nodes, i, len, curbm_path);
          }
 	}
 
 	// generate component vector creation command
-	public void gen_one_file(int number_nodes, int start_pos,int len, Path curbm_path) throws IOException
+	public void gen_one_file(long number_nodes, long start_pos,int len, Path curbm_path) throws IOException
 	{
 		// generate a temporary local bitmask command file
-		int i, j = 0, threshold = 0, count=0;
+		long i;
+		int j = 0, threshold = 0, count=0;
 		String file_name = "component_vector.temp."+start_pos;
 		FileWriter file = new FileWriter(file_name);
 		BufferedWriter out = new BufferedWriter (file);
@@ -482,7 +483,7 @@ public class ConCmpt extends Configured implements Tool
 
 		for(i=0; i < number_nodes; i++)
 		{
-			int cur_nodeid = start_pos + i;
+			long cur_nodeid = start_pos + i;
 			out.write(cur_nodeid + "\tmsi" + cur_nodeid + "\n");
 			if(++j > len/10) {
 					System.out.print(".");
@@ -518,9 +519,9 @@ public class ConCmpt extends Configured implements Tool
 			    final String[] line = file_line.split("\t");
 
 				if(line[0].startsWith("i")) 
-					ri.changed = Integer.parseInt( line[1] );
+					ri.changed = Long.parseLong( line[1] );
 				else	// line[0].startsWith("u")
-					ri.unchanged = Integer.parseInt( line[1] );
+					ri.unchanged = Long.parseLong( line[1] );
 
 				file_line = in.readLine();
 			}
@@ -550,7 +551,7 @@ public class ConCmpt extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
@@ -574,7 +575,7 @@ public class ConCmpt extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
@@ -620,8 +621,8 @@ public class ConCmpt extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
+		conf.setOutputValueClass(LongWritable.class);
 
 		return conf;
     }
@@ -33,8 +33,8 @@ import org.apache.hadoop.util.*;
 public class ConCmptBlock extends Configured implements Tool 
 {
     public static int MAX_ITERATIONS = 1024;
-	public static int changed_nodes[] = new int[MAX_ITERATIONS];
-	public static int unchanged_nodes[] = new int[MAX_ITERATIONS];
+	public static long changed_nodes[] = new long[MAX_ITERATIONS];
+	public static long unchanged_nodes[] = new long[MAX_ITERATIONS];
 
 	static int iter_counter = 0;
 
@@ -39,7 +39,7 @@ public class DegDist extends Configured implements Tool
 	//  Input : edge list
 	//  Output : key(node_id), value(degree)
     //////////////////////////////////////////////////////////////////////
-	public static class	MapPass1 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, IntWritable>
+	public static class	MapPass1 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, LongWritable>
     {
 		int deg_type = 0;
 
@@ -49,27 +49,27 @@ public class DegDist extends Configured implements Tool
 			System.out.println("MapPass1 : configure is called. degtype = " + deg_type );
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, LongWritable> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			if (line_text.startsWith("#"))				// ignore comments in edge file
 				return;
 
 			String[] line = line_text.split("\t");
-			IntWritable one_int = new IntWritable(1);
+			LongWritable one_int = new LongWritable(1);
 
 			if( deg_type == OutDeg ) {
-				IntWritable key_node_int = new IntWritable();
-				key_node_int.set(Integer.parseInt(line[0]));
+				LongWritable key_node_int = new LongWritable();
+				key_node_int.set(Long.parseLong(line[0]));
 
 				output.collect(key_node_int, one_int);
 			} else if( deg_type == InDeg) {
-				output.collect( new IntWritable(Integer.parseInt(line[1])), one_int );
+				output.collect( new LongWritable(Long.parseLong(line[1])), one_int );
 			} else if( deg_type == InOutDeg) {		// emit both
-				IntWritable from_node_int = new IntWritable();
-				IntWritable to_node_int = new IntWritable();
-				from_node_int.set(Integer.parseInt(line[0]));
-				to_node_int.set(Integer.parseInt(line[1]));
+				LongWritable from_node_int = new LongWritable();
+				LongWritable to_node_int = new LongWritable();
+				from_node_int.set(Long.parseLong(line[0]));
+				to_node_int.set(Long.parseLong(line[1]));
 
 				output.collect(from_node_int, to_node_int);
 				output.collect(to_node_int, from_node_int);
@@ -77,9 +77,9 @@ public class DegDist extends Configured implements Tool
 		}
 	}
 
-    public static class	RedPass1 extends MapReduceBase implements Reducer<IntWritable, IntWritable, IntWritable, IntWritable>
+    public static class	RedPass1 extends MapReduceBase implements Reducer<LongWritable, LongWritable, LongWritable, LongWritable>
     {
-		private final IntWritable one_int = new IntWritable(1);
+		private final LongWritable one_int = new LongWritable(1);
 
 		int deg_type = 0;
 
@@ -89,25 +89,25 @@ public class DegDist extends Configured implements Tool
 			System.out.println("RedPass1 : configure is called. degtype = " + deg_type );
 		}
 
-		public void reduce (final IntWritable key, final Iterator<IntWritable> values, OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<LongWritable> values, OutputCollector<LongWritable, LongWritable> output, final Reporter reporter) throws IOException
         {
-			int degree = 0;
+			long degree = 0;
 
 			if( deg_type != InOutDeg) {
 				while (values.hasNext()) {
-					int cur_degree = values.next().get();
+					long cur_degree = values.next().get();
 					degree += cur_degree;
 				}
 
-				output.collect(key, new IntWritable(degree) );
+				output.collect(key, new LongWritable(degree) );
 			} else { // deg_type == InOutDeg
-				Set<Integer> outEdgeSet = new TreeSet<Integer>();
+				Set<Long> outEdgeSet = new TreeSet<Long>();
 				while (values.hasNext()) {
-					int cur_outedge = values.next().get();
+					long cur_outedge = values.next().get();
 					outEdgeSet.add( cur_outedge );
 				}
 
-				output.collect(key, new IntWritable(outEdgeSet.size()) );
+				output.collect(key, new LongWritable(outEdgeSet.size()) );
 			}
 		}
     }
@@ -117,29 +117,29 @@ public class DegDist extends Configured implements Tool
 	//  Input : key(node id), value(degree)
 	//  Output : key(degree), value(count)
     ////////////////////////////////////////////////////////////////////////////////////////////////
-	public static class MapPass2 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, IntWritable>
+	public static class MapPass2 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, LongWritable>
     {
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, LongWritable> output, final Reporter reporter) throws IOException
 		{
 			String[] line = value.toString().split("\t");
 
-			output.collect(new IntWritable(Integer.parseInt(line[1])), new IntWritable(1) );
+			output.collect(new LongWritable(Long.parseLong(line[1])), new LongWritable(1) );
 		}
     }
   
 
-    public static class RedPass2 extends MapReduceBase implements Reducer<IntWritable, IntWritable, IntWritable, IntWritable>
+    public static class RedPass2 extends MapReduceBase implements Reducer<LongWritable, LongWritable, LongWritable, LongWritable>
     {
-		public void reduce (final IntWritable key, final Iterator<IntWritable> values, final OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<LongWritable> values, final OutputCollector<LongWritable, LongWritable> output, final Reporter reporter) throws IOException
         {
-			int count = 0;
+			long count = 0;
 
 			while (values.hasNext()) {
-				int cur_count = values.next().get();
+				long cur_count = values.next().get();
 				count += cur_count;
 			}
 
-			output.collect(key, new IntWritable(count) );
+			output.collect(key, new LongWritable(count) );
 		}
     }
 
@@ -226,8 +226,8 @@ public class DegDist extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducer );
 
-		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
+		conf.setOutputValueClass(LongWritable.class);
 
 		return conf;
     }
@@ -248,8 +248,8 @@ public class DegDist extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducer );
 
-		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
+		conf.setOutputValueClass(LongWritable.class);
 
 		return conf;
     }
@@ -33,8 +33,8 @@ import org.apache.hadoop.util.*;
 class HadiResultInfo
 {
 	public float nh;
-	public int converged_nodes;
-	public int changed_nodes;
+	public long converged_nodes;
+	public long changed_nodes;
 };
 
 
@@ -241,7 +241,7 @@ class BitShuffleCoder
 class FMBitmask
 {
 	// generate K replicated bitmasks for one node
-	public static String generate_bitmask(int number_node, int K, int encode_bitmask) 
+	public static String generate_bitmask(long number_node, int K, int encode_bitmask) 
 	{
 		int i;
 		int size_bitmask=32;
@@ -266,7 +266,7 @@ class FMBitmask
 
 
 	// Create a Flajolet-Martin bitstring. The maximum number of nodes is currently 4 billion.
-	public static int create_random_bm(int number_node, int size_bitmask)
+	public static int create_random_bm(long number_node, int size_bitmask)
 	{
 		int j;
 
@@ -422,8 +422,8 @@ class HadiUtils
 
 		HadiResultInfo ri = new HadiResultInfo();
 		ri.nh = Float.parseFloat( line[1] );
-		ri.converged_nodes = Integer.parseInt( line[2] );
-		ri.changed_nodes = Integer.parseInt( line[3] );
+		ri.converged_nodes = Long.parseLong( line[2] );
+		ri.changed_nodes = Long.parseLong( line[3] );
 
 		return ri;
 	}
@@ -442,7 +442,7 @@ public class Hadi extends Configured implements Tool
 	//  - Input: edge_file, bitstrings_from_the_last_iteration(or, bitstring generation command)
 	//  - Output: partial bitstrings
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
 		int make_symmetric = 0;		// Indicates whether to make reverse edges or not.
 
@@ -452,7 +452,7 @@ public class Hadi extends Configured implements Tool
 			System.out.println("MapStage1: make_symmetric = " + make_symmetric);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			if (line_text.startsWith("#"))				// ignore comments in the edge file
@@ -464,39 +464,39 @@ public class Hadi extends Configured implements Tool
 
 			if( line[1].startsWith("b") ||				// bitmask from previous iterations
 				line[1].startsWith("c") ) {				// bitmask creation command
-				output.collect(new IntWritable(Integer.parseInt(line[0])), new Text(line[1]));
+				output.collect(new LongWritable(Long.parseLong(line[0])), new Text(line[1]));
 			} else {									// (src, dst) edge
-				int dst_nodeid = Integer.parseInt(line[1]);
-				output.collect(new IntWritable(dst_nodeid), new Text(line[0]));	// invert to and from
+				long dst_nodeid = Long.parseLong(line[1]);
+				output.collect(new LongWritable(dst_nodeid), new Text(line[0]));	// invert to and from
 
 				if( make_symmetric == 1 ) {										// make the reverse edge
-					int src_nodeid = Integer.parseInt(line[0]);
+					long src_nodeid = Long.parseLong(line[0]);
 
 					if( src_nodeid != dst_nodeid)
-						output.collect(new IntWritable(src_nodeid), new Text(line[1]));
+						output.collect(new LongWritable(src_nodeid), new Text(line[1]));
 				}
 			}
 		}
 	}
 
-    public static class	RedStage1 extends MapReduceBase implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class	RedStage1 extends MapReduceBase implements Reducer<LongWritable, Text, LongWritable, Text>
     {
-		int number_nodes = 0;
+		long number_nodes = 0;
 		int nreplication = 0;
 		int encode_bitmask = 0;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			nreplication = Integer.parseInt(job.get("nreplication"));
 			encode_bitmask = Integer.parseInt(job.get("encode_bitmask"));
 
 			System.out.println("RedStage1: number_nodes = " + number_nodes + ", nreplication = " + nreplication + ", encode_bitmask="+encode_bitmask);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			String bitmask = "";
-			Set<Integer> src_nodes_set = new HashSet<Integer>();
+			Set<Long> src_nodes_set = new HashSet<Long>();
 			boolean self_contained = false;
 			String cur_value="";
 
@@ -508,7 +508,7 @@ public class Hadi extends Configured implements Tool
 				} else if (cur_value.startsWith("c")) {	// bitmask create command line
 					bitmask = FMBitmask.generate_bitmask( number_nodes, nreplication, encode_bitmask );
 				} else {								// edge line
-					int src_node_int = Integer.parseInt(cur_value);
+					long src_node_int = Long.parseLong(cur_value);
 					src_nodes_set.add( src_node_int );
 					if( key.get() == src_node_int)
 						self_contained = true;
@@ -532,14 +532,14 @@ public class Hadi extends Configured implements Tool
 				Iterator src_nodes_it = src_nodes_set.iterator();
 				while (src_nodes_it.hasNext()) {
 					String bitmask_new;
-					int cur_key_int = ((Integer)src_nodes_it.next()).intValue();
+					long cur_key_int = ((Long)src_nodes_it.next()).longValue();
 
 					if( cur_key_int == key.get() ) {	// partial bitmask from 'self'
 						bitmask_new = "bs" + complete_prefix + bitmask.substring(3);
-						output.collect(new IntWritable(cur_key_int), new Text(bitmask_new));
+						output.collect(new LongWritable(cur_key_int), new Text(bitmask_new));
 					} else {							// partial bitmask from 'others'
 						bitmask_new = "bo" + complete_prefix + bitmask.substring(3);
-						output.collect(new IntWritable(cur_key_int), new Text(bitmask_new));
+						output.collect(new LongWritable(cur_key_int), new Text(bitmask_new));
 					}
 				}
 			} catch(Exception ex) {
@@ -554,18 +554,18 @@ public class Hadi extends Configured implements Tool
 	//  - Input: partial bitstrings
 	//  - Output: combined bitstrings
     ////////////////////////////////////////////////////////////////////////////////////////////////
-	public static class MapStage2 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage2 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
 		// Identity mapper
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			final String[] line = value.toString().split("\t");
 
-			output.collect(new IntWritable(Integer.parseInt(line[0])), new Text(line[1]) );
+			output.collect(new LongWritable(Long.parseLong(line[0])), new Text(line[1]) );
 		}
     }
 
-    public static class RedStage2 extends MapReduceBase implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class RedStage2 extends MapReduceBase implements Reducer<LongWritable, Text, LongWritable, Text>
     {
 		int nreplication = 0;
 		int encode_bitmask = 0;
@@ -579,7 +579,7 @@ public class Hadi extends Configured implements Tool
 			System.out.println("RedStage2: nreplication = " + nreplication + ", encode_bitmask = "+encode_bitmask +", cur_radius = " + cur_radius);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			long [] bitmask={0,};
 			long [] self_bitmask={0,};
@@ -675,7 +675,7 @@ public class Hadi extends Configured implements Tool
 		}
     }
 
-    public static class CombinerStage2 extends MapReduceBase implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class CombinerStage2 extends MapReduceBase implements Reducer<LongWritable, Text, LongWritable, Text>
     {
 		int nreplication = 0;
 		int encode_bitmask = 0;
@@ -687,7 +687,7 @@ public class Hadi extends Configured implements Tool
 			System.out.println("CombinerStage2: nreplication = " + nreplication + ", encode_bitmask="+encode_bitmask);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			long [] bitmask={0,};
 			int bitmask_len = -1;
@@ -813,18 +813,18 @@ public class Hadi extends Configured implements Tool
 		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			double nh_sum = 0.0f;				// N(h)
-			int converged_sum = 0;				// number of converged nodes at this iteration
-			int changed_sum = 0;				// number of changed nodes
+			long converged_sum = 0;				// number of converged nodes at this iteration
+			long changed_sum = 0;				// number of changed nodes
 
 			while (values.hasNext()) {
 				final String[] line = values.next().toString().split("\t");
 
 				nh_sum += Double.parseDouble(line[0]);
-				converged_sum += Integer.parseInt(line[1]);
-				changed_sum += Integer.parseInt(line[2]);
+				converged_sum += Long.parseLong(line[1]);
+				changed_sum += Long.parseLong(line[2]);
 			}
 
-			output_val = new Text( Double.toString(nh_sum) + "\t" + Integer.toString(converged_sum) + "\t" + Integer.toString(changed_sum) );
+			output_val = new Text( Double.toString(nh_sum) + "\t" + Long.toString(converged_sum) + "\t" + Long.toString(changed_sum) );
 			output.collect(key, output_val);
 		}
     }
@@ -835,11 +835,11 @@ public class Hadi extends Configured implements Tool
 	//  - Input: the converged bitstrings
 	//  - Output: (node_id, "bsf"max_radius:eff_radius)
     //////////////////////////////////////////////////////////////////////
-    public static class	MapStage4 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+    public static class	MapStage4 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
 		// input sample :
 		// 0       bsi1:1:1.8:2:2.6 8f81878...
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			final String[] line = value.toString().split("\t");
 			final String[] tokens = line[1].split(" ");
@@ -872,7 +872,7 @@ public class Hadi extends Configured implements Tool
 
 				DecimalFormat df = new DecimalFormat("#.##");
 
-				output.collect( new IntWritable(Integer.parseInt(line[0])), new Text("bsf" + max_radius + ":" + df.format(eff_radius)) );
+				output.collect( new LongWritable(Long.parseLong(line[0])), new Text("bsf" + max_radius + ":" + df.format(eff_radius)) );
 			}
 		}
     }
@@ -882,9 +882,9 @@ public class Hadi extends Configured implements Tool
 	//  - Input: current bitstrings
 	//  - Output: effective_radius TAB number_of_nodes_with_such_radius
     //////////////////////////////////////////////////////////////////////
-    public static class	MapStage5 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, IntWritable>
+    public static class	MapStage5 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, LongWritable>
     {
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, LongWritable> output, final Reporter reporter) throws IOException
 		{
 			final String[] line = value.toString().split("\t");
 			final String[] tokens = line[1].split(" ");
@@ -893,24 +893,24 @@ public class Hadi extends Configured implements Tool
 			if( radius_str.length() > 0 ) {
 				String[] radius_info = radius_str.split(":");
 				double eff_radius = Double.parseDouble(radius_info[1]);
-				output.collect( new IntWritable((int)Math.round(eff_radius)), new IntWritable(1) );
+				output.collect( new IntWritable((int)Math.round(eff_radius)), new LongWritable(1) );
 			}
 		}
     }
 
-    public static class	RedStage5 extends MapReduceBase implements Reducer<IntWritable, IntWritable, IntWritable, IntWritable>
+    public static class	RedStage5 extends MapReduceBase implements Reducer<IntWritable, LongWritable, IntWritable, LongWritable>
     {
-		public void reduce (final IntWritable key, final Iterator<IntWritable> values, final OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void reduce (final IntWritable key, final Iterator<LongWritable> values, final OutputCollector<IntWritable, LongWritable> output, final Reporter reporter) throws IOException
 		{
-			int sum = 0;
+			long sum = 0;
 
 			while (values.hasNext()) {
-				int cur_count = values.next().get();
+				long cur_count = values.next().get();
 
 				sum += cur_count;
 			}
 
-			output.collect(key, new IntWritable(sum));
+			output.collect(key, new LongWritable(sum));
 		}
     }
 
@@ -926,7 +926,7 @@ public class Hadi extends Configured implements Tool
 	protected Path radius_path = null;
 	protected Path radius_summary_path = null;
 	protected String local_output_path;
-	protected int number_nodes = 0;
+	protected long number_nodes = 0;
 	protected int nreplication = 0;
 	protected int nreducer = 1;
 	enum EdgeType { Regular, Inverted };
@@ -968,7 +968,7 @@ public class Hadi extends Configured implements Tool
 		tempbm_path = new Path(args[2]);
 		nextbm_path = new Path(args[3]);
 		output_path = new Path(args[4]);
-		number_nodes = Integer.parseInt(args[5]);
+		number_nodes = Long.parseLong(args[5]);
 		radius_path = new Path("hadi_radius");
 		radius_summary_path = new Path("hadi_radius_summary");
 		nreplication = Integer.parseInt(args[6]);
@@ -1084,26 +1084,27 @@ public class Hadi extends Configured implements Tool
     }
 
 	// generate bitmask command file which is used in the 1st iteration.
-	public void gen_bitmask_cmd_file(int number_nodes, int nreplication, Path curbm_path) throws IOException
+	public void gen_bitmask_cmd_file(long number_nodes, int nreplication, Path curbm_path) throws IOException
 	{
-		int start_pos = 0;
-		int i;
+		long start_pos = 0;
+		long i;
 		int max_filesize = 10000000;
 
 		for(i=0; i < number_nodes; i+=max_filesize)
 		{
 			int len=max_filesize;
 			if(len > number_nodes-i)
-				len = number_nodes - i;
+				len = (int)(number_nodes - i);
 			gen_bitmask_cmd_file(number_nodes, i, len, nreplication, curbm_path);
          }
 	}
 
 	// generate a part of the bitmask command file 
-	public void gen_bitmask_cmd_file(int number_nodes, int start_pos,int len, int nreplication, Path curbm_path) throws IOException
+	public void gen_bitmask_cmd_file(long number_nodes, long start_pos,int len, int nreplication, Path curbm_path) throws IOException
 	{
 		// generate a temporary local bitmask command file
-		int i, j = 0, threshold = 0, count=0;
+		long i;
+		int j = 0, threshold = 0, count=0;
 		String file_name = "bitmask_cmd.hadi."+number_nodes+"."+start_pos;
 		FileWriter file = new FileWriter(file_name);
 		BufferedWriter out = new BufferedWriter (file);
@@ -1114,7 +1115,7 @@ public class Hadi extends Configured implements Tool
 
 		for(i=0; i < number_nodes; i++)
 		{
-			int cur_nodeid = start_pos + i;
+			long cur_nodeid = start_pos + i;
 			out.write(cur_nodeid + "\tc\n");
 			if(++j > len/10) {
 					System.out.print(".");
@@ -1149,7 +1150,7 @@ public class Hadi extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducer );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
@@ -1173,7 +1174,7 @@ public class Hadi extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducer );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
@@ -1216,7 +1217,7 @@ public class Hadi extends Configured implements Tool
 
 		conf.setNumReduceTasks( 0 );		//This is essential for map-only tasks.
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
@@ -1239,7 +1240,7 @@ public class Hadi extends Configured implements Tool
 		conf.setNumReduceTasks( nreducer );
 
 		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(IntWritable.class);
+		conf.setOutputValueClass(LongWritable.class);
 
 		return conf;
     }
@@ -655,7 +655,7 @@ public class HadiBlock extends Configured implements Tool
 		conf.setNumReduceTasks( nreducer );
 
 		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(IntWritable.class);
+		conf.setOutputValueClass(LongWritable.class);
 
 		return conf;
     }
@@ -38,9 +38,9 @@ public class Saxpy extends Configured implements Tool
     //////////////////////////////////////////////////////////////////////
 
 	// MapStage1: 
-	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, DoubleWritable>
+	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, DoubleWritable>
     {
-		private final IntWritable from_node_int = new IntWritable();
+		private final LongWritable from_node_int = new LongWritable();
 		private boolean isYpath = false;
 		private boolean isXpath = false;
 		private double a;
@@ -59,12 +59,12 @@ public class Saxpy extends Configured implements Tool
 			System.out.println("Saxpy.MapStage1: map.input.file = " + input_file + ", isYpath=" + isYpath + ", isXpath=" + isXpath + ", a=" + a);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, DoubleWritable> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, DoubleWritable> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			int tabpos = line_text.indexOf("\t");
 
-			int out_key = Integer.parseInt(line_text.substring(0, tabpos));
+			long out_key = Long.parseLong(line_text.substring(0, tabpos));
 			double out_val = 0;
 
 			if( line_text.charAt(tabpos+1) == 'v') {
@@ -74,17 +74,17 @@ public class Saxpy extends Configured implements Tool
 			}
 
 			if( isYpath ) {
-				output.collect( new IntWritable(out_key) , new DoubleWritable(out_val) );
+				output.collect( new LongWritable(out_key) , new DoubleWritable(out_val) );
 			} else if( isXpath ) {
-				output.collect( new IntWritable(out_key) , new DoubleWritable( a * out_val ) );
+				output.collect( new LongWritable(out_key) , new DoubleWritable( a * out_val ) );
 			}
 		}
 	}
 
 	// RedStage1
-    public static class RedStage1 extends MapReduceBase	implements Reducer<IntWritable, DoubleWritable, IntWritable, DoubleWritable>
+    public static class RedStage1 extends MapReduceBase	implements Reducer<LongWritable, DoubleWritable, LongWritable, DoubleWritable>
     {
-		public void reduce (final IntWritable key, final Iterator<DoubleWritable> values, final OutputCollector<IntWritable, DoubleWritable> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<DoubleWritable> values, final OutputCollector<LongWritable, DoubleWritable> output, final Reporter reporter) throws IOException
         {
 			int i = 0;
 			double val_double[] = new double[2];
@@ -181,7 +181,7 @@ public class Saxpy extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(DoubleWritable.class);
 
 		return conf;
@@ -38,9 +38,9 @@ public class ScalarMult extends Configured implements Tool
     //////////////////////////////////////////////////////////////////////
 
 	// MapStage1: 
-	public static class MapStage1Double extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, DoubleWritable>
+	public static class MapStage1Double extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, DoubleWritable>
     {
-		private final IntWritable from_node_int = new IntWritable();
+		private final LongWritable from_node_int = new LongWritable();
 		private boolean isYpath = false;
 		private boolean isXpath = false;
 		private double s;
@@ -51,12 +51,12 @@ public class ScalarMult extends Configured implements Tool
 			System.out.println("ScalarMult.MapStage1: s = " + s);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, DoubleWritable> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, DoubleWritable> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			int tabpos = line_text.indexOf("\t");
 
-			int out_key = Integer.parseInt(line_text.substring(0, tabpos));
+			long out_key = Long.parseLong(line_text.substring(0, tabpos));
 			double out_val = 0;
 
 			if( line_text.charAt(tabpos+1) == 'v') {
@@ -65,13 +65,13 @@ public class ScalarMult extends Configured implements Tool
 				out_val = Double.parseDouble(line_text.substring(tabpos+1));
 			}
 
-			output.collect(new IntWritable(out_key), new DoubleWritable(s*out_val));
+			output.collect(new LongWritable(out_key), new DoubleWritable(s*out_val));
 		}
 	}
 
-	public static class MapStage1Text extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage1Text extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
-		private final IntWritable from_node_int = new IntWritable();
+		private final LongWritable from_node_int = new LongWritable();
 		private boolean isYpath = false;
 		private boolean isXpath = false;
 		private double s;
@@ -82,12 +82,12 @@ public class ScalarMult extends Configured implements Tool
 			System.out.println("ScalarMult.MapStage1: s = " + s);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			int tabpos = line_text.indexOf("\t");
 
-			int out_key = Integer.parseInt(line_text.substring(0, tabpos));
+			long out_key = Long.parseLong(line_text.substring(0, tabpos));
 			double out_val = 0;
 
 			if( line_text.charAt(tabpos+1) == 'v') {
@@ -96,7 +96,7 @@ public class ScalarMult extends Configured implements Tool
 				out_val = Double.parseDouble(line_text.substring(tabpos+1));
 			}
 
-			output.collect(new IntWritable(out_key), new Text("v" + (s*out_val)) );
+			output.collect(new LongWritable(out_key), new Text("v" + (s*out_val)) );
 		}
 	}
 
@@ -164,7 +164,7 @@ public class ScalarMult extends Configured implements Tool
 
 		conf.setNumReduceTasks( 0 );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);//conf.setOutputValueClass(DoubleWritable.class);
 
 		return conf;
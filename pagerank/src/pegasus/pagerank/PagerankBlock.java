@@ -41,9 +41,9 @@ public class PagerankBlock extends Configured implements Tool
 	//  - Input: edge_file, pagerank vector
 	//  - Output: partial matrix-vector multiplication results.
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			if (line_text.startsWith("#"))				// ignore comments in edge file
@@ -55,15 +55,15 @@ public class PagerankBlock extends Configured implements Tool
 				return;
 
 			if( line.length == 2 ) {	// vector. 
-				output.collect( new IntWritable(Integer.parseInt(line[0])), new Text(line[1]) );
+				output.collect( new LongWritable(Long.parseLong(line[0])), new Text(line[1]) );
 			} else {					// edge
-				output.collect( new IntWritable(Integer.parseInt(line[1])), new Text(line[0] + "\t" + line[2]) );
+				output.collect( new LongWritable(Long.parseLong(line[1])), new Text(line[0] + "\t" + line[2]) );
 			}
 		}
 	}
 
 
-    public static class	RedStage1 extends MapReduceBase implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class	RedStage1 extends MapReduceBase implements Reducer<LongWritable, Text, LongWritable, Text>
     {
 		protected int block_width;
 
@@ -73,7 +73,7 @@ public class PagerankBlock extends Configured implements Tool
 			System.out.println("RedStage1: block_width=" + block_width);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			int i;
 			float vector_val = 0;
@@ -83,7 +83,7 @@ public class PagerankBlock extends Configured implements Tool
 
 			ArrayList<VectorElem<Double>> vectorArr = null;		// save vector
 			ArrayList<ArrayList<BlockElem<Double>>> blockArr = new ArrayList<ArrayList<BlockElem<Double>>>();	// save blocks
-			ArrayList<Integer> blockRowArr = new ArrayList<Integer>();	// save block rows(integer)
+			ArrayList<Long> blockRowArr = new ArrayList<Long>();	// save block rows(long)
 
 			while (values.hasNext()) {
 				// vector: key=BLOCKID, value= (IN-BLOCK-INDEX VALUE)s
@@ -95,7 +95,7 @@ public class PagerankBlock extends Configured implements Tool
 					vectorArr = GIMV.parseVectorVal(line_text.substring(1), Double.class);
 				} else {					// edge : ROWID		VALUE
 					blockArr.add( GIMV.parseBlockVal(line[1], Double.class) );	
-					int block_row = Integer.parseInt(line[0]);
+					long block_row = Long.parseLong(line[0]);
 					blockRowArr.add( block_row );
 				}
 			}
@@ -110,10 +110,10 @@ public class PagerankBlock extends Configured implements Tool
 
 			// For every matrix block, join it with vector and output partial results
 			Iterator<ArrayList<BlockElem<Double>>> blockArrIter = blockArr.iterator();
-			Iterator<Integer> blockRowIter = blockRowArr.iterator();
+			Iterator<Long> blockRowIter = blockRowArr.iterator();
 			while( blockArrIter.hasNext() ){
 				ArrayList<BlockElem<Double>> cur_block = blockArrIter.next();
-				int cur_block_row = blockRowIter.next();
+				long cur_block_row = blockRowIter.next();
 
 				// multiply cur_block and vectorArr. 
 				ArrayList<VectorElem<Double>> cur_mult_result = GIMV.multBlockVector( cur_block, vectorArr, block_width);
@@ -129,7 +129,7 @@ public class PagerankBlock extends Configured implements Tool
 					}
 					
 					// output the partial result of multiplication.
-					output.collect(new IntWritable(cur_block_row), new Text(cur_block_output));
+					output.collect(new LongWritable(cur_block_row), new Text(cur_block_output));
 				}
 			}
 		}
@@ -140,27 +140,150 @@ public class PagerankBlock extends Configured implements Tool
     //////////////////////////////////////////////////////////////////////
     // PASS 2: merge partial multiplication results
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage2 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage2 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			final String[] line = value.toString().split("\t");
 
-			IntWritable node_key = new IntWritable(Integer.parseInt(line[0]));
+			LongWritable node_key = new LongWritable(Long.parseLong(line[0]));
 			output.collect(node_key, new Text(line[1]) );
 		}
     }
 
-    public static class RedStage2 extends MapReduceBase implements Reducer<IntWritable, Text, IntWritable, Text>
+	// In-mapper combining variant of MapStage2 : the partial "o" vectors are summed per block
+	// in memory, and flushed when the map task ends or holds too many blocks.
+	public static class MapStage2InMapper extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
+    {
+		HashMap<Long, BlockSums> sums = new HashMap<Long, BlockSums>();
+		OutputCollector<LongWritable, Text> output = null;
+		int block_width;
+		int max_entries;
+
+		public void configure(JobConf job) {
+			block_width = Integer.parseInt(job.get("block_width"));
+			max_entries = job.getInt(PagerankNaive.COMBINE_ENTRIES, 100000);
+
+			System.out.println("MapStage2InMapper : block_width=" + block_width + ", max_entries=" + max_entries);
+		}
+
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
+		{
+			this.output = output;
+			final String[] line = value.toString().split("\t");
+			long block_id = Long.parseLong(line[0]);
+
+			if( line[1].charAt(0) == 's' ) {
+				output.collect(new LongWritable(block_id), new Text(line[1]) );
+				return;
+			}
+
+			BlockSums block = sums.get(block_id);
+			if( block == null ) {
+				if( sums.size() >= max_entries )
+					flush();
+				block = new BlockSums(block_width);
+				sums.put(block_id, block);
+			}
+			block.add(line[1]);
+		}
+
+		private void flush() throws IOException {
+			for( Map.Entry<Long, BlockSums> entry : sums.entrySet() )
+				output.collect(new LongWritable(entry.getKey()), entry.getValue().toText());
+			sums.clear();
+		}
+
+		public void close() throws IOException {
+			if( output != null )
+				flush();
+		}
+    }
+
+	// Combiner : sums the partial "o" vectors of a block, the "s" records are passed through
+    public static class CombinerStage2 extends MapReduceBase implements Reducer<LongWritable, Text, LongWritable, Text>
+    {
+		BlockSums block;
+
+		public void configure(JobConf job) {
+			block = new BlockSums(Integer.parseInt(job.get("block_width")));
+		}
+
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
+        {
+			block.clear();
+			while (values.hasNext()) {
+				Text cur_value = values.next();
+				if( cur_value.charAt(0) == 's' )
+					output.collect(key, cur_value);
+				else
+					block.add(cur_value.toString());
+			}
+
+			if( !block.isEmpty() )
+				output.collect(key, block.toText());
+		}
+    }
+
+	// Sum of partial "o" vectors of a block. The rows without any partial result are left out.
+	static class BlockSums
+	{
+		double [] vals;
+		boolean [] has_vals;
+		int count = 0;
+
+		BlockSums(int block_width) {
+			vals = new double[block_width];
+			has_vals = new boolean[block_width];
+		}
+
+		public void add(String o_str) {
+			ArrayList<VectorElem<Double>> cur_vector = GIMV.parseVectorVal(o_str.substring(1), Double.class);
+			Iterator<VectorElem<Double>> vector_iter = cur_vector.iterator();
+
+			while( vector_iter.hasNext() ) {
+				VectorElem<Double> v_elem = vector_iter.next();
+				if( !has_vals[v_elem.row] ) {
+					has_vals[v_elem.row] = true;
+					count++;
+				}
+				vals[ v_elem.row ] += v_elem.val;
+			}
+		}
+
+		public boolean isEmpty() {
+			return count == 0;
+		}
+
+		public void clear() {
+			Arrays.fill(vals, 0);
+			Arrays.fill(has_vals, false);
+			count = 0;
+		}
+
+		public Text toText() {
+			StringBuilder out_str = new StringBuilder("o");
+			for(int i = 0; i < vals.length; i++) {
+				if( !has_vals[i] )
+					continue;
+				if( out_str.length() > 1 )
+					out_str.append(' ');
+				out_str.append(i).append(' ').append(vals[i]);
+			}
+			return new Text(out_str.toString());
+		}
+	}
+
+    public static class RedStage2 extends MapReduceBase implements Reducer<LongWritable, Text, LongWritable, Text>
     {
 		protected int block_width;
 		double mixing_c = 0;
 		double random_coeff = 0;
 		double converge_threshold = 0;
-		int number_nodes = 1;
+		long number_nodes = 1;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			block_width = Integer.parseInt(job.get("block_width"));
 			mixing_c = Double.parseDouble(job.get("mixing_c"));
 			random_coeff = (1-mixing_c) / (double)number_nodes;
@@ -168,7 +291,7 @@ public class PagerankBlock extends Configured implements Tool
 			System.out.println("RedStage2 : block_width=" + block_width + ", converge_threshold="+converge_threshold);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			ArrayList<VectorElem<Double>> self_vector = null;
 			int i;
@@ -227,7 +350,7 @@ public class PagerankBlock extends Configured implements Tool
 	//  - Input: the converged block PageRank vector
 	//  - Output: (node_id, "v"PageRank_of_the_node)
     //////////////////////////////////////////////////////////////////////
-    public static class	MapStage25 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+    public static class	MapStage25 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
 		int block_width;
 
@@ -239,18 +362,18 @@ public class PagerankBlock extends Configured implements Tool
 
 		// input sample :
 		//0       v0 0.11537637712698735 1 0.11537637712698735
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			final String[] line = value.toString().split("\t");
 			final String[] tokens = line[1].substring(1).split(" ");
 			int i;
-			int block_id = Integer.parseInt(line[0] );
+			long block_id = Long.parseLong(line[0] );
 
 			for(i = 0; i < tokens.length; i+=2) {
 				int elem_row = Integer.parseInt(tokens[i]);
 				double pagerank = Double.parseDouble(tokens[i+1]);
 
-				output.collect( new IntWritable(block_width * block_id + elem_row), new Text("v" + pagerank) );
+				output.collect( new LongWritable(block_width * block_id + elem_row), new Text("v" + pagerank) );
 			}
 		}
     }
@@ -282,12 +405,13 @@ public class PagerankBlock extends Configured implements Tool
 	protected Path minmax_path = null;
 	protected Path distr_path = null;
 	protected String local_output_path;
-	protected int number_nodes = 0;
+	protected long number_nodes = 0;
 	protected int niteration = 32;
 	protected double mixing_c = 0.85f;
 	protected int nreducers = 1;
 	protected int make_symmetric = 0;		// convert directed graph to undirected graph
 	protected int block_width = 64;
+	protected String combine = "none";	// combining of the partial results, as in PagerankNaive
 	FileSystem fs ;
 
     // Main entry point.
@@ -324,17 +448,19 @@ public class PagerankBlock extends Configured implements Tool
 		vector_unfold_path = new Path(args[0]+"/pr_vector");
 		minmax_path = new Path(args[0]+"/pr_minmax");
 		distr_path = new Path(args[0]+"/pr_distr");
-		number_nodes = Integer.parseInt(args[1]);
+		number_nodes = Long.parseLong(args[1]);
 		nreducers = Integer.parseInt(args[2]);
 		niteration = Integer.parseInt(args[3]);
 		block_width = Integer.parseInt(args[4]);
 
+		combine = getConf().get(PagerankNaive.COMBINE, combine);
+
 		local_output_path = args[0]+"/pr_tempmv_block_temp";
 
 		converge_threshold = ((double)1.0/(double) number_nodes)/50;
 
 		System.out.println("\n-----===[PEGASUS: A Peta-Scale Graph Mining System]===-----\n");
-		System.out.println("[PEGASUS] Computing PageRank using block method. Max iteration = " +niteration + ", threshold = " + converge_threshold + "\n");
+		System.out.println("[PEGASUS] Computing PageRank using block method. Max iteration = " +niteration + ", threshold = " + converge_threshold + ", combine = " + combine + "\n");
 
 		fs = FileSystem.get(getConf());
 
@@ -413,7 +539,7 @@ public class PagerankBlock extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
@@ -429,7 +555,12 @@ public class PagerankBlock extends Configured implements Tool
 		conf.set("block_width", "" + block_width);
 		conf.setJobName("Pagerank_Stage2");
 		
-		conf.setMapperClass(MapStage2.class);        
+		if( combine.equals("inmapper") )
+			conf.setMapperClass(MapStage2InMapper.class);
+		else
+			conf.setMapperClass(MapStage2.class);
+		if( combine.equals("combiner") )
+			conf.setCombinerClass(CombinerStage2.class);
 		conf.setReducerClass(RedStage2.class);
 
 		fs.delete(output_path, true);
@@ -439,7 +570,7 @@ public class PagerankBlock extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
@@ -461,7 +592,7 @@ public class PagerankBlock extends Configured implements Tool
 
 		conf.setNumReduceTasks( 0 );		//This is essential for map-only tasks.
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
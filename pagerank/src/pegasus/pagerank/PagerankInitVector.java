@@ -36,9 +36,9 @@ public class PagerankInitVector extends Configured implements Tool
     //////////////////////////////////////////////////////////////////////
     // STAGE 1: make initial pagerank vector
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			if (line_text.startsWith("#"))				// ignore comments in edge file
@@ -46,34 +46,34 @@ public class PagerankInitVector extends Configured implements Tool
 
 			final String[] line = line_text.split("\t");
 
-			output.collect( new IntWritable(Integer.parseInt(line[0])), new Text(line[1] + "\t" + line[2]) );
+			output.collect( new LongWritable(Long.parseLong(line[0])), new Text(line[1] + "\t" + line[2]) );
 		}
 	}
 
-    public static class RedStage1 extends MapReduceBase	implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class RedStage1 extends MapReduceBase	implements Reducer<LongWritable, Text, LongWritable, Text>
     {
-		int number_nodes = 1;
+		long number_nodes = 1;
 		double initial_weight = 0.0f;
 		String str_weight;
-		private final IntWritable from_node_int = new IntWritable();
+		private final LongWritable from_node_int = new LongWritable();
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			initial_weight = (double)1.0 / (double)number_nodes;
 			str_weight = new String("" + initial_weight );
 			System.out.println("MapStage1: number_nodes = " + number_nodes);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
-			int i;
+			long i;
 
 			while (values.hasNext()) {
 				String cur_value_str = values.next().toString();
 				final String[] line = cur_value_str.split("\t");
 
-				int start_node = Integer.parseInt(line[0]);
-				int end_node = Integer.parseInt(line[1]);
+				long start_node = Long.parseLong(line[0]);
+				long end_node = Long.parseLong(line[1]);
 
 				for(i = start_node; i <= end_node; i++) {
 					from_node_int.set( i );
@@ -88,7 +88,7 @@ public class PagerankInitVector extends Configured implements Tool
     //////////////////////////////////////////////////////////////////////
 	protected Path output_path = null;
 	protected Path initial_prinput_path = new Path("pr_input");
-	protected int number_nodes = 0;
+	protected long number_nodes = 0;
 	protected int nreducers = 1;
 
     // Main entry point.
@@ -123,7 +123,7 @@ public class PagerankInitVector extends Configured implements Tool
 		}
 
 		output_path = new Path(args[0]);				
-		number_nodes = Integer.parseInt(args[1]);
+		number_nodes = Long.parseLong(args[1]);
 		nreducers = Integer.parseInt(args[2]);
 
 		System.out.println("\n-----===[PEGASUS: A Peta-Scale Graph Mining System]===-----\n");
@@ -140,11 +140,11 @@ public class PagerankInitVector extends Configured implements Tool
     }
 
 	// create PageRank init vector generation command
-	public void gen_initial_pagerank_file(int number_nodes, int nmachines, Path initial_input_path) throws IOException
+	public void gen_initial_pagerank_file(long number_nodes, int nmachines, Path initial_input_path) throws IOException
 	{
-		int gap = number_nodes / nmachines;
+		long gap = number_nodes / nmachines;
 		int i;
-		int start_node, end_node;
+		long start_node, end_node;
 		String file_name = "pagerank.initial_rank.temp";
 		FileWriter file = new FileWriter(file_name);
 		BufferedWriter out = new BufferedWriter (file);
@@ -184,7 +184,7 @@ public class PagerankInitVector extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setMapOutputValueClass(Text.class);
 		conf.setOutputValueClass(Text.class);
 
@@ -38,178 +38,482 @@ class MinMaxInfo
 
 public class PagerankNaive extends Configured implements Tool 
 {
-    protected static enum PrCounters { CONVERGE_CHECK }
+    protected static enum PrCounters { CONVERGE_CHECK, ACTIVE_NODES, RESIDUAL }
 	protected static double converge_threshold = 0.000001;
+	// the L1 residual is counted in units of 1/RESIDUAL_SCALE
+	protected static final double RESIDUAL_SCALE = 1e15;
+
+	// combining of the stage 2 partial results : none, combiner, or inmapper
+	public static final String COMBINE = "pagerank.combine";
+	// number of destinations (blocks in PagerankBlock) an in-mapper combining task holds
+	public static final String COMBINE_ENTRIES = "pagerank.combine.entries";
+	// delta mode : only the nodes whose rank changed above the threshold propagate the change
+	public static final String DELTA = "pagerank.delta";
+	// threshold of the changes propagated in the delta mode. The changes held below it add up
+	// over all the nodes, so it defaults to a fraction of the threshold of the plain iterations.
+	public static final String DELTA_THRESHOLD = "pagerank.delta.threshold";
+
+	// Emit the self record of a node, and return the value its destinations share : its rank,
+	// or for a 'd' record of the delta mode its pending change once above the threshold, which
+	// is then reset. A change below the threshold is kept for a later iteration and 0 is returned.
+	static double emitSelf(final LongWritable key, double rank, double pending, boolean delta, double threshold, final PagerankValue out_value, final OutputCollector<LongWritable, PagerankValue> output) throws IOException
+	{
+		if( !delta ) {
+			output.collect(key, out_value.setPrev( rank ));
+			return rank;
+		}
+
+		if( Math.abs(pending) <= threshold ) {
+			output.collect(key, out_value.setDelta( rank, pending ));
+			return 0;
+		}
+
+		output.collect(key, out_value.setDelta( rank, 0 ));
+		return pending;
+	}
 
     //////////////////////////////////////////////////////////////////////
-    // STAGE 1: Generate partial matrix-vector multiplication results.
-	//          Perform hash join using Vector.rowid == Matrix.colid.
-	//  - Input: edge_file, pagerank vector
-	//  - Output: partial matrix-vector multiplication results.
+    // STAGE 0: Convert the edge file into binary adjacency lists.
+	//  - Input: edge_file, as text lines 'SRC	DST' (or 'KEY	SRC	DST' from
+	//           the HiBench generator) or as a SequenceFile of LongWritable edges
+	//  - Output: (src, PagerankValue of the destinations of src)
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage1 extends MapReduceBase	implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage0 extends MapReduceBase	implements Mapper<Writable, Writable, LongWritable, LongWritable>
     {
+		private final LongWritable src_int = new LongWritable();
+		private final LongWritable dst_int = new LongWritable();
 		int make_symmetric = 0;
 
 		public void configure(JobConf job) {
 			make_symmetric = Integer.parseInt(job.get("make_symmetric"));
 
-			System.out.println("MapStage1 : make_symmetric = " + make_symmetric);
+			System.out.println("MapStage0 : make_symmetric = " + make_symmetric);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final Writable key, final Writable value, final OutputCollector<LongWritable, LongWritable> output, final Reporter reporter) throws IOException
 		{
-			String line_text = value.toString();
-			if (line_text.startsWith("#"))				// ignore comments in edge file
-				return;
+			if( value instanceof LongWritable ) {	// binary edge : SRC -> DST
+				src_int.set( ((LongWritable)key).get() );
+				dst_int.set( ((LongWritable)value).get() );
+			} else {
+				String line_text = value.toString();
+				if (line_text.startsWith("#"))				// ignore comments in edge file
+					return;
 
-			final String[] line = line_text.split("\t");
-			if(line.length < 2 )
-				return;
+				final String[] line = line_text.split("\t");
+				if(line.length < 2 )
+					return;
+
+				// the last two columns are the edge, the generator writes its key first
+				src_int.set( Long.parseLong(line[line.length - 2]) );
+				dst_int.set( Long.parseLong(line[line.length - 1]) );
+			}
+
+			// In other matrix-vector multiplication, we output (dst, src) here
+			// However, In PageRank, the matrix-vector computation formula is M^T * v.
+			// Therefore, we output (src,dst) here.
+			output.collect( src_int, dst_int );
+
+			if( make_symmetric == 1 )
+				output.collect( dst_int, src_int );
+		}
+	}
+
+    public static class RedStage0 extends MapReduceBase	implements Reducer<LongWritable, LongWritable, LongWritable, PagerankValue>
+    {
+		private final PagerankValue edges = new PagerankValue();
+		private long[] dsts = new long[16];
+
+		public void reduce (final LongWritable key, final Iterator<LongWritable> values, final OutputCollector<LongWritable, PagerankValue> output, final Reporter reporter) throws IOException
+        {
+			int outdeg = 0;
 
-			if( line[1].charAt(0) == 'v' ) {	// vector : ROWID	VALUE('vNNNN')
-				output.collect( new IntWritable(Integer.parseInt(line[0])), new Text(line[1]) );
-			} else {							
-				// In other matrix-vector multiplication, we output (dst, src) here
-				// However, In PageRank, the matrix-vector computation formula is M^T * v.
-				// Therefore, we output (src,dst) here.
-				int src_id = Integer.parseInt(line[0]);
-				int dst_id = Integer.parseInt(line[1]);
-				output.collect( new IntWritable( src_id ), new Text(line[1]) );
-
-				if( make_symmetric == 1 )
-					output.collect( new IntWritable( dst_id ), new Text(line[0]) );
+			while (values.hasNext()) {
+				if( outdeg == dsts.length )
+					dsts = Arrays.copyOf(dsts, outdeg * 2);
+				dsts[outdeg++] = values.next().get();
 			}
+
+			output.collect( key, edges.setEdges(dsts, outdeg) );
+		}
+    }
+
+    //////////////////////////////////////////////////////////////////////
+    // STAGE 1: Generate partial matrix-vector multiplication results.
+	//          Perform hash join using Vector.rowid == Matrix.colid.
+	//  - Input: adjacency lists, pagerank vector
+	//  - Output: partial matrix-vector multiplication results.
+    //////////////////////////////////////////////////////////////////////
+	public static class MapStage1 extends MapReduceBase	implements Mapper<LongWritable, PagerankValue, LongWritable, PagerankValue>
+    {
+		// Identity mapper : the adjacency lists are already keyed by their source
+		public void map (final LongWritable key, final PagerankValue value, final OutputCollector<LongWritable, PagerankValue> output, final Reporter reporter) throws IOException
+		{
+			output.collect( key, value );
 		}
 	}
 
-    public static class RedStage1 extends MapReduceBase	implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class RedStage1 extends MapReduceBase	implements Reducer<LongWritable, PagerankValue, LongWritable, PagerankValue>
     {
-		int number_nodes = 0;
+		private final LongWritable dst_int = new LongWritable();
+		private final PagerankValue out_value = new PagerankValue();
+		private long[] dsts = new long[16];
+		long number_nodes = 0;
 		double mixing_c = 0;
 		double random_coeff = 0;
+		double converge_threshold = 0;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			mixing_c = Double.parseDouble(job.get("mixing_c"));
 			random_coeff = (1-mixing_c) / (double)number_nodes;
+			converge_threshold = Double.parseDouble(job.get("converge_threshold"));
 
 			System.out.println("RedStage1: number_nodes = " + number_nodes + ", mixing_c = " + mixing_c + ", random_coeff = " + random_coeff);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<PagerankValue> values, final OutputCollector<LongWritable, PagerankValue> output, final Reporter reporter) throws IOException
         {
 			int i;
 			double cur_rank = 0;
-
-		    ArrayList<Integer> dst_nodes_list = new ArrayList<Integer>();
+			double cur_delta = 0;
+			boolean delta = false;
+			int outdeg = 0;
 
 			while (values.hasNext()) {
-				String line_text = values.next().toString();
-				final String[] line = line_text.split("\t");
-
-				if( line.length == 1 ) {	
-					if(line_text.charAt(0) == 'v')	// vector : VALUE
-						cur_rank = Double.parseDouble(line_text.substring(1));
-					else {							// edge : ROWID
-						dst_nodes_list.add( Integer.parseInt( line[0] ) );
-					}
-				} 
+				PagerankValue cur_value = values.next();
+
+				if( cur_value.getType() == PagerankValue.RANK )	// vector : VALUE
+					cur_rank = cur_value.getRank();
+				else if( cur_value.getType() == PagerankValue.DELTA ) {	// vector : VALUE and pending change
+					cur_rank = cur_value.getRank();
+					cur_delta = cur_value.getDelta();
+					delta = true;
+				} else {										// edges : DST ids, copied as the value is reused
+					int len = cur_value.getLength();
+					if( outdeg + len > dsts.length )
+						dsts = Arrays.copyOf(dsts, Math.max(outdeg + len, dsts.length * 2));
+					System.arraycopy(cur_value.getDsts(), 0, dsts, outdeg, len);
+					outdeg += len;
+				}
 			}
 
 			// add random coeff
-			output.collect(key, new Text( "s" + cur_rank ));
+			cur_rank = emitSelf(key, cur_rank, cur_delta, delta, converge_threshold, out_value, output);
+			if( delta && cur_rank == 0 )
+				return;
 
-			int outdeg = dst_nodes_list.size();
 			if( outdeg > 0 )
 				cur_rank = cur_rank / (double)outdeg;
 
+			out_value.setRank( cur_rank );
 			for( i = 0; i < outdeg; i++) {
-				output.collect( new IntWritable( dst_nodes_list.get(i) ), new Text( "v" + cur_rank ) );
+				dst_int.set( dsts[i] );
+				output.collect( dst_int, out_value );
 			}
 		}
     }
 
+    //////////////////////////////////////////////////////////////////////
+    // STAGE 1 (schimmy): Generate partial matrix-vector multiplication results
+	//          with a map-side merge join of the adjacency lists and the vector.
+	//          Both are range partitioned and sorted by node id, so the map task
+	//          of an adjacency list partition reads the vector partition of the
+	//          same name alongside it, and only the partial results are shuffled.
+	//  - Input: adjacency lists, one unsplit partition per map task
+	//  - Output: partial matrix-vector multiplication results, to RedStage2
+    //////////////////////////////////////////////////////////////////////
+	public static class MapStage1Merge implements MapRunnable<LongWritable, PagerankValue, LongWritable, PagerankValue>
+    {
+		private final LongWritable dst_int = new LongWritable();
+		private final PagerankValue out_value = new PagerankValue();
+		JobConf job;
+		Path vector_path;
+		RankSums sums = null;
+		double converge_threshold = 0;
+
+		public void configure(JobConf job) {
+			this.job = job;
+			vector_path = new Path(job.get("vector_path"));
+			if( job.get(COMBINE, "none").equals("inmapper") )
+				sums = new RankSums(job.getInt(COMBINE_ENTRIES, 100000));
+			converge_threshold = Double.parseDouble(job.get("converge_threshold"));
+
+			System.out.println("MapStage1Merge: vector_path = " + vector_path + ", inmapper = " + (sums != null));
+		}
+
+		// emit the self record of the current vector element, see emitSelf
+		private double emitSelf(final LongWritable key, final PagerankValue rank, final OutputCollector<LongWritable, PagerankValue> output) throws IOException
+		{
+			boolean delta = rank.getType() == PagerankValue.DELTA;
+			return PagerankNaive.emitSelf(key, rank.getRank(), delta ? rank.getDelta() : 0, delta, converge_threshold, out_value, output);
+		}
+
+		public void run (final RecordReader<LongWritable, PagerankValue> input, final OutputCollector<LongWritable, PagerankValue> output, final Reporter reporter) throws IOException
+		{
+			final Path vector_file = new Path(vector_path, ((FileSplit)reporter.getInputSplit()).getPath().getName());
+			final FileSystem fs = vector_file.getFileSystem(job);
+			SequenceFile.Reader vector = null;
+			if( fs.exists(vector_file) )
+				vector = new SequenceFile.Reader(fs, vector_file, job);
+
+			final LongWritable node = new LongWritable();
+			final PagerankValue rank = new PagerankValue();
+			final LongWritable key = input.createKey();
+			final PagerankValue edges = input.createValue();
+			boolean has_rank = vector != null && vector.next(node, rank);
+
+			try {
+				while (input.next(key, edges)) {
+					// vector elements without out-going edges only keep their previous rank
+					while( has_rank && node.get() < key.get() ) {
+						emitSelf(node, rank, output);
+						has_rank = vector.next(node, rank);
+					}
+
+					double cur_rank = 0;
+					boolean delta = false;
+					if( has_rank && node.get() == key.get() ) {
+						delta = rank.getType() == PagerankValue.DELTA;
+						cur_rank = emitSelf(key, rank, output);
+						has_rank = vector.next(node, rank);
+					} else
+						output.collect(key, out_value.setPrev( cur_rank ));
+
+					if( delta && cur_rank == 0 )
+						continue;
+
+					int outdeg = edges.getLength();
+					long[] dsts = edges.getDsts();
+					out_value.setRank( cur_rank / (double)outdeg );
+					for(int i = 0; i < outdeg; i++) {
+						if( sums != null ) {
+							sums.add(dsts[i], out_value.getRank(), output);
+							continue;
+						}
+						dst_int.set( dsts[i] );
+						output.collect( dst_int, out_value );
+					}
+					reporter.progress();
+				}
+
+				if( sums != null )
+					sums.flush(output);
+
+				while( has_rank ) {
+					emitSelf(node, rank, output);
+					has_rank = vector.next(node, rank);
+				}
+			} finally {
+				if( vector != null )
+					vector.close();
+			}
+		}
+	}
+
     ////////////////////////////////////////////////////////////////////////////////////////////////
     // STAGE 2: merge multiplication results.
 	//  - Input: partial multiplication results
 	//  - Output: combined multiplication results
     ////////////////////////////////////////////////////////////////////////////////////////////////
-	public static class MapStage2 extends MapReduceBase	implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage2 extends MapReduceBase	implements Mapper<LongWritable, PagerankValue, LongWritable, PagerankValue>
     {
 		// Identity mapper
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final PagerankValue value, final OutputCollector<LongWritable, PagerankValue> output, final Reporter reporter) throws IOException
 		{
-			final String[] line = value.toString().split("\t");
+			output.collect( key, value );
+		}
+	}
 
-			output.collect(new IntWritable(Integer.parseInt(line[0])), new Text(line[1]) );
+	// In-mapper combining variant of MapStage2 : the partial results are summed per destination
+	// in memory, and flushed when the map task ends or holds too many destinations.
+	public static class MapStage2InMapper extends MapReduceBase	implements Mapper<LongWritable, PagerankValue, LongWritable, PagerankValue>
+    {
+		RankSums sums;
+		OutputCollector<LongWritable, PagerankValue> output = null;
+
+		public void configure(JobConf job) {
+			sums = new RankSums(job.getInt(COMBINE_ENTRIES, 100000));
+		}
+
+		public void map (final LongWritable key, final PagerankValue value, final OutputCollector<LongWritable, PagerankValue> output, final Reporter reporter) throws IOException
+		{
+			this.output = output;
+			if( value.getType() != PagerankValue.RANK )
+				output.collect( key, value );
+			else
+				sums.add( key.get(), value.getRank(), output );
+		}
+
+		public void close() throws IOException {
+			if( output != null )
+				sums.flush( output );
 		}
 	}
 
-    public static class RedStage2 extends MapReduceBase	implements Reducer<IntWritable, Text, IntWritable, Text>
+	// Partial results of a map task summed per destination, for the in-mapper combining
+	static class RankSums
+	{
+		private final HashMap<Long, double[]> sums = new HashMap<Long, double[]>();
+		private final LongWritable node = new LongWritable();
+		private final PagerankValue value = new PagerankValue();
+		private final int max_entries;
+
+		RankSums(int max_entries) {
+			this.max_entries = max_entries;
+		}
+
+		public void add(long dst, double rank, final OutputCollector<LongWritable, PagerankValue> output) throws IOException {
+			double[] sum = sums.get(dst);
+			if( sum != null ) {
+				sum[0] += rank;
+				return;
+			}
+
+			if( sums.size() >= max_entries )
+				flush(output);
+			sums.put(dst, new double[] { rank });
+		}
+
+		public void flush(final OutputCollector<LongWritable, PagerankValue> output) throws IOException {
+			for( Map.Entry<Long, double[]> entry : sums.entrySet() ) {
+				node.set( entry.getKey() );
+				output.collect( node, value.setRank( entry.getValue()[0] ) );
+			}
+			sums.clear();
+		}
+	}
+
+	// Combiner : sums the partial results of a destination, the 's' and 'd' records are passed through
+    public static class CombinerStage2 extends MapReduceBase	implements Reducer<LongWritable, PagerankValue, LongWritable, PagerankValue>
     {
-		int number_nodes = 0;
+		private final PagerankValue out_value = new PagerankValue();
+
+		public void reduce (final LongWritable key, final Iterator<PagerankValue> values, final OutputCollector<LongWritable, PagerankValue> output, final Reporter reporter) throws IOException
+        {
+			double sum = 0;
+			boolean has_rank = false;
+
+			while (values.hasNext()) {
+				PagerankValue cur_value = values.next();
+				if( cur_value.getType() != PagerankValue.RANK )
+					output.collect( key, cur_value );
+				else {
+					sum += cur_value.getRank();
+					has_rank = true;
+				}
+			}
+
+			if( has_rank )
+				output.collect( key, out_value.setRank( sum ) );
+		}
+    }
+
+    public static class RedStage2 extends MapReduceBase	implements Reducer<LongWritable, PagerankValue, LongWritable, PagerankValue>
+    {
+		private final PagerankValue out_value = new PagerankValue();
+		long number_nodes = 0;
 		double mixing_c = 0;
 		double random_coeff = 0;
 		double converge_threshold = 0;
 		int change_reported = 0;
+		int delta = 0;
+		double residual = 0;		// L1 norm of the rank changes of this task
+		Reporter reporter = null;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			mixing_c = Double.parseDouble(job.get("mixing_c"));
 			random_coeff = (1-mixing_c) / (double)number_nodes;
 			converge_threshold = Double.parseDouble(job.get("converge_threshold"));
+			delta = job.getBoolean(DELTA, false) ? 1 : 0;
 
-			System.out.println("RedStage2: number_nodes = " + number_nodes + ", mixing_c = " + mixing_c + ", random_coeff = " + random_coeff + ", converge_threshold = " + converge_threshold );
+			System.out.println("RedStage2: number_nodes = " + number_nodes + ", mixing_c = " + mixing_c + ", random_coeff = " + random_coeff + ", converge_threshold = " + converge_threshold + ", delta = " + delta );
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<PagerankValue> values, final OutputCollector<LongWritable, PagerankValue> output, final Reporter reporter) throws IOException
         {
 			int i;
 			double next_rank = 0;
 			double previous_rank = 0;
+			double pending = 0;
+			boolean has_pending = false;
 
+			this.reporter = reporter;
 			while (values.hasNext()) {
-				String cur_value_str = values.next().toString();
-				if( cur_value_str.charAt(0) == 's' )
-					previous_rank = Double.parseDouble( cur_value_str.substring(1) );
-				else
-					next_rank += Double.parseDouble( cur_value_str.substring(1) ) ;
+				PagerankValue cur_value = values.next();
+				if( cur_value.getType() == PagerankValue.PREV )
+					previous_rank = cur_value.getRank();
+				else if( cur_value.getType() == PagerankValue.DELTA ) {
+					previous_rank = cur_value.getRank();
+					pending = cur_value.getDelta();
+					has_pending = true;
+				} else
+					next_rank += cur_value.getRank();
+			}
+
+			if( delta == 1 ) {
+				// The propagated changes are added to the rank, and to the change not propagated yet.
+				// The first iteration from a plain vector is a full one, its change is propagated next.
+				double change = next_rank * mixing_c;
+				if( !has_pending )
+					change += random_coeff - previous_rank;
+				pending += change;
+				output.collect( key, out_value.setDelta( previous_rank + change, pending ) );
+
+				residual += Math.abs(change);
+				if( Math.abs(pending) > converge_threshold )
+					reporter.incrCounter(PrCounters.ACTIVE_NODES, 1);
+				return;
 			}
 
 			next_rank = next_rank * mixing_c + random_coeff;
 
-			output.collect( key, new Text("v" + next_rank ) );
+			output.collect( key, out_value.setRank( next_rank ) );
 
+			double diff = Math.abs(previous_rank-next_rank);
+			residual += diff;
 
 			if( change_reported == 0 ) {
-				double diff = Math.abs(previous_rank-next_rank);
-
 				if( diff > converge_threshold ) {
 					reporter.incrCounter(PrCounters.CONVERGE_CHECK, 1);
 					change_reported = 1;
 				}
 			}
 		}
+
+		public void close() throws IOException {
+			if( reporter != null )
+				reporter.incrCounter(PrCounters.RESIDUAL, Math.round(residual * RESIDUAL_SCALE));
+		}
     }
 
+	// rank of a vector element, either a PagerankValue or a text line 'ROWID	vVALUE'
+	static double getRank(final Writable value)
+	{
+		if( value instanceof PagerankValue )
+			return ((PagerankValue)value).getRank();
+
+		final String[] line = value.toString().split("\t");
+		return Double.parseDouble(line[1].substring(1));
+	}
+
     //////////////////////////////////////////////////////////////////////
     // STAGE 3: After finding pagerank, calculate min/max pagerank
 	//  - Input: The converged PageRank vector
 	//  - Output: (key 0) minimum PageRank, (key 1) maximum PageRank
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage3 extends MapReduceBase	implements Mapper<LongWritable, Text, IntWritable, DoubleWritable>
+	// The binary vector of PagerankNaive, or the text vector of PagerankBlock and RWRBlock
+	public static class MapStage3 extends MapReduceBase	implements Mapper<Writable, Writable, IntWritable, DoubleWritable>
     {
 		private final IntWritable from_node_int = new IntWritable();
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, DoubleWritable> output, final Reporter reporter) throws IOException
+		public void map (final Writable key, final Writable value, final OutputCollector<IntWritable, DoubleWritable> output, final Reporter reporter) throws IOException
 		{
-			String line_text = value.toString();
-			if (line_text.startsWith("#"))				// ignore comments in edge file
+			if (value.toString().startsWith("#"))		// ignore comments in vector file
 				return;
 
-			final String[] line = line_text.split("\t");
-			double pagerank = Double.parseDouble(line[1].substring(1));
+			double pagerank = getRank(value);
 			output.collect( new IntWritable(0) , new DoubleWritable( pagerank ) );
 			output.collect( new IntWritable(1) , new DoubleWritable( pagerank ) );
 		}
@@ -217,12 +521,12 @@ public class PagerankNaive extends Configured implements Tool
 
     public static class RedStage3 extends MapReduceBase	implements Reducer<IntWritable, DoubleWritable, IntWritable, DoubleWritable>
     {
-		int number_nodes = 0;
+		long number_nodes = 0;
 		double mixing_c = 0;
 		double random_coeff = 0;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			mixing_c = Double.parseDouble(job.get("mixing_c"));
 			random_coeff = (1-mixing_c) / (double)number_nodes;
 
@@ -261,7 +565,7 @@ public class PagerankNaive extends Configured implements Tool
 	//  - Input: The converged PageRank vector
 	//  - Output: The histogram of PageRank vector in 1000 bins between min_PageRank and max_PageRank
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage4 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, IntWritable>
+	public static class MapStage4 extends MapReduceBase implements Mapper<Writable, Writable, IntWritable, IntWritable>
     {
 		private final IntWritable from_node_int = new IntWritable();
 		double min_pr = 0;
@@ -277,14 +581,12 @@ public class PagerankNaive extends Configured implements Tool
 			System.out.println("MapStage4: min_pr = " + min_pr + ", max_pr = " + max_pr);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
+		public void map (final Writable key, final Writable value, final OutputCollector<IntWritable, IntWritable> output, final Reporter reporter) throws IOException
 		{
-			String line_text = value.toString();
-			if (line_text.startsWith("#"))				// ignore comments in edge file
+			if (value.toString().startsWith("#"))		// ignore comments in vector file
 				return;
 
-			final String[] line = line_text.split("\t");
-			double pagerank = Double.parseDouble(line[1].substring(1));
+			double pagerank = getRank(value);
 			int distr_index = (int)(hist_width * (pagerank - min_pr)/gap_pr) + 1;
 			if(distr_index == hist_width + 1)
 				distr_index = hist_width;
@@ -311,17 +613,21 @@ public class PagerankNaive extends Configured implements Tool
     // command line interface
     //////////////////////////////////////////////////////////////////////
     protected Path edge_path = null;
+	protected Path adj_path = null;
 	protected Path vector_path = null;
     protected Path tempmv_path = null;
 	protected Path output_path = null;
 	protected String local_output_path;
 	protected Path minmax_path = null;
 	protected Path distr_path = null;
-	protected int number_nodes = 0;
+	protected long number_nodes = 0;
 	protected int niteration = 32;
 	protected double mixing_c = 0.85f;
 	protected int nreducers = 1;
 	protected int make_symmetric = 0;		// convert directed graph to undirected graph
+	protected int schimmy = 0;				// merge the co-partitioned edges map-side instead of shuffling them
+	protected String combine = "none";	// combining of the partial results
+	protected int delta = 0;				// propagate only the rank changes above the threshold
 
     // Main entry point.
     public static void main (final String[] args) throws Exception
@@ -335,7 +641,8 @@ public class PagerankNaive extends Configured implements Tool
     // Print the command-line usage text.
     protected static int printUsage ()
     {
-		System.out.println("PagerankNaive <input_path> <output_path> <# of nodes>  <# of tasks> <max iteration> <makesym or nosym> <new or contNN>");
+		System.out.println("PagerankNaive <input_path> <output_path> <# of nodes>  <# of tasks> <max iteration> <makesym or nosym> <new or contNN> [<shuffle or schimmy>]");
+		System.out.println("    -D" + COMBINE + "=<none, combiner or inmapper> -D" + DELTA + "=<true or false>");
 
 		ToolRunner.printGenericCommandUsage(System.out);
 
@@ -345,19 +652,20 @@ public class PagerankNaive extends Configured implements Tool
 	// submit the map/reduce job.
     public int run (final String[] args) throws Exception
     {
-		if( args.length != 7 ) {
+		if( args.length != 7 && args.length != 8 ) {
 			return printUsage();
 		}
 
 		int i;
 		edge_path = new Path(args[0]);
 		
+		adj_path = new Path(args[1]+"/pr_edges");
 		output_path = new Path(args[1]+"/pr_output");
 		vector_path = new Path(args[1]+"/pr_vector");
 		tempmv_path = new Path(args[1]+"/pr_tmp");	
 		minmax_path = new Path(args[1]+"/pr_minmax");
 		distr_path = new Path(args[1]+"/pr_distr");
-		number_nodes = Integer.parseInt(args[2]);
+		number_nodes = Long.parseLong(args[2]);
 		nreducers = Integer.parseInt(args[3]);
 		niteration = Integer.parseInt(args[4]);
 
@@ -368,29 +676,54 @@ public class PagerankNaive extends Configured implements Tool
 
 		int cur_iteration = 1; 
 		if( args[6].startsWith("cont") )
-			cur_iteration = Integer.parseInt(args[7].substring(4));
+			cur_iteration = Integer.parseInt(args[6].substring(4));
+
+		if( args.length == 8 && args[7].compareTo("schimmy") == 0 )
+			schimmy = 1;
+
+		combine = getConf().get(COMBINE, combine);
+		delta = getConf().getBoolean(DELTA, false) ? 1 : 0;
 
 		local_output_path = args[2] + "_temp";
 
 		converge_threshold = ((double)1.0/(double) number_nodes)/10;
+		if( delta == 1 )
+			converge_threshold = Double.parseDouble(getConf().get(DELTA_THRESHOLD, "" + converge_threshold * (1 - mixing_c) / 10));
 
 		System.out.println("\n-----===[PEGASUS: A Peta-Scale Graph Mining System]===-----\n");
-		System.out.println("[PEGASUS] Computing PageRank. Max iteration = " +niteration + ", threshold = " + converge_threshold + ", cur_iteration=" + cur_iteration + "\n");
+		System.out.println("[PEGASUS] Computing PageRank. Max iteration = " +niteration + ", threshold = " + converge_threshold + ", cur_iteration=" + cur_iteration + ", schimmy=" + schimmy + ", combine=" + combine + ", delta=" + delta + "\n");
+
+		final FileSystem fs = FileSystem.get(getConf());
+
+		// the adjacency lists are kept for the continued runs
+		if( cur_iteration == 1 || !fs.exists(adj_path) ) {
+			fs.delete(adj_path);
+			JobClient.runJob(configStage0(fs));
+		}
 
 		if( cur_iteration == 1 )
 			gen_initial_vector(number_nodes, vector_path);
 
-		final FileSystem fs = FileSystem.get(getConf());
-
 		// Run pagerank until converges. 
 		for (i = cur_iteration; i <= niteration; i++) {
-			JobClient.runJob(configStage1());
-			RunningJob job = JobClient.runJob(configStage2());
+			RunningJob job;
+			if( schimmy == 1 && countParts(fs, adj_path) == countParts(fs, vector_path) )
+				job = JobClient.runJob(configStage1Merge());
+			else {
+				JobClient.runJob(configStage1());
+				job = JobClient.runJob(configStage2());
+			}
 
 			// The counter is newly created per every iteration.
 			Counters c = job.getCounters();
 			long changed = c.getCounter(PrCounters.CONVERGE_CHECK);
-			System.out.println("Iteration = " + i + ", changed reducer = " + changed);
+			double residual = c.getCounter(PrCounters.RESIDUAL) / RESIDUAL_SCALE;
+			if( delta == 1 ) {
+				// converged once no node has a change to propagate
+				changed = c.getCounter(PrCounters.ACTIVE_NODES);
+				System.out.println("Iteration = " + i + ", active nodes = " + changed + ", L1 residual = " + residual);
+			} else
+				System.out.println("Iteration = " + i + ", changed reducer = " + changed + ", L1 residual = " + residual);
 
 			if( changed == 0 ) {
 				System.out.println("PageRank vector converged. Now preparing to finish...");
@@ -425,39 +758,86 @@ public class PagerankNaive extends Configured implements Tool
 		//JobClient.runJob(configStage4(mmi.min, mmi.max));
 
 		System.out.println("\n[PEGASUS] PageRank computed.");
-		System.out.println("[PEGASUS] The final PageRanks are in the HDFS pr_vector.");
+		System.out.println("[PEGASUS] The final PageRanks are in the HDFS pr_vector, as a SequenceFile of (LongWritable, PagerankValue).");
 		//System.out.println("[PEGASUS] The minium and maximum PageRanks are in the HDFS pr_minmax.");
 		//System.out.println("[PEGASUS] The histogram of PageRanks in 1000 bins between min_PageRank and max_PageRank are in the HDFS pr_distr.\n");
 
 		return 0;
     }
 
-	// generate initial pagerank vector
-	public void gen_initial_vector(int number_nodes, Path vector_path) throws IOException
+	// generate initial pagerank vector, written straight to the file system.
+	// There is one file per reducer, named and range partitioned as the reducer outputs.
+	public void gen_initial_vector(long number_nodes, Path vector_path) throws IOException
 	{
-		int i, j = 0;
-		int milestone = number_nodes/10;
-		String file_name = "pagerank_init_vector.temp";
-		FileWriter file = new FileWriter(file_name);
-		BufferedWriter out = new BufferedWriter (file);
+		long i, j = 0;
+		long milestone = number_nodes/10;
+		long part_size = (number_nodes + nreducers - 1) / nreducers;
+		final FileSystem fs = FileSystem.get(getConf());
 
 		System.out.print("Creating initial pagerank vectors...");
 		double initial_rank = 1.0 / (double)number_nodes;
+		LongWritable node = new LongWritable();
+		PagerankValue rank = new PagerankValue().setRank(initial_rank);
 
-		for(i=0; i < number_nodes; i++)
+		for(int part = 0; part < nreducers; part++)
 		{
-			out.write(i + "\tv" + initial_rank +"\n");
-			if(++j > milestone) {
-					System.out.print(".");
-					j = 0;
+			String file_name = "part-" + String.format("%05d", part);
+			SequenceFile.Writer out = SequenceFile.createWriter(fs, getConf(), new Path(vector_path, file_name), LongWritable.class, PagerankValue.class);
+
+			for(i = part * part_size; i < Math.min((part + 1) * part_size, number_nodes); i++)
+			{
+				node.set(i);
+				out.append(node, rank);
+				if(++j > milestone) {
+						System.out.print(".");
+						j = 0;
+				}
 			}
+			out.close();
 		}
-		out.close();
 		System.out.println("");
-		
-		// copy it to curbm_path, and delete temporary local file.
-		final FileSystem fs = FileSystem.get(getConf());
-		fs.copyFromLocalFile( true, new Path("./" + file_name), new Path (vector_path.toString()+ "/" + file_name) );
+	}
+
+	// number of data files under path. The map-side merge join needs as many
+	// vector files as adjacency lists files, else the iteration reshuffles the edges,
+	// e.g. when the vector was not written with the same number of reducers.
+	public static int countParts(FileSystem fs, Path path) throws IOException
+	{
+		int count = 0;
+		FileStatus[] files = fs.listStatus(path);
+		if( files == null )
+			return 0;
+
+		for( FileStatus file : files ) {
+			String name = file.getPath().getName();
+			if( !file.isDir() && !name.startsWith("_") && !name.startsWith(".") )
+				count++;
+		}
+		return count;
+	}
+
+	// check whether the first data file under path is a SequenceFile
+	public static boolean isSequenceFile(FileSystem fs, Path path) throws IOException
+	{
+		FileStatus[] files = fs.globStatus(new Path(path, "*"));
+		if( files == null )
+			files = new FileStatus[] { fs.getFileStatus(path) };
+
+		for( FileStatus file : files ) {
+			String name = file.getPath().getName();
+			if( file.isDir() || name.startsWith("_") || name.startsWith(".") || file.getLen() < 3 )
+				continue;
+
+			byte[] magic = new byte[3];
+			FSDataInputStream in = fs.open(file.getPath());
+			try {
+				in.readFully(magic);
+			} finally {
+				in.close();
+			}
+			return magic[0] == 'S' && magic[1] == 'E' && magic[2] == 'Q';
+		}
+		return false;
 	}
 
 	// read neighborhood number after each iteration.
@@ -493,25 +873,57 @@ public class PagerankNaive extends Configured implements Tool
 		return info;//result;
 	}
 
+	// Configure pass0
+    protected JobConf configStage0 (final FileSystem fs) throws Exception
+    {
+		final JobConf conf = new JobConf(getConf(), PagerankNaive.class);
+		conf.set("number_nodes", "" + number_nodes);
+		conf.set("make_symmetric", "" + make_symmetric);
+		conf.setJobName("Pagerank_Stage0");
+
+		conf.setMapperClass(MapStage0.class);
+		conf.setReducerClass(RedStage0.class);
+		// partitioned as the vector, for the map-side merge join
+		conf.setPartitionerClass(PegasusUtils.RangePartition.class);
+
+		if( isSequenceFile(fs, edge_path) )
+			conf.setInputFormat(SequenceFileInputFormat.class);
+		conf.setOutputFormat(SequenceFileOutputFormat.class);
+		FileInputFormat.setInputPaths(conf, edge_path);
+		FileOutputFormat.setOutputPath(conf, adj_path);
+
+		conf.setNumReduceTasks( nreducers );
+
+		conf.setMapOutputKeyClass(LongWritable.class);
+		conf.setMapOutputValueClass(LongWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
+		conf.setOutputValueClass(PagerankValue.class);
+
+		return conf;
+    }
+
 	// Configure pass1
     protected JobConf configStage1 () throws Exception
     {
 		final JobConf conf = new JobConf(getConf(), PagerankNaive.class);
 		conf.set("number_nodes", "" + number_nodes);
 		conf.set("mixing_c", "" + mixing_c);
+		conf.set("converge_threshold", "" + converge_threshold);
 		conf.set("make_symmetric", "" + make_symmetric);
 		conf.setJobName("Pagerank_Stage1");
 		
 		conf.setMapperClass(MapStage1.class);        
 		conf.setReducerClass(RedStage1.class);
 
-		FileInputFormat.setInputPaths(conf, edge_path, vector_path);  
+		conf.setInputFormat(SequenceFileInputFormat.class);
+		conf.setOutputFormat(SequenceFileOutputFormat.class);
+		FileInputFormat.setInputPaths(conf, adj_path, vector_path);  
 		FileOutputFormat.setOutputPath(conf, tempmv_path);  
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(Text.class);
+		conf.setOutputKeyClass(LongWritable.class);
+		conf.setOutputValueClass(PagerankValue.class);
 
 		return conf;
     }
@@ -525,16 +937,55 @@ public class PagerankNaive extends Configured implements Tool
 		conf.set("converge_threshold", "" + converge_threshold);
 		conf.setJobName("Pagerank_Stage2");
 		
-		conf.setMapperClass(MapStage2.class);        
+		if( combine.equals("inmapper") )
+			conf.setMapperClass(MapStage2InMapper.class);
+		else
+			conf.setMapperClass(MapStage2.class);
+		if( combine.equals("combiner") )
+			conf.setCombinerClass(CombinerStage2.class);
 		conf.setReducerClass(RedStage2.class);
+		conf.setPartitionerClass(PegasusUtils.RangePartition.class);
 
+		conf.setInputFormat(SequenceFileInputFormat.class);
+		conf.setOutputFormat(SequenceFileOutputFormat.class);
 		FileInputFormat.setInputPaths(conf, tempmv_path);  
 		FileOutputFormat.setOutputPath(conf, output_path);  
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
-		conf.setOutputValueClass(Text.class);
+		conf.setOutputKeyClass(LongWritable.class);
+		conf.setOutputValueClass(PagerankValue.class);
+
+		return conf;
+    }
+
+	// Configure pass1 and pass2 merged, with the map-side join of the co-partitioned edges and vector
+    protected JobConf configStage1Merge () throws Exception
+    {
+		final JobConf conf = new JobConf(getConf(), PagerankNaive.class);
+		conf.set("number_nodes", "" + number_nodes);
+		conf.set("mixing_c", "" + mixing_c);
+		conf.set("converge_threshold", "" + converge_threshold);
+		conf.set("vector_path", vector_path.toString());
+		conf.setJobName("Pagerank_Stage1Merge");
+
+		conf.setMapRunnerClass(MapStage1Merge.class);
+		if( combine.equals("combiner") )
+			conf.setCombinerClass(CombinerStage2.class);
+		conf.setReducerClass(RedStage2.class);
+		conf.setPartitionerClass(PegasusUtils.RangePartition.class);
+
+		// one map task per partition of the adjacency lists
+		conf.setLong("mapred.min.split.size", Long.MAX_VALUE);
+		conf.setInputFormat(SequenceFileInputFormat.class);
+		conf.setOutputFormat(SequenceFileOutputFormat.class);
+		FileInputFormat.setInputPaths(conf, adj_path);
+		FileOutputFormat.setOutputPath(conf, output_path);
+
+		conf.setNumReduceTasks( nreducers );
+
+		conf.setOutputKeyClass(LongWritable.class);
+		conf.setOutputValueClass(PagerankValue.class);
 
 		return conf;
     }
@@ -552,6 +1003,7 @@ public class PagerankNaive extends Configured implements Tool
 		conf.setReducerClass(RedStage3.class);
 		conf.setCombinerClass(RedStage3.class);
 
+		conf.setInputFormat(SequenceFileInputFormat.class);
 		FileInputFormat.setInputPaths(conf, vector_path);  
 		FileOutputFormat.setOutputPath(conf, minmax_path);  
 
@@ -576,6 +1028,7 @@ public class PagerankNaive extends Configured implements Tool
 		conf.setReducerClass(RedStage4.class);
 		conf.setCombinerClass(RedStage4.class);
 
+		conf.setInputFormat(SequenceFileInputFormat.class);
 		FileInputFormat.setInputPaths(conf, vector_path);  
 		FileOutputFormat.setOutputPath(conf, distr_path);  
 
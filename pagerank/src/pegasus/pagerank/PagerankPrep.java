@@ -37,7 +37,7 @@ public class PagerankPrep extends Configured implements Tool
 	//  - Input: edge file
 	//  - Output: column-normalized adjacency matrix
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage1 extends MapReduceBase implements Mapper<LongWritable, Text, LongWritable, Text>
     {
 		int make_symmetric = 0;
 
@@ -47,7 +47,7 @@ public class PagerankPrep extends Configured implements Tool
 			System.out.println("MapStage1 : make_symmetric = " + make_symmetric);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			if (line_text.startsWith("#"))				// ignore comments in edge file
@@ -57,31 +57,31 @@ public class PagerankPrep extends Configured implements Tool
 			if(line.length < 2 )						// ignore ill-formated data.
 				return;
 
-			int src_id = Integer.parseInt(line[0]);
-			int dst_id = Integer.parseInt(line[1]);
-			output.collect( new IntWritable( src_id ), new Text(line[1]) );
+			long src_id = Long.parseLong(line[0]);
+			long dst_id = Long.parseLong(line[1]);
+			output.collect( new LongWritable( src_id ), new Text(line[1]) );
 
 			if( make_symmetric == 1 )
-				output.collect( new IntWritable( dst_id ), new Text(line[0]) );
+				output.collect( new LongWritable( dst_id ), new Text(line[0]) );
 		}
 	}
 
-    public static class RedStage1 extends MapReduceBase	implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class RedStage1 extends MapReduceBase	implements Reducer<LongWritable, Text, LongWritable, Text>
     {
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			int i;
-		    ArrayList<Integer> dst_nodes_list = new ArrayList<Integer>();
+		    ArrayList<Long> dst_nodes_list = new ArrayList<Long>();
 
 			while (values.hasNext()) {
 				String cur_value_str = values.next().toString();
-				dst_nodes_list.add( Integer.parseInt(cur_value_str) );
+				dst_nodes_list.add( Long.parseLong(cur_value_str) );
 			}
 
 			int deg = dst_nodes_list.size();
 			double elem_value = 1.0 / (double)deg ;
 			for( i = 0; i < deg; i++) {
-				output.collect( new IntWritable( dst_nodes_list.get(i) ), new Text( Integer.toString(key.get()) + "\t"+ elem_value ));
+				output.collect( new LongWritable( dst_nodes_list.get(i) ), new Text( Long.toString(key.get()) + "\t"+ elem_value ));
 			}
 
 		}
@@ -160,7 +160,7 @@ public class PagerankPrep extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
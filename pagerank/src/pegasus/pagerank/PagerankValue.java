@@ -0,0 +1,144 @@
+/***********************************************************************
+    PEGASUS: Peta-Scale Graph Mining System
+    Authors: U Kang, Duen Horng Chau, and Christos Faloutsos
+
+This software is licensed under Apache License, Version 2.0 (the  "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+-------------------------------------------------------------------------
+File: PagerankValue.java
+ - Tagged value of a node in the binary PageRank pipeline: a rank, the
+   previous rank of the node, its out-going adjacency list, or its rank and
+   pending change in the delta mode.
+Version: 2.0
+***********************************************************************/
+
+package pegasus;
+
+import java.io.*;
+import java.util.*;
+import org.apache.hadoop.io.*;
+
+public class PagerankValue implements Writable
+{
+	// the tags are the prefixes of the former text values
+	public static final byte RANK = 'v';		// partial or full rank of the key node
+	public static final byte PREV = 's';		// rank of the key node in the previous iteration
+	public static final byte EDGES = 'e';		// destinations of the out-going edges of the key node
+	public static final byte DELTA = 'd';		// rank of the key node and its change not propagated yet
+
+	private byte type = RANK;
+	private double rank = 0;
+	private double delta = 0;
+	private int len = 0;
+	private long[] dsts = new long[0];
+
+	public PagerankValue() {}
+
+	public byte getType() {
+		return type;
+	}
+
+	public double getRank() {
+		return rank;
+	}
+
+	public double getDelta() {
+		return delta;
+	}
+
+	public int getLength() {
+		return len;
+	}
+
+	// the array is reused by readFields, only the first getLength() ids are valid
+	public long[] getDsts() {
+		return dsts;
+	}
+
+	public PagerankValue setRank(double rank) {
+		this.type = RANK;
+		this.rank = rank;
+		return this;
+	}
+
+	public PagerankValue setPrev(double rank) {
+		this.type = PREV;
+		this.rank = rank;
+		return this;
+	}
+
+	public PagerankValue setDelta(double rank, double delta) {
+		this.type = DELTA;
+		this.rank = rank;
+		this.delta = delta;
+		return this;
+	}
+
+	// the ids are sorted in place, so that they are stored as small deltas
+	public PagerankValue setEdges(long[] dsts, int len) {
+		Arrays.sort(dsts, 0, len);
+		this.type = EDGES;
+		this.dsts = dsts;
+		this.len = len;
+		return this;
+	}
+
+	public void readFields(DataInput in) throws IOException {
+		type = in.readByte();
+		if( type == EDGES ) {
+			len = WritableUtils.readVInt(in);
+			if( dsts.length < len )
+				dsts = new long[len];
+			long prev = 0;
+			for(int i = 0; i < len; i++) {
+				prev += WritableUtils.readVLong(in);
+				dsts[i] = prev;
+			}
+		} else {
+			rank = in.readDouble();
+			if( type == DELTA )
+				delta = in.readDouble();
+		}
+	}
+
+	public void write(DataOutput out) throws IOException {
+		out.writeByte(type);
+		if( type == EDGES ) {
+			WritableUtils.writeVInt(out, len);
+			long prev = 0;
+			for(int i = 0; i < len; i++) {
+				WritableUtils.writeVLong(out, dsts[i] - prev);
+				prev = dsts[i];
+			}
+		} else {
+			out.writeDouble(rank);
+			if( type == DELTA )
+				out.writeDouble(delta);
+		}
+	}
+
+	// same as the former text values, for "hadoop fs -text"
+	public String toString() {
+		if( type == DELTA )
+			return (char)type + Double.toString(rank) + " " + Double.toString(delta);
+		if( type != EDGES )
+			return (char)type + Double.toString(rank);
+
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < len; i++) {
+			if( i > 0 )
+				sb.append(' ');
+			sb.append(dsts[i]);
+		}
+		return sb.toString();
+	}
+}
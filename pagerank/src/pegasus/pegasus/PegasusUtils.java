@@ -495,33 +495,40 @@ public class PegasusUtils
 	// Partitioners
 	//
 
-	public static class RangePartition<V2> implements Partitioner<IntWritable, V2> {
-		int number_nodes;
+	// node ids are long, the partition is computed in long arithmetic so that it stays exact past 2^53 nodes
+	public static int rangePartition(long node_id, long number_nodes, int numReduceTasks) {
+		long result = (node_id / ((number_nodes + numReduceTasks - 1) / numReduceTasks));
+		if( result >= numReduceTasks )
+			return (numReduceTasks-1);
+		else if( result < 0 )
+			return 0;
+		else
+			return (int)result;
+	}
+
+	public static class RangePartition<V2> implements Partitioner<LongWritable, V2> {
+		long number_nodes;
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			System.out.println("RangePartition configure(): number_nodes = " + number_nodes);
 		}
 
 		// range partitioner
-		public int getPartition(IntWritable key, V2 value, int numReduceTasks) {
-			return (int)(( ((int)key.get())/(double)number_nodes) * numReduceTasks);
+		public int getPartition(LongWritable key, V2 value, int numReduceTasks) {
+			return rangePartition(key.get(), number_nodes, numReduceTasks);
 		}
 	}
 
-	public static class RangePartitionS1 implements Partitioner<IntWritable, Text> {
-		int number_nodes;
+	public static class RangePartitionS1 implements Partitioner<LongWritable, Text> {
+		long number_nodes;
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			System.out.println("RangePartition configure(): number_nodes = " + number_nodes);
 		}
 
 		// range partitioner
-		public int getPartition(IntWritable key, Text value, int numReduceTasks) {
-			int result = (int)((key.get()/(double)number_nodes) * numReduceTasks);
-			if( result == numReduceTasks )
-				return (numReduceTasks-1);
-			else
-				return result;
+		public int getPartition(LongWritable key, Text value, int numReduceTasks) {
+			return rangePartition(key.get(), number_nodes, numReduceTasks);
 		}
 	}
 
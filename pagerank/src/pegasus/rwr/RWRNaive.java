@@ -40,7 +40,7 @@ public class RWRNaive extends Configured implements Tool
 	//  - Input: edge_file, rwr vector
 	//  - Output: partial matrix-vector multiplication results.
     //////////////////////////////////////////////////////////////////////
-	public static class MapStage1 extends MapReduceBase	implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage1 extends MapReduceBase	implements Mapper<LongWritable, Text, LongWritable, Text>
     {
 		int make_symmetric = 0;
 
@@ -50,7 +50,7 @@ public class RWRNaive extends Configured implements Tool
 			System.out.println("MapStage1 : make_symmetric = " + make_symmetric);
 		}
 
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			String line_text = value.toString();
 			if (line_text.startsWith("#"))				// ignore comments in edge file
@@ -61,41 +61,41 @@ public class RWRNaive extends Configured implements Tool
 				return;
 
 			if( line[1].charAt(0) == 'v' ) {	// vector : ROWID	VALUE('vNNNN')
-				output.collect( new IntWritable(Integer.parseInt(line[0])), new Text(line[1]) );
+				output.collect( new LongWritable(Long.parseLong(line[0])), new Text(line[1]) );
 			} else {							
 				// In other matrix-vector multiplication, we output (dst, src) here
 				// However, In RWR, the matrix-vector computation formula is M^T * v.
 				// Therefore, we output (src,dst) here.
-				int src_id = Integer.parseInt(line[0]);
-				int dst_id = Integer.parseInt(line[1]);
-				output.collect( new IntWritable( src_id ), new Text(line[1]) );
+				long src_id = Long.parseLong(line[0]);
+				long dst_id = Long.parseLong(line[1]);
+				output.collect( new LongWritable( src_id ), new Text(line[1]) );
 
 				if( make_symmetric == 1 )
-					output.collect( new IntWritable( dst_id ), new Text(line[0]) );
+					output.collect( new LongWritable( dst_id ), new Text(line[0]) );
 			}
 		}
 	}
 
-    public static class RedStage1 extends MapReduceBase	implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class RedStage1 extends MapReduceBase	implements Reducer<LongWritable, Text, LongWritable, Text>
     {
-		int number_nodes = 0;
+		long number_nodes = 0;
 		double mixing_c = 0;
 		double random_coeff = 0;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			mixing_c = Double.parseDouble(job.get("mixing_c"));
 			random_coeff = (1-mixing_c) / (double)number_nodes;
 
 			System.out.println("RedStage1: number_nodes = " + number_nodes + ", mixing_c = " + mixing_c + ", random_coeff = " + random_coeff);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			int i;
 			double cur_rank = 0;
 
-		    ArrayList<Integer> dst_nodes_list = new ArrayList<Integer>();
+		    ArrayList<Long> dst_nodes_list = new ArrayList<Long>();
 
 			while (values.hasNext()) {
 				String line_text = values.next().toString();
@@ -105,7 +105,7 @@ public class RWRNaive extends Configured implements Tool
 					if(line_text.charAt(0) == 'v')	// vector : VALUE
 						cur_rank = Double.parseDouble(line_text.substring(1));
 					else {							// edge : ROWID
-						dst_nodes_list.add( Integer.parseInt( line[0] ) );
+						dst_nodes_list.add( Long.parseLong( line[0] ) );
 					}
 				} 
 			}
@@ -118,7 +118,7 @@ public class RWRNaive extends Configured implements Tool
 				cur_rank = cur_rank / (double)outdeg;
 
 			for( i = 0; i < outdeg; i++) {
-				output.collect( new IntWritable( dst_nodes_list.get(i) ), new Text( "v" + cur_rank ) );
+				output.collect( new LongWritable( dst_nodes_list.get(i) ), new Text( "v" + cur_rank ) );
 			}
 		}
     }
@@ -128,30 +128,30 @@ public class RWRNaive extends Configured implements Tool
 	//  - Input: partial multiplication results
 	//  - Output: combined multiplication results
     ////////////////////////////////////////////////////////////////////////////////////////////////
-	public static class MapStage2 extends MapReduceBase	implements Mapper<LongWritable, Text, IntWritable, Text>
+	public static class MapStage2 extends MapReduceBase	implements Mapper<LongWritable, Text, LongWritable, Text>
     {
 		// Identity mapper
-		public void map (final LongWritable key, final Text value, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void map (final LongWritable key, final Text value, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
 		{
 			final String[] line = value.toString().split("\t");
 
-			output.collect(new IntWritable(Integer.parseInt(line[0])), new Text(line[1]) );
+			output.collect(new LongWritable(Long.parseLong(line[0])), new Text(line[1]) );
 		}
 	}
 
-    public static class RedStage2 extends MapReduceBase	implements Reducer<IntWritable, Text, IntWritable, Text>
+    public static class RedStage2 extends MapReduceBase	implements Reducer<LongWritable, Text, LongWritable, Text>
     {
-		int number_nodes = 0;
+		long number_nodes = 0;
 		double mixing_c = 0;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			mixing_c = Double.parseDouble(job.get("mixing_c"));
 
 			System.out.println("RedStage2: number_nodes = " + number_nodes + ", mixing_c = " + mixing_c);
 		}
 
-		public void reduce (final IntWritable key, final Iterator<Text> values, final OutputCollector<IntWritable, Text> output, final Reporter reporter) throws IOException
+		public void reduce (final LongWritable key, final Iterator<Text> values, final OutputCollector<LongWritable, Text> output, final Reporter reporter) throws IOException
         {
 			int i;
 			double next_rank = 0;
@@ -196,12 +196,12 @@ public class RWRNaive extends Configured implements Tool
 
     public static class RedStage3 extends MapReduceBase	implements Reducer<IntWritable, DoubleWritable, IntWritable, DoubleWritable>
     {
-		int number_nodes = 0;
+		long number_nodes = 0;
 		double mixing_c = 0;
 		double random_coeff = 0;
 
 		public void configure(JobConf job) {
-			number_nodes = Integer.parseInt(job.get("number_nodes"));
+			number_nodes = Long.parseLong(job.get("number_nodes"));
 			mixing_c = Double.parseDouble(job.get("mixing_c"));
 			random_coeff = (1-mixing_c) / (double)number_nodes;
 
@@ -488,8 +488,8 @@ public class RWRNaive extends Configured implements Tool
 	// generate initial rwr vector
 	public void gen_initial_vector(long number_nodes, Path vector_path) throws IOException
 	{
-		int i, j = 0;
-		int milestone = (int)number_nodes/10;
+		long i, j = 0;
+		long milestone = number_nodes/10;
 		String file_name = "rwr_init_vector.temp";
 		FileWriter file = new FileWriter(file_name);
 		BufferedWriter out = new BufferedWriter (file);
@@ -565,7 +565,7 @@ public class RWRNaive extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;
@@ -589,7 +589,7 @@ public class RWRNaive extends Configured implements Tool
 
 		conf.setNumReduceTasks( nreducers );
 
-		conf.setOutputKeyClass(IntWritable.class);
+		conf.setOutputKeyClass(LongWritable.class);
 		conf.setOutputValueClass(Text.class);
 
 		return conf;